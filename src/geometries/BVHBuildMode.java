@@ -0,0 +1,19 @@
+package geometries;
+
+/**
+ * Bounding volume hierarchy build modes enumeration
+ * Defines the available algorithms of {@link BVHBuilder}
+ *
+ * @author Maor Atari
+ */
+public enum BVHBuildMode {
+    /**
+     * Binned surface area heuristic - high quality hierarchy, slower build
+     */
+    SAH,
+    /**
+     * Linear BVH - geometries sorted along a Morton (Z-order) curve, very fast build
+     * of a somewhat lower quality hierarchy, e.g. for scenes rebuilt every frame
+     */
+    LBVH
+}
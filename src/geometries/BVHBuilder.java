@@ -0,0 +1,922 @@
+package geometries;
+
+import java.io.Serial;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Class BVHBuilder builds bounding volume hierarchies (BVH) over bounded geometries.
+ * Two build modes are available (see {@link BVHBuildMode}):
+ * <ul>
+ * <li>SAH (default) - the hierarchy is built top-down with the binned surface area heuristic:
+ * the centroids of the geometries of a node are distributed into a fixed amount of bins along
+ * every axis and the split between the bins that minimizes the expected cost of intersecting
+ * a ray with both children is chosen</li>
+ * <li>LBVH - the geometries are sorted by the Morton codes of their centroids (radix sort) and
+ * the hierarchy is emitted in a single pass over the sorted codes, every node being split
+ * where the highest differing bit of its codes changes</li>
+ * </ul>
+ * The subtrees of big nodes (and the sort) may be processed in parallel by a fork/join pool.
+ * <p>
+ * The builder holds the build parameters and is configured by chained setters, e.g.
+ * {@code geometries.buildBVH(new BVHBuilder().setLeafSize(2).setMultithreading(8))}.
+ * After every build a {@link Report} of the built hierarchy is available
+ *
+ * @author Maor Atari
+ */
+public class BVHBuilder {
+    /**
+     * Cost of traversing a node relative to the cost of intersecting a geometry
+     */
+    static final double TRAVERSAL_COST = 1;
+    /**
+     * Minimal amount of geometries in a node for building its subtrees in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 1024;
+    /**
+     * Bits per axis of the Morton codes - 10 bits (30-bit codes) are enough for
+     * up to {@link #SHORT_CODES_LIMIT} geometries, otherwise 21 bits (63-bit codes)
+     */
+    private static final int SHORT_CODE_BITS = 10, LONG_CODE_BITS = 21;
+    /**
+     * Maximal amount of geometries sorted by 30-bit Morton codes
+     */
+    private static final int SHORT_CODES_LIMIT = 1 << 20;
+    /**
+     * Minimal amount of keys in a chunk of the parallel radix sort
+     */
+    private static final int SORT_CHUNK_SIZE = 4096;
+
+    /**
+     * Maximal amount of geometries in a leaf
+     */
+    private int leafSize = 4;
+    /**
+     * Amount of the bins along an axis for evaluation of the splits
+     */
+    private int binsCount = 16;
+    /**
+     * The build mode
+     */
+    private BVHBuildMode buildMode = BVHBuildMode.SAH;
+    /**
+     * The memory layout of the built hierarchy
+     */
+    private BVHLayout layout = BVHLayout.FLAT;
+    /**
+     * Bits per quantized coordinate of the quantized layout - 8 or 16
+     */
+    private int quantizationBits = 8;
+    /**
+     * Maximal ratio between the SAH cost of a refitted hierarchy and the cost of the built one,
+     * beyond which the hierarchy is rebuilt
+     */
+    private double rebuildThreshold = 1.5;
+    /**
+     * Directory of the cache of the built hierarchies (null for building every hierarchy)
+     */
+    private Path cacheDirectory = null;
+    /**
+     * Amount of the building threads, 0 for building in the calling thread
+     */
+    private int threadsCount = 0;
+    /**
+     * Report of the last build (null if nothing has been built)
+     */
+    private Report report = null;
+
+    /**
+     * Report of a built hierarchy
+     *
+     * @param geometries amount of the geometries in the hierarchy
+     * @param nodes      amount of the nodes (inner nodes and leaves)
+     * @param leaves     amount of the leaves
+     * @param depth      the depth of the deepest leaf (1 for a single leaf)
+     * @param cost       the SAH cost of the hierarchy - expected amount of traversed nodes and
+     *                   intersected geometries per ray that hits the root box
+     * @param buildTime  build (or loading) time in milliseconds
+     * @param layout     the memory layout of the hierarchy
+     * @param memorySize estimated memory used by the hierarchy in bytes, without the geometries themselves
+     * @param cached     whether the hierarchy was loaded from the cache instead of being built
+     */
+    public record Report(int geometries, int nodes, int leaves, int depth, double cost, double buildTime,
+                         BVHLayout layout, long memorySize, boolean cached) {
+        /**
+         * Estimated memory used by the hierarchy per geometry
+         *
+         * @return bytes per geometry
+         */
+        public double bytesPerGeometry() {
+            return (double) memorySize / geometries;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BVH: %d geometries, %d nodes, %d leaves, depth %d, SAH cost %.2f, %s in %.1f ms, "
+                            + "%s layout of %d bytes (%.1f bytes per geometry)",
+                    geometries, nodes, leaves, depth, cost, cached ? "loaded from cache" : "built", buildTime,
+                    layout, memorySize, bytesPerGeometry());
+        }
+    }
+
+    /**
+     * Geometry together with its bounding box and centroid, used during construction
+     *
+     * @param geometry the geometry
+     * @param box      its bounding box
+     * @param centerX  X coordinate of the centroid of the box
+     * @param centerY  Y coordinate of the centroid of the box
+     * @param centerZ  Z coordinate of the centroid of the box
+     */
+    private record Item(Intersectable geometry, BoundingBox box, double centerX, double centerY, double centerZ) {
+        /**
+         * Constructor of an item for a geometry
+         *
+         * @param geometry the geometry
+         * @param box      its bounding box
+         */
+        Item(Intersectable geometry, BoundingBox box) {
+            this(geometry, box, box.center(0), box.center(1), box.center(2));
+        }
+
+        /**
+         * Centroid coordinate of the item's box along an axis
+         *
+         * @param axis the axis index
+         * @return the centroid coordinate
+         */
+        double center(int axis) {
+            return switch (axis) {
+                case 0 -> centerX;
+                case 1 -> centerY;
+                default -> centerZ;
+            };
+        }
+    }
+
+    /**
+     * Default constructor - SAH mode, flat layout, leaves of up to 4 geometries, 16 bins, 8-bit quantization,
+     * building in the calling thread, no cache
+     */
+    public BVHBuilder() {
+    }
+
+    /**
+     * Set the build mode
+     *
+     * @param buildMode the build mode
+     * @return this builder
+     */
+    public BVHBuilder setBuildMode(BVHBuildMode buildMode) {
+        if (buildMode == null) {
+            throw new IllegalArgumentException("Build mode must not be null");
+        }
+        this.buildMode = buildMode;
+        return this;
+    }
+
+    /**
+     * Set the memory layout of the built hierarchy
+     *
+     * @param layout the layout
+     * @return this builder
+     */
+    public BVHBuilder setLayout(BVHLayout layout) {
+        if (layout == null) {
+            throw new IllegalArgumentException("Layout must not be null");
+        }
+        this.layout = layout;
+        return this;
+    }
+
+    /**
+     * Set the bits per quantized coordinate of the quantized layout
+     *
+     * @param bits 8 or 16 bits
+     * @return this builder
+     */
+    public BVHBuilder setQuantizationBits(int bits) {
+        if (bits != 8 && bits != 16) {
+            throw new IllegalArgumentException("Quantization bits must be 8 or 16");
+        }
+        this.quantizationBits = bits;
+        return this;
+    }
+
+    /**
+     * Set the rebuild threshold of {@link Geometries#refitBVH()}: the maximal ratio between the SAH cost
+     * of a refitted hierarchy and the cost of the built one, beyond which the hierarchy is rebuilt
+     *
+     * @param threshold the maximal cost ratio (1 to rebuild whenever the refitting degrades the hierarchy)
+     * @return this builder
+     */
+    public BVHBuilder setRebuildThreshold(double threshold) {
+        if (!(threshold >= 1)) {
+            throw new IllegalArgumentException("Rebuild threshold must be at least 1");
+        }
+        this.rebuildThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Gets the rebuild threshold of {@link Geometries#refitBVH()}
+     *
+     * @return the maximal ratio between the cost of a refitted hierarchy and the cost of the built one
+     */
+    double getRebuildThreshold() {
+        return rebuildThreshold;
+    }
+
+    /**
+     * Set the directory of the cache of the built hierarchies. A hierarchy is stored there in a
+     * binary file named by a content hash of the build parameters and of the bounding boxes of the
+     * geometries, and is loaded instead of being built when the same geometries are built again
+     * (e.g. by the next run of the same scene). The multithreading, the layout and the quantization
+     * are not a part of the hash - a cached hierarchy is laid out again as needed
+     *
+     * @param directory the cache directory (created when the first hierarchy is stored)
+     * @return this builder
+     */
+    public BVHBuilder setCacheDirectory(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Cache directory must not be null");
+        }
+        this.cacheDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Set the maximal amount of geometries in a leaf
+     *
+     * @param leafSize maximal amount of geometries in a leaf
+     * @return this builder
+     */
+    public BVHBuilder setLeafSize(int leafSize) {
+        if (leafSize <= 0) {
+            throw new IllegalArgumentException("Leaf size must be positive");
+        }
+        this.leafSize = leafSize;
+        return this;
+    }
+
+    /**
+     * Set the amount of the bins along an axis for evaluation of the splits (SAH mode)
+     *
+     * @param binsCount amount of the bins
+     * @return this builder
+     */
+    public BVHBuilder setBinsCount(int binsCount) {
+        if (binsCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 bins");
+        }
+        this.binsCount = binsCount;
+        return this;
+    }
+
+    /**
+     * Set multithreaded building
+     *
+     * @param threads number of building threads, 0 for building in the calling thread
+     * @return this builder
+     */
+    public BVHBuilder setMultithreading(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Number of threads must not be negative");
+        }
+        this.threadsCount = threads;
+        return this;
+    }
+
+    /**
+     * Gets the report of the last built hierarchy
+     *
+     * @return the report, or null if nothing has been built
+     */
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * Builds a hierarchy over the given bounded geometries
+     *
+     * @param geometries the geometries (must not be empty and must all be bounded)
+     * @return the hierarchy in the layout of the builder
+     */
+    BoundingVolumeHierarchy build(List<Intersectable> geometries) {
+        long start = System.nanoTime();
+
+        Intersectable[] array = null;
+        Path cacheFile = null;
+        if (cacheDirectory != null) {
+            array = geometries.toArray(new Intersectable[0]);
+            String parameters = buildMode + " " + leafSize + " " + binsCount;
+            cacheFile = cacheDirectory.resolve(BVHCache.key(parameters, geometries) + BVHCache.EXTENSION);
+            FlatBVH cached = BVHCache.load(cacheFile, array);
+            if (cached != null) return load(cached, start);
+        }
+
+        Item[] items = new Item[geometries.size()];
+        int i = 0;
+        for (Intersectable geometry : geometries)
+            items[i++] = new Item(geometry, geometry.getBoundingBox());
+
+        BVHNode root;
+        ForkJoinPool pool = threadsCount == 0 ? null : new ForkJoinPool(threadsCount);
+        try {
+            if (buildMode == BVHBuildMode.LBVH) {
+                long[] codes = sortByMortonCodes(items, pool);
+                root = pool == null ? emit(items, codes, 0, items.length)
+                        : pool.invoke(new EmitTask(this, items, codes, 0, items.length));
+            } else {
+                root = pool == null ? build(items, 0, items.length)
+                        : pool.invoke(new BuildTask(this, items, 0, items.length));
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+
+        BoundingVolumeHierarchy hierarchy = layOut(root);
+        if (cacheFile != null)
+            BVHCache.save(cacheFile, hierarchy instanceof FlatBVH flat ? flat : new FlatBVH(root), array);
+
+        double buildTime = (System.nanoTime() - start) / 1e6;
+        int[] counters = new int[3]; // nodes, leaves, depth
+        double rootArea = root.box.surfaceArea();
+        double cost = collect(root, 1, rootArea == 0 ? 1 : rootArea, counters);
+        report = new Report(items.length, counters[0], counters[1], counters[2], cost, buildTime,
+                layout, hierarchy.getMemorySize(), false);
+        return hierarchy;
+    }
+
+    /**
+     * Lays out a built tree of nodes in the layout of the builder
+     *
+     * @param root the root of the tree
+     * @return the hierarchy in the layout of the builder
+     */
+    private BoundingVolumeHierarchy layOut(BVHNode root) {
+        return switch (layout) {
+            case TREE -> root;
+            case FLAT -> new FlatBVH(root);
+            case WIDE -> new WideBVH(root);
+            case QUANTIZED -> new QuantizedBVH(root, quantizationBits);
+        };
+    }
+
+    /**
+     * Completes loading of a cached hierarchy - lays it out in the layout of the builder and
+     * reports it
+     *
+     * @param cached the hierarchy loaded from the cache
+     * @param start  the start time of the loading in nanoseconds
+     * @return the hierarchy in the layout of the builder
+     */
+    private BoundingVolumeHierarchy load(FlatBVH cached, long start) {
+        BoundingVolumeHierarchy hierarchy = layout == BVHLayout.FLAT ? cached : layOut(cached.toTree());
+        int nodes = cached.links.length / 2, leaves = 0;
+        for (int i = 1; i < cached.links.length; i += 2)
+            if (cached.links[i] > 0) ++leaves;
+        report = new Report(cached.geometries.length, nodes, leaves, cached.depth, cached.getCost(),
+                (System.nanoTime() - start) / 1e6, layout, hierarchy.getMemorySize(), true);
+        return hierarchy;
+    }
+
+    /**
+     * Task building a sub-hierarchy over a range of items in a fork/join pool (SAH mode).
+     * Tasks are never serialized, so their state is transient
+     */
+    private static final class BuildTask extends RecursiveTask<BVHNode> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The builder whose parameters the sub-hierarchy is built with
+         */
+        private final transient BVHBuilder builder;
+        /**
+         * The items
+         */
+        private final transient Item[] items;
+        /**
+         * First index of the range (included)
+         */
+        private final int from;
+        /**
+         * Last index of the range (excluded)
+         */
+        private final int to;
+
+        /**
+         * Constructor of a task for a range of items
+         *
+         * @param builder the builder whose parameters the sub-hierarchy is built with
+         * @param items   the items
+         * @param from    first index of the range (included)
+         * @param to      last index of the range (excluded)
+         */
+        BuildTask(BVHBuilder builder, Item[] items, int from, int to) {
+            this.builder = builder;
+            this.items = items;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BVHNode compute() {
+            return builder.build(items, from, to);
+        }
+    }
+
+    /**
+     * Task emitting a sub-hierarchy over a range of items sorted by Morton codes in a fork/join pool (LBVH mode).
+     * Tasks are never serialized, so their state is transient
+     */
+    private static final class EmitTask extends RecursiveTask<BVHNode> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The builder whose parameters the sub-hierarchy is emitted with
+         */
+        private final transient BVHBuilder builder;
+        /**
+         * The items sorted by their Morton codes
+         */
+        private final transient Item[] items;
+        /**
+         * The sorted Morton codes of the items
+         */
+        private final transient long[] codes;
+        /**
+         * First index of the range (included)
+         */
+        private final int from;
+        /**
+         * Last index of the range (excluded)
+         */
+        private final int to;
+
+        /**
+         * Constructor of a task for a range of items
+         *
+         * @param builder the builder whose parameters the sub-hierarchy is emitted with
+         * @param items   the items sorted by their Morton codes
+         * @param codes   the sorted Morton codes of the items
+         * @param from    first index of the range (included)
+         * @param to      last index of the range (excluded)
+         */
+        EmitTask(BVHBuilder builder, Item[] items, long[] codes, int from, int to) {
+            this.builder = builder;
+            this.items = items;
+            this.codes = codes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BVHNode compute() {
+            return builder.emit(items, codes, from, to);
+        }
+    }
+
+    /**
+     * Builds a sub-hierarchy over a range of items (SAH mode). The subtrees of big ranges are built in
+     * parallel when the building is multithreaded (then the method runs in a fork/join pool)
+     *
+     * @param items the items
+     * @param from  first index of the range (included)
+     * @param to    last index of the range (excluded)
+     * @return the root node of the sub-hierarchy
+     */
+    private BVHNode build(Item[] items, int from, int to) {
+        int n = to - from;
+
+        // small nodes have a bin per geometry at most
+        int bins = Math.min(binsCount, Math.max(2, n));
+
+        // bounds of the boxes and of the centroids
+        double[] bounds = new double[6 * bins];
+        emptyBounds(bounds, 0);
+        double[] centroidMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] centroidMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = from; i < to; ++i) {
+            includeBounds(bounds, 0, items[i].box);
+            for (int axis = 0; axis < 3; ++axis) {
+                double center = items[i].center(axis);
+                if (center < centroidMin[axis]) centroidMin[axis] = center;
+                if (center > centroidMax[axis]) centroidMax[axis] = center;
+            }
+        }
+        BoundingBox box = n == 1 ? items[from].box
+                : new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+        if (n == 1) return leaf(box, items, from, to);
+
+        // evaluation of the splits between the bins along all the axes
+        double parentArea = box.surfaceArea();
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1;
+        int bestBin = -1;
+        int[] counts = new int[bins];
+        double[] sweep = new double[6];
+        double[] rightAreas = new double[bins];
+        for (int axis = 0; axis < 3; ++axis) {
+            double extent = centroidMax[axis] - centroidMin[axis];
+            if (extent <= 0) continue; // all the centroids are in the same position along the axis
+
+            Arrays.fill(counts, 0);
+            for (int b = 0; b < bins; ++b) emptyBounds(bounds, b);
+            double scale = bins / extent;
+            for (int i = from; i < to; ++i) {
+                int b = bin(items[i].center(axis), centroidMin[axis], scale, bins);
+                ++counts[b];
+                includeBounds(bounds, b, items[i].box);
+            }
+
+            // right sweep - area of the bins (b, bins)
+            emptyBounds(sweep, 0);
+            for (int b = bins - 1; b > 0; --b) {
+                unionBounds(sweep, bounds, b);
+                rightAreas[b] = area(sweep);
+            }
+            // left sweep - area of the bins [0, b] and evaluation of the split after bin b
+            emptyBounds(sweep, 0);
+            int leftCount = 0;
+            for (int b = 0; b < bins - 1; ++b) {
+                unionBounds(sweep, bounds, b);
+                leftCount += counts[b];
+                if (leftCount == 0 || leftCount == n) continue;
+                double cost = TRAVERSAL_COST + (area(sweep) * leftCount + rightAreas[b + 1] * (n - leftCount)) / parentArea;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = b;
+                }
+            }
+        }
+
+        // splitting is not worth it (or box is flat) - make a leaf if it is small enough
+        if (n <= leafSize && (bestAxis < 0 || bestCost >= n || parentArea == 0))
+            return leaf(box, items, from, to);
+
+        // split by the best bin, or in the middle if the centroids can't be separated
+        int mid = bestAxis < 0 ? from + n / 2
+                : partition(items, from, to, bestAxis, centroidMin[bestAxis],
+                bins / (centroidMax[bestAxis] - centroidMin[bestAxis]), bins, bestBin);
+
+        if (n >= PARALLEL_THRESHOLD && threadsCount > 0) {
+            BuildTask left = new BuildTask(this, items, from, mid);
+            left.fork();
+            BVHNode right = build(items, mid, to);
+            return new BVHNode(left.join(), right);
+        }
+        return new BVHNode(build(items, from, mid), build(items, mid, to));
+    }
+
+    /**
+     * Emits a sub-hierarchy over a range of items sorted by Morton codes (LBVH mode).
+     * The range is split where the highest bit that differs between its first and last codes
+     * changes, so every node covers a cell of the Z-order curve. The subtrees of big ranges are
+     * emitted in parallel when the building is multithreaded
+     *
+     * @param items the items sorted by their Morton codes
+     * @param codes the sorted Morton codes of the items
+     * @param from  first index of the range (included)
+     * @param to    last index of the range (excluded)
+     * @return the root node of the sub-hierarchy
+     */
+    private BVHNode emit(Item[] items, long[] codes, int from, int to) {
+        int n = to - from;
+        if (n <= leafSize) {
+            BoundingBox box = items[from].box;
+            for (int i = from + 1; i < to; ++i) box = box.union(items[i].box);
+            return leaf(box, items, from, to);
+        }
+
+        int mid;
+        long difference = codes[from] ^ codes[to - 1];
+        if (difference == 0) {
+            mid = from + n / 2; // same codes - split in the middle
+        } else {
+            // binary search of the first code having the highest differing bit set
+            long bit = Long.highestOneBit(difference);
+            int low = from, high = to - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if ((codes[middle] & bit) == 0) low = middle + 1;
+                else high = middle;
+            }
+            mid = low;
+        }
+
+        if (n >= PARALLEL_THRESHOLD && threadsCount > 0) {
+            EmitTask left = new EmitTask(this, items, codes, from, mid);
+            left.fork();
+            BVHNode right = emit(items, codes, mid, to);
+            return new BVHNode(left.join(), right);
+        }
+        return new BVHNode(emit(items, codes, from, mid), emit(items, codes, mid, to));
+    }
+
+    /**
+     * Sorts items in place by the Morton codes of their centroids within the centroids bounds.
+     * The codes are 30-bit (10 bits per axis) for up to a million items and 63-bit (21 bits per axis)
+     * for more items
+     *
+     * @param items the items to be sorted
+     * @param pool  the fork/join pool of the build, or null for single-threaded build
+     * @return the sorted Morton codes of the items
+     */
+    private static long[] sortByMortonCodes(Item[] items, ForkJoinPool pool) {
+        int n = items.length;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Item item : items) {
+            minX = Math.min(minX, item.centerX);
+            minY = Math.min(minY, item.centerY);
+            minZ = Math.min(minZ, item.centerZ);
+            maxX = Math.max(maxX, item.centerX);
+            maxY = Math.max(maxY, item.centerY);
+            maxZ = Math.max(maxZ, item.centerZ);
+        }
+
+        int bits = n <= SHORT_CODES_LIMIT ? SHORT_CODE_BITS : LONG_CODE_BITS;
+        double cells = (1 << bits) - 1;
+        double x0 = minX, y0 = minY, z0 = minZ;
+        double scaleX = maxX > minX ? cells / (maxX - minX) : 0;
+        double scaleY = maxY > minY ? cells / (maxY - minY) : 0;
+        double scaleZ = maxZ > minZ ? cells / (maxZ - minZ) : 0;
+
+        long[] codes = new long[n];
+        int[] order = new int[n];
+        int chunks = chunksCount(n, pool);
+        forEachChunk(pool, chunks, chunk -> {
+            for (int i = chunkStart(n, chunks, chunk), end = chunkStart(n, chunks, chunk + 1); i < end; ++i) {
+                Item item = items[i];
+                codes[i] = spreadBits((long) ((item.centerX - x0) * scaleX)) << 2
+                        | spreadBits((long) ((item.centerY - y0) * scaleY)) << 1
+                        | spreadBits((long) ((item.centerZ - z0) * scaleZ));
+                order[i] = i;
+            }
+        });
+
+        radixSort(codes, order, 3 * bits, pool);
+
+        Item[] unsorted = items.clone();
+        for (int i = 0; i < n; ++i) items[i] = unsorted[order[i]];
+        return codes;
+    }
+
+    /**
+     * Spreads the lower 21 bits of a number so that there are two zero bits between every two bits
+     *
+     * @param value the number
+     * @return the spread bits
+     */
+    static long spreadBits(long value) {
+        value &= 0x1fffffL;
+        value = (value | value << 32) & 0x1f00000000ffffL;
+        value = (value | value << 16) & 0x1f0000ff0000ffL;
+        value = (value | value << 8) & 0x100f00f00f00f00fL;
+        value = (value | value << 4) & 0x10c30c30c30c30c3L;
+        value = (value | value << 2) & 0x1249249249249249L;
+        return value;
+    }
+
+    /**
+     * Sorts keys together with values by least significant digit radix sort with 8-bit digits.
+     * The histograms and the scattering of every pass are calculated in parallel over chunks
+     * of the keys when a pool is given
+     *
+     * @param keys   the keys to be sorted
+     * @param values the values moved together with the keys
+     * @param bits   amount of the significant bits of the keys
+     * @param pool   the fork/join pool, or null for sorting in the calling thread
+     */
+    static void radixSort(long[] keys, int[] values, int bits, ForkJoinPool pool) {
+        int n = keys.length;
+        int chunks = chunksCount(n, pool);
+        long[] sourceKeys = keys, targetKeys = new long[n];
+        int[] sourceValues = values, targetValues = new int[n];
+        int[][] histograms = new int[chunks][256];
+
+        for (int shift = 0; shift < bits; shift += 8) {
+            int digitShift = shift;
+            long[] fromKeys = sourceKeys, toKeys = targetKeys;
+            int[] fromValues = sourceValues, toValues = targetValues;
+
+            forEachChunk(pool, chunks, chunk -> {
+                int[] histogram = histograms[chunk];
+                Arrays.fill(histogram, 0);
+                for (int i = chunkStart(n, chunks, chunk), end = chunkStart(n, chunks, chunk + 1); i < end; ++i)
+                    ++histogram[(int) (fromKeys[i] >>> digitShift) & 0xff];
+            });
+
+            // offsets of the digits of every chunk - all the chunks of a digit precede the next digit
+            int offset = 0;
+            for (int digit = 0; digit < 256; ++digit)
+                for (int[] histogram : histograms) {
+                    int count = histogram[digit];
+                    histogram[digit] = offset;
+                    offset += count;
+                }
+
+            forEachChunk(pool, chunks, chunk -> {
+                int[] positions = histograms[chunk];
+                for (int i = chunkStart(n, chunks, chunk), end = chunkStart(n, chunks, chunk + 1); i < end; ++i) {
+                    int position = positions[(int) (fromKeys[i] >>> digitShift) & 0xff]++;
+                    toKeys[position] = fromKeys[i];
+                    toValues[position] = fromValues[i];
+                }
+            });
+
+            sourceKeys = toKeys;
+            targetKeys = fromKeys;
+            sourceValues = toValues;
+            targetValues = fromValues;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, n);
+            System.arraycopy(sourceValues, 0, values, 0, n);
+        }
+    }
+
+    /**
+     * Calculates the amount of the chunks for processing an array in parallel
+     *
+     * @param n    the length of the array
+     * @param pool the fork/join pool, or null for processing in the calling thread
+     * @return the amount of the chunks
+     */
+    private static int chunksCount(int n, ForkJoinPool pool) {
+        return pool == null ? 1 : Math.max(1, Math.min(4 * pool.getParallelism(), n / SORT_CHUNK_SIZE));
+    }
+
+    /**
+     * Calculates the first index of a chunk of an array
+     *
+     * @param n      the length of the array
+     * @param chunks the amount of the chunks
+     * @param chunk  the chunk index
+     * @return the first index of the chunk (the length of the array for the chunk after the last one)
+     */
+    private static int chunkStart(int n, int chunks, int chunk) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    /**
+     * Processes the chunks of an array, in parallel if a pool is given
+     *
+     * @param pool   the fork/join pool, or null for processing in the calling thread
+     * @param chunks the amount of the chunks
+     * @param action the action processing a chunk by its index
+     */
+    private static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer action) {
+        if (pool == null || chunks == 1) {
+            for (int chunk = 0; chunk < chunks; ++chunk) action.accept(chunk);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, chunks).parallel().forEach(action)));
+        }
+    }
+
+    /**
+     * Calculates the bin of a centroid coordinate
+     *
+     * @param center the centroid coordinate
+     * @param min    minimal centroid coordinate in the node
+     * @param scale  amount of the bins divided by the extent of the centroids
+     * @param bins   amount of the bins
+     * @return the bin index
+     */
+    private static int bin(double center, double min, double scale, int bins) {
+        return Math.min(bins - 1, (int) ((center - min) * scale));
+    }
+
+    /**
+     * Partitions a range of items in place so that the items whose centroids fall into the bins
+     * up to the given one precede the rest
+     *
+     * @param items   the items
+     * @param from    first index of the range (included)
+     * @param to      last index of the range (excluded)
+     * @param axis    the split axis index
+     * @param min     minimal centroid coordinate in the node along the axis
+     * @param scale   amount of the bins divided by the extent of the centroids along the axis
+     * @param bins    amount of the bins
+     * @param lastBin the last bin of the left part
+     * @return index of the first item of the right part
+     */
+    private static int partition(Item[] items, int from, int to, int axis, double min, double scale,
+                                 int bins, int lastBin) {
+        int i = from, j = to - 1;
+        while (i <= j) {
+            if (bin(items[i].center(axis), min, scale, bins) <= lastBin) {
+                ++i;
+            } else {
+                Item item = items[i];
+                items[i] = items[j];
+                items[j--] = item;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Creates a leaf for a range of items
+     *
+     * @param box   the box bounding the items
+     * @param items the items
+     * @param from  first index of the range (included)
+     * @param to    last index of the range (excluded)
+     * @return the leaf node
+     */
+    private static BVHNode leaf(BoundingBox box, Item[] items, int from, int to) {
+        Intersectable[] geometries = new Intersectable[to - from];
+        for (int i = from; i < to; ++i) geometries[i - from] = items[i].geometry;
+        return new BVHNode(box, geometries);
+    }
+
+    /**
+     * Sets the bounds of a bin to the empty box
+     *
+     * @param bounds the bounds of the bins (6 numbers per bin - minimal then maximal coordinates)
+     * @param bin    the bin index
+     */
+    private static void emptyBounds(double[] bounds, int bin) {
+        int i = 6 * bin;
+        bounds[i] = bounds[i + 1] = bounds[i + 2] = Double.POSITIVE_INFINITY;
+        bounds[i + 3] = bounds[i + 4] = bounds[i + 5] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Extends the bounds of a bin to include a box
+     *
+     * @param bounds the bounds of the bins
+     * @param bin    the bin index
+     * @param box    the box
+     */
+    private static void includeBounds(double[] bounds, int bin, BoundingBox box) {
+        int i = 6 * bin;
+        bounds[i] = Math.min(bounds[i], box.minX);
+        bounds[i + 1] = Math.min(bounds[i + 1], box.minY);
+        bounds[i + 2] = Math.min(bounds[i + 2], box.minZ);
+        bounds[i + 3] = Math.max(bounds[i + 3], box.maxX);
+        bounds[i + 4] = Math.max(bounds[i + 4], box.maxY);
+        bounds[i + 5] = Math.max(bounds[i + 5], box.maxZ);
+    }
+
+    /**
+     * Extends the bounds of a sweep to include the bounds of a bin
+     *
+     * @param sweep  the bounds of the sweep (6 numbers)
+     * @param bounds the bounds of the bins
+     * @param bin    the bin index
+     */
+    private static void unionBounds(double[] sweep, double[] bounds, int bin) {
+        int i = 6 * bin;
+        for (int k = 0; k < 3; ++k) {
+            sweep[k] = Math.min(sweep[k], bounds[i + k]);
+            sweep[k + 3] = Math.max(sweep[k + 3], bounds[i + k + 3]);
+        }
+    }
+
+    /**
+     * Calculates the surface area of bounds
+     *
+     * @param sweep the bounds (6 numbers - minimal then maximal coordinates)
+     * @return the surface area, or 0 for empty bounds
+     */
+    private static double area(double[] sweep) {
+        double dx = sweep[3] - sweep[0], dy = sweep[4] - sweep[1], dz = sweep[5] - sweep[2];
+        if (dx < 0 || dy < 0 || dz < 0) return 0;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Collects the statistics of a sub-hierarchy for the report
+     *
+     * @param node     root of the sub-hierarchy
+     * @param depth    depth of the node
+     * @param rootArea surface area of the root box
+     * @param counters amount of the nodes, amount of the leaves and maximal depth, updated by the method
+     * @return the SAH cost of the sub-hierarchy
+     */
+    private static double collect(BVHNode node, int depth, double rootArea, int[] counters) {
+        ++counters[0];
+        double probability = node.box.surfaceArea() / rootArea;
+        if (node.geometries != null) {
+            ++counters[1];
+            counters[2] = Math.max(counters[2], depth);
+            return probability * node.geometries.length;
+        }
+        return probability * TRAVERSAL_COST
+                + collect(node.left, depth + 1, rootArea, counters)
+                + collect(node.right, depth + 1, rootArea, counters);
+    }
+}
@@ -0,0 +1,214 @@
+package geometries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class BVHCache stores built hierarchies in binary files, so that a hierarchy over the same
+ * geometries is loaded instead of being built again (see {@link BVHBuilder#setCacheDirectory(Path)}).
+ * A file holds the arrays of a {@link FlatBVH} and the order of its geometries as indices into
+ * the list of the geometries given to the builder. It is named by a content hash of the build
+ * parameters and of the class and the bounding box of every geometry - the hierarchy depends on
+ * nothing else, so it is valid for any geometries with the same boxes.
+ * The files are read by mapping them into memory ({@link FileChannel#map})
+ *
+ * @author Maor Atari
+ */
+final class BVHCache {
+    /**
+     * The first bytes of a cache file - "BVH" and the version of the format
+     */
+    private static final int MAGIC = 0x42564801;
+    /**
+     * Size of the header of a cache file - magic, amount of the nodes, amount of the geometries, depth
+     */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    /**
+     * Extension of the cache files
+     */
+    static final String EXTENSION = ".bvh";
+
+    /**
+     * Private constructor - the class has only static methods
+     */
+    private BVHCache() {
+    }
+
+    /**
+     * Calculates the content hash identifying a hierarchy
+     *
+     * @param parameters the build parameters the hierarchy depends on
+     * @param geometries the geometries in the order given to the builder
+     * @return the hash as a hexadecimal string
+     */
+    static String key(String parameters, List<Intersectable> geometries) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        digest.update(parameters.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.allocate(6 * Double.BYTES + Integer.BYTES);
+        for (Intersectable geometry : geometries) {
+            BoundingBox box = geometry.getBoundingBox();
+            buffer.clear();
+            buffer.putInt(geometry.getClass().getName().hashCode())
+                    .putDouble(box.minX).putDouble(box.minY).putDouble(box.minZ)
+                    .putDouble(box.maxX).putDouble(box.maxY).putDouble(box.maxZ);
+            digest.update(buffer.flip());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Loads a hierarchy from a cache file
+     *
+     * @param file       the cache file
+     * @param geometries the geometries in the order given to the builder
+     * @return the hierarchy, or null if there is no such file or it does not match the geometries
+     * @throws IllegalStateException if the file can not be read
+     */
+    static FlatBVH load(Path file, Intersectable[] geometries) {
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int magic = buffer.getInt(), nodes = buffer.getInt(), count = buffer.getInt(), depth = buffer.getInt();
+            if (magic != MAGIC || nodes <= 0 || count != geometries.length || depth <= 0
+                    || size != HEADER_SIZE + (long) nodes * (6 * Double.BYTES + 2 * Integer.BYTES)
+                    + (long) count * Integer.BYTES) return null;
+
+            double[] bounds = new double[6 * nodes];
+            int[] links = new int[2 * nodes];
+            int[] order = new int[count];
+            buffer.asDoubleBuffer().get(bounds);
+            buffer.position(buffer.position() + bounds.length * Double.BYTES);
+            buffer.asIntBuffer().get(links).get(order);
+
+            if (!isPermutation(order) || !isTree(links, count, depth)) return null;
+            for (double bound : bounds)
+                if (Double.isNaN(bound)) return null;
+
+            Intersectable[] ordered = new Intersectable[count];
+            for (int k = 0; k < count; ++k) ordered[k] = geometries[order[k]];
+            return new FlatBVH(bounds, links, ordered, depth);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can not read BVH cache file " + file, e);
+        }
+    }
+
+    /**
+     * Checks that an array holds every index of its range exactly once
+     *
+     * @param order the array
+     * @return true if the array is a permutation of [0, length)
+     */
+    private static boolean isPermutation(int[] order) {
+        boolean[] seen = new boolean[order.length];
+        for (int index : order) {
+            if (index < 0 || index >= order.length || seen[index]) return false;
+            seen[index] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that links describe a hierarchy in the layout of {@link FlatBVH} - every node is
+     * reached exactly once from the root, the second child of an inner node follows its first one,
+     * the leaves cover every geometry exactly once and the tree is not deeper than stated
+     *
+     * @param links the links of the nodes
+     * @param count the amount of the geometries
+     * @param depth the stated depth of the hierarchy
+     * @return true if the links are consistent
+     */
+    private static boolean isTree(int[] links, int count, int depth) {
+        int nodes = links.length / 2;
+        boolean[] covered = new boolean[count];
+        int visited = 0;
+        // pending nodes with their levels
+        int[] stack = new int[2 * (depth + 1)];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = 1;
+        while (top > 0) {
+            int level = stack[--top], node = stack[--top];
+            if (level > depth) return false;
+            ++visited;
+            int first = links[2 * node], amount = links[2 * node + 1];
+            if (amount > 0) {
+                if (first < 0 || first > count - amount) return false;
+                for (int k = first; k < first + amount; ++k) {
+                    if (covered[k]) return false;
+                    covered[k] = true;
+                }
+            } else {
+                // the first child follows its parent and precedes the second one
+                if (amount < 0 || first <= node + 1 || first >= nodes || top + 4 > stack.length) return false;
+                stack[top++] = first;
+                stack[top++] = level + 1;
+                stack[top++] = node + 1;
+                stack[top++] = level + 1;
+            }
+        }
+        if (visited != nodes) return false;
+        for (boolean geometry : covered)
+            if (!geometry) return false;
+        return true;
+    }
+
+    /**
+     * Saves a hierarchy into a cache file. The file is written under a temporary name and then
+     * renamed, so concurrent renderers never see a partially written file
+     *
+     * @param file       the cache file
+     * @param bvh        the hierarchy
+     * @param geometries the geometries in the order given to the builder
+     * @throws IllegalStateException if the file can not be written
+     */
+    static void save(Path file, FlatBVH bvh, Intersectable[] geometries) {
+        Map<Intersectable, Integer> indices = new IdentityHashMap<>();
+        for (int k = 0; k < geometries.length; ++k) indices.put(geometries[k], k);
+
+        int nodes = bvh.links.length / 2;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+                + nodes * (6 * Double.BYTES + 2 * Integer.BYTES) + bvh.geometries.length * Integer.BYTES);
+        buffer.putInt(MAGIC).putInt(nodes).putInt(bvh.geometries.length).putInt(bvh.depth);
+        buffer.asDoubleBuffer().put(bvh.bounds);
+        buffer.position(buffer.position() + bvh.bounds.length * Double.BYTES);
+        buffer.asIntBuffer().put(bvh.links);
+        buffer.position(buffer.position() + bvh.links.length * Integer.BYTES);
+        for (Intersectable geometry : bvh.geometries) buffer.putInt(indices.get(geometry));
+        buffer.flip();
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can not write BVH cache file " + file, e);
+        }
+    }
+}
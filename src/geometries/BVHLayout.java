@@ -0,0 +1,28 @@
+package geometries;
+
+/**
+ * Bounding volume hierarchy memory layouts enumeration
+ * Defines the available representations of a hierarchy built by {@link BVHBuilder}
+ *
+ * @author Maor Atari
+ */
+public enum BVHLayout {
+    /**
+     * Tree of node objects referencing their children
+     */
+    TREE,
+    /**
+     * Flat primitive arrays in depth-first order, traversed by an explicit stack
+     */
+    FLAT,
+    /**
+     * 4-wide hierarchy with the bounds of the children of a node stored in structure-of-arrays
+     * form and tested at once
+     */
+    WIDE,
+    /**
+     * Compressed hierarchy with the bounds of the children of a node quantized to 8 or 16 bits
+     * relative to the box of the node
+     */
+    QUANTIZED
+}
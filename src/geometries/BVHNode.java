@@ -0,0 +1,228 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Ray;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.*;
+
+/**
+ * Class BVHNode is a node of a bounding volume hierarchy (BVH) over bounded geometries.
+ * The hierarchy is built by {@link BVHBuilder}.
+ * Inner nodes hold two children, leaves hold a small array of geometries.
+ *
+ * @author Maor Atari
+ */
+final class BVHNode implements BoundingVolumeHierarchy {
+    /**
+     * The box bounding all the geometries under the node (updated by {@link #refit()})
+     */
+    BoundingBox box;
+    /**
+     * The left child (null in a leaf)
+     */
+    final BVHNode left;
+    /**
+     * The right child (null in a leaf)
+     */
+    final BVHNode right;
+    /**
+     * The geometries of a leaf (null in an inner node)
+     */
+    final Intersectable[] geometries;
+
+    /**
+     * Constructor for an inner node
+     *
+     * @param left  the left child
+     * @param right the right child
+     */
+    BVHNode(BVHNode left, BVHNode right) {
+        this.box = left.box.union(right.box);
+        this.left = left;
+        this.right = right;
+        this.geometries = null;
+    }
+
+    /**
+     * Constructor for a leaf
+     *
+     * @param box        the box bounding the geometries
+     * @param geometries the geometries of the leaf
+     */
+    BVHNode(BoundingBox box, Intersectable[] geometries) {
+        this.box = box;
+        this.left = null;
+        this.right = null;
+        this.geometries = geometries;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    public long getMemorySize() {
+        // the node references its box, its children and its geometries, the box holds 6 coordinates
+        long size = objectSize(4L * REFERENCE_SIZE) + objectSize(6 * 8);
+        return geometries == null ? size + left.getMemorySize() + right.getMemorySize()
+                : size + arraySize(geometries.length, REFERENCE_SIZE);
+    }
+
+    @Override
+    public double getCost() {
+        double rootArea = box.surfaceArea();
+        return cost(rootArea == 0 ? 1 : rootArea);
+    }
+
+    /**
+     * Calculates the SAH cost of the sub-hierarchy under the node
+     *
+     * @param rootArea surface area of the root box
+     * @return the SAH cost of the sub-hierarchy
+     */
+    private double cost(double rootArea) {
+        double probability = box.surfaceArea() / rootArea;
+        return geometries != null ? probability * geometries.length
+                : probability * BVHBuilder.TRAVERSAL_COST + left.cost(rootArea) + right.cost(rootArea);
+    }
+
+    @Override
+    public void refit() {
+        if (geometries == null) {
+            left.refit();
+            right.refit();
+            box = left.box.union(right.box);
+            return;
+        }
+        BoundingBox result = BoundingBox.EMPTY;
+        for (Intersectable geometry : geometries) result = result.union(geometry.getBoundingBox());
+        box = result;
+    }
+
+    /**
+     * Collects the intersections of a ray with the geometries under the node.
+     * The ray head and inverse direction are precalculated by the caller once per ray
+     *
+     * @param ray    the ray
+     * @param ox     X coordinate of the ray head
+     * @param oy     Y coordinate of the ray head
+     * @param oz     Z coordinate of the ray head
+     * @param invX   inverse of X component of the ray direction
+     * @param invY   inverse of Y component of the ray direction
+     * @param invZ   inverse of Z component of the ray direction
+     * @param result the list of the intersections found so far (may be null)
+     * @return the list of the intersections found so far, or null if there are none
+     */
+    @Override
+    public List<Intersection> calculateIntersections(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     List<Intersection> result) {
+        if (!box.intersects(ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY)) return result;
+
+        if (geometries == null) {
+            result = left.calculateIntersections(ray, ox, oy, oz, invX, invY, invZ, result);
+            return right.calculateIntersections(ray, ox, oy, oz, invX, invY, invZ, result);
+        }
+
+        for (Intersectable geometry : geometries) {
+            List<Intersection> intersections = geometry.calculateIntersections(ray);
+            if (intersections != null) {
+                if (result == null) result = new LinkedList<>();
+                result.addAll(intersections);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Intersection calculateClosestIntersection(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     double maxDistance) {
+        return calculateClosestIntersection(ray, ox, oy, oz, invX, invY, invZ, new double[]{maxDistance});
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the geometries under the node.
+     * Children are visited front-to-back and the ones whose boxes are entered beyond
+     * the closest intersection found so far are skipped
+     *
+     * @param ray             the ray
+     * @param ox              X coordinate of the ray head
+     * @param oy              Y coordinate of the ray head
+     * @param oz              Z coordinate of the ray head
+     * @param invX            inverse of X component of the ray direction
+     * @param invY            inverse of Y component of the ray direction
+     * @param invZ            inverse of Z component of the ray direction
+     * @param closestDistance holder of the distance to the closest intersection found so far,
+     *                        updated when a closer intersection is found
+     * @return the closest intersection under the node if it is closer than the given distance, otherwise null
+     */
+    Intersection calculateClosestIntersection(Ray ray, double ox, double oy, double oz,
+                                              double invX, double invY, double invZ,
+                                              double[] closestDistance) {
+        if (geometries != null) {
+            Intersection closest = null;
+            for (Intersectable geometry : geometries) {
+                Intersection intersection = geometry.calculateClosestIntersection(ray, closestDistance[0]);
+                if (intersection != null) {
+                    closest = intersection;
+                    closestDistance[0] = ray.getP0().distance(intersection.point);
+                }
+            }
+            return closest;
+        }
+
+        double nearDistance = left.box.entryDistance(ox, oy, oz, invX, invY, invZ, closestDistance[0]);
+        double farDistance = right.box.entryDistance(ox, oy, oz, invX, invY, invZ, closestDistance[0]);
+        BVHNode near = left, far = right;
+        if (farDistance < nearDistance) {
+            near = right;
+            far = left;
+            double distance = nearDistance;
+            nearDistance = farDistance;
+            farDistance = distance;
+        }
+
+        Intersection closest = null;
+        if (nearDistance != Double.POSITIVE_INFINITY)
+            closest = near.calculateClosestIntersection(ray, ox, oy, oz, invX, invY, invZ, closestDistance);
+        // the far child is skipped if the intersection found in the near one is closer than its box
+        if (farDistance < closestDistance[0]) {
+            Intersection intersection = far.calculateClosestIntersection(ray, ox, oy, oz, invX, invY, invZ,
+                    closestDistance);
+            if (intersection != null) closest = intersection;
+        }
+        return closest;
+    }
+
+    /**
+     * Checks whether a ray intersects any geometry under the node closer than a given distance
+     *
+     * @param ray         the ray
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return true if there is an intersection closer than maxDistance
+     */
+    @Override
+    public boolean hasIntersection(Ray ray, double ox, double oy, double oz,
+                                   double invX, double invY, double invZ, double maxDistance) {
+        if (!box.intersects(ox, oy, oz, invX, invY, invZ, maxDistance)) return false;
+
+        if (geometries == null)
+            return left.hasIntersection(ray, ox, oy, oz, invX, invY, invZ, maxDistance)
+                    || right.hasIntersection(ray, ox, oy, oz, invX, invY, invZ, maxDistance);
+
+        for (Intersectable geometry : geometries)
+            if (geometry.hasIntersection(ray, maxDistance)) return true;
+        return false;
+    }
+}
@@ -0,0 +1,242 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+
+/**
+ * Class BoundingBox represents an axis-aligned bounding box (AABB) in Cartesian
+ * 3-Dimensional coordinate system. The box is immutable.
+ * Unbounded geometries (e.g. planes) are represented by the {@link #INFINITE} box
+ * and an empty collection of geometries is represented by the {@link #EMPTY} box.
+ *
+ * @author Maor Atari
+ */
+public class BoundingBox {
+    /**
+     * The box covering the whole space - used for unbounded geometries
+     */
+    public static final BoundingBox INFINITE = new BoundingBox(
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    /**
+     * The box containing nothing - neutral element of {@link #union(BoundingBox)}
+     */
+    public static final BoundingBox EMPTY = new BoundingBox(
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+    /**
+     * Minimal X coordinate of the box
+     */
+    public final double minX;
+    /**
+     * Minimal Y coordinate of the box
+     */
+    public final double minY;
+    /**
+     * Minimal Z coordinate of the box
+     */
+    public final double minZ;
+    /**
+     * Maximal X coordinate of the box
+     */
+    public final double maxX;
+    /**
+     * Maximal Y coordinate of the box
+     */
+    public final double maxY;
+    /**
+     * Maximal Z coordinate of the box
+     */
+    public final double maxZ;
+
+    /**
+     * Constructor to initialize BoundingBox with its minimal and maximal coordinates
+     *
+     * @param minX minimal X coordinate
+     * @param minY minimal Y coordinate
+     * @param minZ minimal Z coordinate
+     * @param maxX maximal X coordinate
+     * @param maxY maximal Y coordinate
+     * @param maxZ maximal Z coordinate
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructor to initialize the smallest BoundingBox containing all the given points
+     *
+     * @param points the points to be enclosed by the box
+     */
+    public BoundingBox(Point... points) {
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            double x = p.getX(), y = p.getY(), z = p.getZ();
+            if (x < x0) x0 = x;
+            if (y < y0) y0 = y;
+            if (z < z0) z0 = z;
+            if (x > x1) x1 = x;
+            if (y > y1) y1 = y;
+            if (z > z1) z1 = z;
+        }
+        minX = x0;
+        minY = y0;
+        minZ = z0;
+        maxX = x1;
+        maxY = y1;
+        maxZ = z1;
+    }
+
+    /**
+     * Checks whether the box is finite in all the directions
+     *
+     * @return true if all the coordinates of the box are finite
+     */
+    public boolean isBounded() {
+        return Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(minZ)
+                && Double.isFinite(maxX) && Double.isFinite(maxY) && Double.isFinite(maxZ);
+    }
+
+    /**
+     * Checks whether the box contains nothing
+     *
+     * @return true if the box is empty
+     */
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY || minZ > maxZ;
+    }
+
+    /**
+     * Calculates the smallest box containing both this box and another box
+     *
+     * @param other the other box
+     * @return new box enclosing both boxes
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(
+                Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Calculates the common part of this box and another box
+     *
+     * @param other the other box
+     * @return new box enclosed by both boxes (empty if they do not overlap)
+     */
+    public BoundingBox intersection(BoundingBox other) {
+        return new BoundingBox(
+                Math.max(minX, other.minX), Math.max(minY, other.minY), Math.max(minZ, other.minZ),
+                Math.min(maxX, other.maxX), Math.min(maxY, other.maxY), Math.min(maxZ, other.maxZ));
+    }
+
+    /**
+     * Calculates the surface area of the box, used by the surface area heuristic (SAH)
+     *
+     * @return the surface area, or 0 for an empty box
+     */
+    public double surfaceArea() {
+        if (isEmpty()) return 0;
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Gets the center coordinate of the box along an axis
+     *
+     * @param axis the axis index - 0 for X, 1 for Y, 2 for Z
+     * @return the center coordinate along the axis
+     */
+    public double center(int axis) {
+        return switch (axis) {
+            case 0 -> (minX + maxX) / 2;
+            case 1 -> (minY + maxY) / 2;
+            default -> (minZ + maxZ) / 2;
+        };
+    }
+
+    /**
+     * Checks whether a ray intersects the box (slab test)
+     *
+     * @param ray the ray
+     * @return true if the ray hits the box in front of its head
+     */
+    public boolean intersects(Ray ray) {
+        return intersects(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Checks whether a ray intersects the box (slab test) closer than a given distance
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return true if the ray hits the box between its head and the given distance
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        return intersects(ray.getHeadX(), ray.getHeadY(), ray.getHeadZ(),
+                1 / ray.getDirX(), 1 / ray.getDirY(), 1 / ray.getDirZ(), maxDistance);
+    }
+
+    /**
+     * Checks whether a ray intersects the box (slab test) closer than a given distance.
+     * The ray is given by its precalculated head coordinates and inverse direction
+     * so that the caller may reuse them for many boxes
+     *
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return true if the ray hits the box between its head and the given distance
+     */
+    public boolean intersects(double ox, double oy, double oz,
+                              double invX, double invY, double invZ, double maxDistance) {
+        return entryDistance(ox, oy, oz, invX, invY, invZ, maxDistance) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the distance along a ray at which the ray enters the box
+     *
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the entry distance (0 if the head is inside the box),
+     * or positive infinity if the box is missed within the given distance
+     */
+    public double entryDistance(double ox, double oy, double oz,
+                                double invX, double invY, double invZ, double maxDistance) {
+        if (isEmpty()) return Double.POSITIVE_INFINITY;
+
+        // branchless slab test - min/max are compiled into conditional-free instructions.
+        // A ray lying on a slab plane and parallel to it produces NaN, which fails the
+        // final comparison - such a ray may only graze the geometries in the box
+        double tx1 = (minX - ox) * invX, tx2 = (maxX - ox) * invX;
+        double ty1 = (minY - oy) * invY, ty2 = (maxY - oy) * invY;
+        double tz1 = (minZ - oz) * invZ, tz2 = (maxZ - oz) * invZ;
+
+        double tNear = Math.max(Math.max(0, Math.min(tx1, tx2)), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+        double tFar = Math.min(Math.min(maxDistance, Math.max(tx1, tx2)), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+
+        return tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox{" + "min=(" + minX + "," + minY + "," + minZ + ")"
+                + ", max=(" + maxX + "," + maxY + "," + maxZ + ")}";
+    }
+}
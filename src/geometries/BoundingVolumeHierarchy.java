@@ -0,0 +1,125 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Ray;
+
+import java.util.List;
+
+/**
+ * Interface BoundingVolumeHierarchy is the common interface of the memory layouts of a bounding
+ * volume hierarchy (BVH) built by {@link BVHBuilder}.
+ * The ray head and inverse direction are precalculated by the caller once per ray and passed
+ * to the queries as plain numbers
+ *
+ * @author Maor Atari
+ */
+interface BoundingVolumeHierarchy {
+    /**
+     * Estimated size of an object reference in bytes (compressed references)
+     */
+    int REFERENCE_SIZE = 4;
+    /**
+     * Estimated size of an object header in bytes (compressed class pointers)
+     */
+    int HEADER_SIZE = 12;
+
+    /**
+     * Estimates the memory used by an object, aligned to 8 bytes like in the common JVMs
+     *
+     * @param fieldsSize the total size of the fields of the object in bytes
+     * @return the size of the object in bytes
+     */
+    static long objectSize(long fieldsSize) {
+        return (HEADER_SIZE + fieldsSize + 7) & ~7L;
+    }
+
+    /**
+     * Estimates the memory used by an array, aligned to 8 bytes like in the common JVMs
+     *
+     * @param length      the length of the array
+     * @param elementSize the size of an element in bytes
+     * @return the size of the array in bytes
+     */
+    static long arraySize(int length, int elementSize) {
+        return objectSize(4 + (long) length * elementSize);
+    }
+
+    /**
+     * Gets the box bounding all the geometries of the hierarchy
+     *
+     * @return the box of the root
+     */
+    BoundingBox getBoundingBox();
+
+    /**
+     * Estimates the memory used by the hierarchy - its nodes and the references to the geometries,
+     * without the geometries themselves
+     *
+     * @return the size of the hierarchy in bytes
+     */
+    long getMemorySize();
+
+    /**
+     * Calculates the SAH cost of the hierarchy - expected amount of traversed nodes and
+     * intersected geometries per ray that hits the root box
+     *
+     * @return the SAH cost
+     */
+    double getCost();
+
+    /**
+     * Recalculates the bounds of the nodes bottom-up from the current boxes of the geometries
+     * after they moved. The topology of the hierarchy is kept, so its quality may degrade
+     */
+    void refit();
+
+    /**
+     * Collects the intersections of a ray with the geometries of the hierarchy
+     *
+     * @param ray    the ray
+     * @param ox     X coordinate of the ray head
+     * @param oy     Y coordinate of the ray head
+     * @param oz     Z coordinate of the ray head
+     * @param invX   inverse of X component of the ray direction
+     * @param invY   inverse of Y component of the ray direction
+     * @param invZ   inverse of Z component of the ray direction
+     * @param result the list of the intersections found so far (may be null)
+     * @return the list of the intersections found so far, or null if there are none
+     */
+    List<Intersection> calculateIntersections(Ray ray, double ox, double oy, double oz,
+                                              double invX, double invY, double invZ,
+                                              List<Intersection> result);
+
+    /**
+     * Finds the closest intersection of a ray with the geometries of the hierarchy
+     *
+     * @param ray         the ray
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return the closest intersection, or null if there are no intersections closer than maxDistance
+     */
+    Intersection calculateClosestIntersection(Ray ray, double ox, double oy, double oz,
+                                              double invX, double invY, double invZ,
+                                              double maxDistance);
+
+    /**
+     * Checks whether a ray intersects any geometry of the hierarchy closer than a given distance
+     *
+     * @param ray         the ray
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return true if there is an intersection closer than maxDistance
+     */
+    boolean hasIntersection(Ray ray, double ox, double oy, double oz,
+                            double invX, double invY, double invZ, double maxDistance);
+}
@@ -6,6 +6,7 @@ import primitives.Vector;
 
 import java.util.List;
 
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 /**
@@ -20,6 +21,11 @@ public class Cylinder extends Tube {
      */
     private final double height;
 
+    /**
+     * The box bounding the cylinder
+     */
+    private final BoundingBox boundingBox;
+
     /**
      * Constructor to initialize Cylinder with axis ray, radius and height
      *
@@ -30,6 +36,22 @@ public class Cylinder extends Tube {
     public Cylinder(Ray axisRay, double radius, double height) {
         super(axisRay, radius);
         this.height = height;
+
+        // The box bounds the two bases - the extent of a base along an axis is radius*sqrt(1 - dir_i^2)
+        double aX = axisRay.getDirX(), aY = axisRay.getDirY(), aZ = axisRay.getDirZ();
+        double eX = radius * Math.sqrt(Math.max(0, 1 - aX * aX));
+        double eY = radius * Math.sqrt(Math.max(0, 1 - aY * aY));
+        double eZ = radius * Math.sqrt(Math.max(0, 1 - aZ * aZ));
+        double bX = axisRay.getHeadX(), bY = axisRay.getHeadY(), bZ = axisRay.getHeadZ();
+        double tX = bX + aX * height, tY = bY + aY * height, tZ = bZ + aZ * height;
+        boundingBox = new BoundingBox(
+                Math.min(bX, tX) - eX, Math.min(bY, tY) - eY, Math.min(bZ, tZ) - eZ,
+                Math.max(bX, tX) + eX, Math.max(bY, tY) + eY, Math.max(bZ, tZ) + eZ);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
     }
 
     @Override
@@ -57,8 +79,98 @@ public class Cylinder extends Tube {
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        // For now, return null (no intersections calculated)
-        // This can be implemented in future stages if needed
-        return null;
+        double[] distances = new double[4];
+        int count = distances(ray, distances);
+        if (count == 0) return null;
+        Intersection[] intersections = new Intersection[count];
+        for (int i = 0; i < count; ++i)
+            intersections[i] = new Intersection(this, ray.getPoint(distances[i]));
+        return List.of(intersections);
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        double[] distances = new double[4];
+        return distances(ray, distances) > 0 && distances[0] < maxDistance
+                ? new Intersection(this, ray.getPoint(distances[0])) : null;
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        double[] distances = new double[4];
+        return distances(ray, distances) > 0 && distances[0] < maxDistance;
+    }
+
+    /**
+     * Calculates the distances from the ray head to the intersections in front of it with
+     * the lateral surface between the bases and with the two bases.
+     * Intersections on the rims of the bases are not counted
+     *
+     * @param ray       the ray to check intersection with
+     * @param distances array of (at least) four numbers to be filled by the distances in ascending order
+     * @return the amount of the intersections
+     */
+    private int distances(Ray ray, double[] distances) {
+        double aX = axisRay.getDirX(), aY = axisRay.getDirY(), aZ = axisRay.getDirZ();
+        double vX = ray.getDirX(), vY = ray.getDirY(), vZ = ray.getDirZ();
+        double dX = ray.getHeadX() - axisRay.getHeadX();
+        double dY = ray.getHeadY() - axisRay.getHeadY();
+        double dZ = ray.getHeadZ() - axisRay.getHeadZ();
+        // Heights (along the axis) of the ray head and of a step along the ray
+        double va = vX * aX + vY * aY + vZ * aZ;
+        double da = dX * aX + dY * aY + dZ * aZ;
+
+        // Lateral surface - keep the intersections in front of the ray head and between the bases
+        int found = surfaceDistances(ray, distances);
+        int count = 0;
+        for (int i = 0; i < found; ++i) {
+            double t = distances[i];
+            double h = da + t * va;
+            if (t > 0 && alignZero(h) > 0 && alignZero(h - height) < 0)
+                distances[count++] = t;
+        }
+
+        // Bases - the ray is not parallel to them
+        if (!isZero(va)) {
+            count = addBaseDistance(0, dX, dY, dZ, vX, vY, vZ, da, va, distances, count);
+            count = addBaseDistance(height, dX, dY, dZ, vX, vY, vZ, da, va, distances, count);
+        }
+
+        // Sort the few distances (insertion sort)
+        for (int i = 1; i < count; ++i) {
+            double t = distances[i];
+            int j = i;
+            for (; j > 0 && distances[j - 1] > t; --j) distances[j] = distances[j - 1];
+            distances[j] = t;
+        }
+        return count;
+    }
+
+    /**
+     * Adds the distance to the intersection of a ray with a base if the intersection is in front of
+     * the ray head and strictly inside the base
+     *
+     * @param h         height of the base along the axis (0 or the cylinder height)
+     * @param dX        X component of the vector from the axis head to the ray head
+     * @param dY        Y component of the vector from the axis head to the ray head
+     * @param dZ        Z component of the vector from the axis head to the ray head
+     * @param vX        X component of the ray direction
+     * @param vY        Y component of the ray direction
+     * @param vZ        Z component of the ray direction
+     * @param da        height of the ray head along the axis
+     * @param va        product of the ray direction and the axis direction (not zero)
+     * @param distances the distances found so far
+     * @param count     the amount of the distances found so far
+     * @return the new amount of the distances
+     */
+    private int addBaseDistance(double h, double dX, double dY, double dZ, double vX, double vY, double vZ,
+                                double da, double va, double[] distances, int count) {
+        double t = alignZero((h - da) / va);
+        if (t <= 0) return count;
+        // Vector from the axis head to the intersection, its height along the axis is h
+        double pX = dX + t * vX, pY = dY + t * vY, pZ = dZ + t * vZ;
+        if (alignZero(pX * pX + pY * pY + pZ * pZ - h * h - radiusSquared) < 0)
+            distances[count++] = t;
+        return count;
     }
 }
\ No newline at end of file
@@ -0,0 +1,385 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.arraySize;
+
+/**
+ * Class FlatBVH is a bounding volume hierarchy (BVH) stored in flat primitive arrays.
+ * The nodes are laid out in depth-first order, so the first child of an inner node
+ * immediately follows it and only the index of the second child is stored. The geometries
+ * of the leaves are stored contiguously in the same order.
+ * The hierarchy is traversed with an explicit stack which is reused by every thread,
+ * so the traversal itself allocates no objects
+ *
+ * @author Maor Atari
+ */
+final class FlatBVH implements BoundingVolumeHierarchy {
+    /**
+     * Bounds of the nodes - 6 numbers per node: minimal X, Y, Z then maximal X, Y, Z
+     */
+    final double[] bounds;
+    /**
+     * Links of the nodes - 2 numbers per node: for an inner node the index of the second child
+     * and 0, for a leaf the index of its first geometry and the amount of its geometries
+     */
+    final int[] links;
+    /**
+     * The geometries of the leaves in depth-first order
+     */
+    final Intersectable[] geometries;
+    /**
+     * The box bounding all the geometries
+     */
+    private BoundingBox box;
+    /**
+     * The depth of the deepest leaf (1 for a single leaf)
+     */
+    final int depth;
+    /**
+     * Traversal stack of every thread
+     */
+    private final ThreadLocal<TraversalStack> stacks;
+
+    /**
+     * Traversal stack of nodes with the distances at which the ray enters them
+     */
+    private static final class TraversalStack {
+        /**
+         * Indices of the nodes
+         */
+        final int[] nodes;
+        /**
+         * Entry distances of the nodes
+         */
+        final double[] distances;
+
+        /**
+         * Constructor of a stack
+         *
+         * @param size the maximal amount of the nodes in the stack
+         */
+        TraversalStack(int size) {
+            nodes = new int[size];
+            distances = new double[size];
+        }
+    }
+
+    /**
+     * Constructor flattening a tree of nodes
+     *
+     * @param root the root of the tree
+     */
+    FlatBVH(BVHNode root) {
+        int[] counters = new int[2]; // nodes, geometries
+        depth = count(root, counters);
+        bounds = new double[6 * counters[0]];
+        links = new int[2 * counters[0]];
+        geometries = new Intersectable[counters[1]];
+        box = root.box;
+        fill(root, 0, new int[1]);
+        // a node pops one entry and pushes at most two, so the stack never exceeds the depth + 1
+        stacks = ThreadLocal.withInitial(() -> new TraversalStack(depth + 1));
+    }
+
+    /**
+     * Constructor of a hierarchy from its arrays (e.g. loaded by {@link BVHCache})
+     *
+     * @param bounds     bounds of the nodes in the form of {@link #bounds}
+     * @param links      links of the nodes in the form of {@link #links}
+     * @param geometries the geometries of the leaves in depth-first order
+     * @param depth      the depth of the deepest leaf
+     */
+    FlatBVH(double[] bounds, int[] links, Intersectable[] geometries, int depth) {
+        this.bounds = bounds;
+        this.links = links;
+        this.geometries = geometries;
+        this.depth = depth;
+        box = new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+        stacks = ThreadLocal.withInitial(() -> new TraversalStack(depth + 1));
+    }
+
+    /**
+     * Counts the nodes and the geometries of a tree
+     *
+     * @param node     root of the tree
+     * @param counters amount of the nodes and amount of the geometries, updated by the method
+     * @return the depth of the tree
+     */
+    private static int count(BVHNode node, int[] counters) {
+        ++counters[0];
+        if (node.geometries != null) {
+            counters[1] += node.geometries.length;
+            return 1;
+        }
+        return 1 + Math.max(count(node.left, counters), count(node.right, counters));
+    }
+
+    /**
+     * Writes a tree into the arrays in depth-first order
+     *
+     * @param node          root of the tree
+     * @param index         index of the root in the arrays
+     * @param nextGeometry  index of the next free geometry slot, updated by the method
+     * @return index after the last node of the tree
+     */
+    private int fill(BVHNode node, int index, int[] nextGeometry) {
+        BoundingBox nodeBox = node.box;
+        int i = 6 * index;
+        bounds[i] = nodeBox.minX;
+        bounds[i + 1] = nodeBox.minY;
+        bounds[i + 2] = nodeBox.minZ;
+        bounds[i + 3] = nodeBox.maxX;
+        bounds[i + 4] = nodeBox.maxY;
+        bounds[i + 5] = nodeBox.maxZ;
+
+        if (node.geometries != null) {
+            links[2 * index] = nextGeometry[0];
+            links[2 * index + 1] = node.geometries.length;
+            for (Intersectable geometry : node.geometries) geometries[nextGeometry[0]++] = geometry;
+            return index + 1;
+        }
+
+        int second = fill(node.left, index + 1, nextGeometry);
+        links[2 * index] = second;
+        links[2 * index + 1] = 0;
+        return fill(node.right, second, nextGeometry);
+    }
+
+    /**
+     * Converts the hierarchy back into a tree of nodes, e.g. for laying it out in another form
+     *
+     * @return the root of the tree
+     */
+    BVHNode toTree() {
+        return toTree(0);
+    }
+
+    /**
+     * Converts a sub-hierarchy into a tree of nodes
+     *
+     * @param node the root node index of the sub-hierarchy
+     * @return the root of the tree
+     */
+    private BVHNode toTree(int node) {
+        int first = links[2 * node], count = links[2 * node + 1];
+        if (count == 0) return new BVHNode(toTree(node + 1), toTree(first));
+        int i = 6 * node;
+        return new BVHNode(new BoundingBox(bounds[i], bounds[i + 1], bounds[i + 2], bounds[i + 3], bounds[i + 4],
+                bounds[i + 5]), Arrays.copyOfRange(geometries, first, first + count));
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    public long getMemorySize() {
+        return arraySize(bounds.length, 8) + arraySize(links.length, 4) + arraySize(geometries.length, REFERENCE_SIZE);
+    }
+
+    /**
+     * Calculates the surface area of the box of a node
+     *
+     * @param node the node index
+     * @return the surface area
+     */
+    private double area(int node) {
+        int i = 6 * node;
+        double dx = bounds[i + 3] - bounds[i], dy = bounds[i + 4] - bounds[i + 1], dz = bounds[i + 5] - bounds[i + 2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    @Override
+    public double getCost() {
+        double cost = 0;
+        for (int node = 0, nodes = links.length / 2; node < nodes; ++node) {
+            int count = links[2 * node + 1];
+            cost += area(node) * (count == 0 ? BVHBuilder.TRAVERSAL_COST : count);
+        }
+        double rootArea = area(0);
+        return cost / (rootArea == 0 ? 1 : rootArea);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The children of a node follow it in the depth-first order, so the nodes are refitted
+     * in the reverse order of the arrays
+     */
+    @Override
+    public void refit() {
+        for (int node = links.length / 2 - 1; node >= 0; --node) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+            int count = links[2 * node + 1];
+            if (count == 0) {
+                int l = 6 * (node + 1), r = 6 * links[2 * node];
+                minX = Math.min(bounds[l], bounds[r]);
+                minY = Math.min(bounds[l + 1], bounds[r + 1]);
+                minZ = Math.min(bounds[l + 2], bounds[r + 2]);
+                maxX = Math.max(bounds[l + 3], bounds[r + 3]);
+                maxY = Math.max(bounds[l + 4], bounds[r + 4]);
+                maxZ = Math.max(bounds[l + 5], bounds[r + 5]);
+            } else {
+                for (int k = links[2 * node], end = k + count; k < end; ++k) {
+                    BoundingBox geometryBox = geometries[k].getBoundingBox();
+                    minX = Math.min(minX, geometryBox.minX);
+                    minY = Math.min(minY, geometryBox.minY);
+                    minZ = Math.min(minZ, geometryBox.minZ);
+                    maxX = Math.max(maxX, geometryBox.maxX);
+                    maxY = Math.max(maxY, geometryBox.maxY);
+                    maxZ = Math.max(maxZ, geometryBox.maxZ);
+                }
+            }
+            int i = 6 * node;
+            bounds[i] = minX;
+            bounds[i + 1] = minY;
+            bounds[i + 2] = minZ;
+            bounds[i + 3] = maxX;
+            bounds[i + 4] = maxY;
+            bounds[i + 5] = maxZ;
+        }
+        box = new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+    }
+
+    /**
+     * Calculates the distance along a ray at which the ray enters the box of a node
+     * (branchless slab test, see {@link BoundingBox#entryDistance})
+     *
+     * @param node        the node index
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the entry distance, or positive infinity if the box is missed within the given distance
+     */
+    private double entryDistance(int node, double ox, double oy, double oz,
+                                 double invX, double invY, double invZ, double maxDistance) {
+        int i = 6 * node;
+        double tx1 = (bounds[i] - ox) * invX, tx2 = (bounds[i + 3] - ox) * invX;
+        double ty1 = (bounds[i + 1] - oy) * invY, ty2 = (bounds[i + 4] - oy) * invY;
+        double tz1 = (bounds[i + 2] - oz) * invZ, tz2 = (bounds[i + 5] - oz) * invZ;
+
+        double tNear = Math.max(Math.max(0, Math.min(tx1, tx2)), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+        double tFar = Math.min(Math.min(maxDistance, Math.max(tx1, tx2)), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+
+        return tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public List<Intersection> calculateIntersections(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     List<Intersection> result) {
+        int[] stack = stacks.get().nodes;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(node, ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY)
+                    == Double.POSITIVE_INFINITY) continue;
+
+            int count = links[2 * node + 1];
+            if (count == 0) {
+                stack[top++] = links[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int k = links[2 * node], end = k + count; k < end; ++k) {
+                List<Intersection> intersections = geometries[k].calculateIntersections(ray);
+                if (intersections != null) {
+                    if (result == null) result = new LinkedList<>();
+                    result.addAll(intersections);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Intersection calculateClosestIntersection(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     double maxDistance) {
+        TraversalStack stack = stacks.get();
+        int[] nodes = stack.nodes;
+        double[] distances = stack.distances;
+        Point p0 = ray.getP0();
+        Intersection closest = null;
+
+        int top = 0;
+        nodes[top] = 0;
+        distances[top++] = entryDistance(0, ox, oy, oz, invX, invY, invZ, maxDistance);
+        while (top > 0) {
+            --top;
+            // the node is skipped if the closest intersection found so far is closer than its box
+            if (distances[top] >= maxDistance) continue;
+            int node = nodes[top];
+
+            int count = links[2 * node + 1];
+            if (count > 0) {
+                for (int k = links[2 * node], end = k + count; k < end; ++k) {
+                    Intersection intersection = geometries[k].calculateClosestIntersection(ray, maxDistance);
+                    if (intersection != null) {
+                        closest = intersection;
+                        maxDistance = p0.distance(intersection.point);
+                    }
+                }
+                continue;
+            }
+
+            // children are visited front-to-back - the nearer one is pushed last
+            int first = node + 1, second = links[2 * node];
+            double firstDistance = entryDistance(first, ox, oy, oz, invX, invY, invZ, maxDistance);
+            double secondDistance = entryDistance(second, ox, oy, oz, invX, invY, invZ, maxDistance);
+            if (firstDistance > secondDistance) {
+                int node1 = first;
+                first = second;
+                second = node1;
+                double distance = firstDistance;
+                firstDistance = secondDistance;
+                secondDistance = distance;
+            }
+            if (secondDistance != Double.POSITIVE_INFINITY) {
+                nodes[top] = second;
+                distances[top++] = secondDistance;
+            }
+            if (firstDistance != Double.POSITIVE_INFINITY) {
+                nodes[top] = first;
+                distances[top++] = firstDistance;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public boolean hasIntersection(Ray ray, double ox, double oy, double oz,
+                                   double invX, double invY, double invZ, double maxDistance) {
+        int[] stack = stacks.get().nodes;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(node, ox, oy, oz, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+
+            int count = links[2 * node + 1];
+            if (count == 0) {
+                stack[top++] = links[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int k = links[2 * node], end = k + count; k < end; ++k)
+                if (geometries[k].hasIntersection(ray, maxDistance)) return true;
+        }
+        return false;
+    }
+}
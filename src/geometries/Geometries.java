@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.Point;
 import primitives.Ray;
 
 import java.util.LinkedList;
@@ -9,6 +10,12 @@ import java.util.List;
  * Class Geometries represents a collection of intersectable geometries
  * Extends the Intersectable abstract class using the Composite design pattern
  * Allows treating individual geometries and collections of geometries uniformly
+ * <p>
+ * By default all the geometries are tested one by one for every ray. Calling
+ * {@link #buildBVH()} switches the collection to a bounding volume hierarchy
+ * (BVH) over its bounded geometries, while unbounded geometries (e.g. planes)
+ * are kept in a separate list that is always tested. The build parameters may be
+ * set by {@link #buildBVH(BVHBuilder)}.
  *
  * @author Maor Atari
  */
@@ -20,6 +27,40 @@ public class Geometries extends Intersectable {
      */
     private final List<Intersectable> geometries;
 
+    /**
+     * The box bounding all the geometries in the collection
+     * (null if it has to be recalculated from the geometries)
+     */
+    private BoundingBox boundingBox = BoundingBox.EMPTY;
+
+    /**
+     * The collections containing this collection, notified when it changes
+     */
+    private final List<Geometries> parents = new LinkedList<>();
+
+    /**
+     * The bounding volume hierarchy over the bounded geometries
+     * (null if the hierarchy has not been built)
+     */
+    private BoundingVolumeHierarchy bvh = null;
+
+    /**
+     * The builder of the hierarchy, used again when a refitted hierarchy has to be rebuilt
+     * (null if the hierarchy has not been built)
+     */
+    private BVHBuilder builder = null;
+
+    /**
+     * The SAH cost of the hierarchy when it was built
+     */
+    private double builtCost = 0;
+
+    /**
+     * The unbounded geometries which are not a part of the hierarchy
+     * (null if the hierarchy has not been built)
+     */
+    private List<Intersectable> unbounded = null;
+
     /**
      * Default constructor
      */
@@ -41,6 +82,10 @@ public class Geometries extends Intersectable {
     /**
      * Add geometries to the collection
      * Filters out null values to maintain collection integrity
+     * Adding geometries discards the bounding volume hierarchy (if it has been built),
+     * {@link #buildBVH()} should be called again after the collection is complete.
+     * The collections containing this one are changed as well - their boxes are recalculated
+     * and their hierarchies are discarded
      *
      * @param geometries geometries to add to the collection (varargs)
      */
@@ -49,9 +94,95 @@ public class Geometries extends Intersectable {
             for (Intersectable geometry : geometries) {
                 if (geometry != null) {
                     this.geometries.add(geometry);
+                    if (geometry instanceof Geometries nested) nested.parents.add(this);
                 }
             }
         }
+        invalidate();
+    }
+
+    /**
+     * Discards the box and the hierarchy of the collection and of all the collections containing it,
+     * since the boxes of their geometries may have grown
+     */
+    private void invalidate() {
+        boundingBox = null;
+        bvh = null;
+        unbounded = null;
+        for (Geometries parent : parents) parent.invalidate();
+    }
+
+    /**
+     * Builds a bounding volume hierarchy (BVH) over the bounded geometries of the
+     * collection using the surface area heuristic (SAH) with the default build parameters.
+     * Unbounded geometries are kept aside and are always tested
+     *
+     * @return this Geometries object for method chaining
+     */
+    public Geometries buildBVH() {
+        return buildBVH(new BVHBuilder());
+    }
+
+    /**
+     * Builds a bounding volume hierarchy (BVH) over the bounded geometries of the
+     * collection by the given builder. Unbounded geometries are kept aside and are always tested
+     *
+     * @param builder the builder holding the build parameters
+     * @return this Geometries object for method chaining
+     */
+    public Geometries buildBVH(BVHBuilder builder) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> infinite = new LinkedList<>();
+        for (Intersectable geometry : geometries) {
+            if (geometry.getBoundingBox().isBounded()) bounded.add(geometry);
+            else infinite.add(geometry);
+        }
+        unbounded = infinite;
+        bvh = bounded.isEmpty() ? null : builder.build(bounded);
+        this.builder = builder;
+        builtCost = bvh == null ? 0 : bvh.getCost();
+        return this;
+    }
+
+    /**
+     * Refits the bounding volume hierarchy after the geometries of the collection moved (e.g. the
+     * transformations of their instances changed between the frames of an animation): the bounds
+     * are recalculated bottom-up and the topology is kept, which is much faster than a rebuild.
+     * Moving geometries degrade the hierarchy, so when the SAH cost of the refitted hierarchy
+     * exceeds the cost of the built one by more than the rebuild threshold of its builder
+     * (see {@link BVHBuilder#setRebuildThreshold(double)}), it is rebuilt.
+     * The box of the collection is recalculated as well, so nested collections must be refitted
+     * before the collections containing them
+     *
+     * @return this Geometries object for method chaining
+     */
+    public Geometries refitBVH() {
+        boundingBox = null;
+        if (bvh == null) return this;
+
+        bvh.refit();
+        if (bvh.getCost() > builtCost * builder.getRebuildThreshold()) buildBVH(builder);
+        return this;
+    }
+
+    /**
+     * Gets the geometries of the collection, used by acceleration structures of the package
+     *
+     * @return the list of the geometries
+     */
+    List<Intersectable> getGeometries() {
+        return geometries;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox box = boundingBox;
+        if (box == null) {
+            box = BoundingBox.EMPTY;
+            for (Intersectable geometry : geometries) box = box.union(geometry.getBoundingBox());
+            boundingBox = box;
+        }
+        return box;
     }
 
     /**
@@ -65,6 +196,8 @@ public class Geometries extends Intersectable {
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
         if (ray == null) return null;
 
+        if (unbounded != null) return calculateBVHIntersections(ray);
+
         List<Intersection> result = null;
 
         for (Intersectable geometry : geometries) {
@@ -80,4 +213,69 @@ public class Geometries extends Intersectable {
 
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculates intersections using the bounding volume hierarchy and the list of
+     * unbounded geometries
+     *
+     * @param ray the ray to intersect with the geometries
+     * @return list of intersection objects, or null if no intersections found
+     */
+    private List<Intersection> calculateBVHIntersections(Ray ray) {
+        List<Intersection> result = null;
+
+        for (Intersectable geometry : unbounded) {
+            List<Intersection> intersections = geometry.calculateIntersections(ray);
+            if (intersections != null) {
+                if (result == null) result = new LinkedList<>();
+                result.addAll(intersections);
+            }
+        }
+
+        if (bvh == null) return result;
+
+        return bvh.calculateIntersections(ray, ray.getHeadX(), ray.getHeadY(), ray.getHeadZ(),
+                1 / ray.getDirX(), 1 / ray.getDirY(), 1 / ray.getDirZ(), result);
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        if (ray == null) return null;
+
+        Point p0 = ray.getP0();
+        Intersection closest = null;
+
+        // every geometry is asked only for intersections closer than the closest one so far
+        for (Intersectable geometry : unbounded != null ? unbounded : geometries) {
+            Intersection intersection = geometry.calculateClosestIntersection(ray, maxDistance);
+            if (intersection != null) {
+                closest = intersection;
+                maxDistance = p0.distance(intersection.point);
+            }
+        }
+
+        if (unbounded == null || bvh == null) return closest;
+
+        double ox = ray.getHeadX(), oy = ray.getHeadY(), oz = ray.getHeadZ();
+        double invX = 1 / ray.getDirX(), invY = 1 / ray.getDirY(), invZ = 1 / ray.getDirZ();
+        if (!bvh.getBoundingBox().intersects(ox, oy, oz, invX, invY, invZ, maxDistance)) return closest;
+
+        Intersection intersection = bvh.calculateClosestIntersection(ray, ox, oy, oz, invX, invY, invZ,
+                maxDistance);
+        return intersection != null ? intersection : closest;
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        if (ray == null) return false;
+
+        // any intersection is enough - stop at the first blocker
+        for (Intersectable geometry : unbounded != null ? unbounded : geometries)
+            if (geometry.hasIntersection(ray, maxDistance)) return true;
+
+        if (unbounded == null || bvh == null) return false;
+
+        return bvh.hasIntersection(ray, ray.getHeadX(), ray.getHeadY(), ray.getHeadZ(),
+                1 / ray.getDirX(), 1 / ray.getDirY(), 1 / ray.getDirZ(), maxDistance);
+    }
+}
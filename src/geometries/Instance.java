@@ -0,0 +1,203 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.List;
+
+/**
+ * Class Instance places a shared geometry in the scene by an affine transformation.
+ * The shared geometry (usually a {@link Geometries} collection with its own hierarchy) is
+ * defined once in its object space and referenced by any amount of instances, so the memory
+ * is proportional to the unique geometries and not to the amount of their copies.
+ * A ray is transformed into the object space of the instance, intersected with the shared
+ * geometry there, and the intersections are transformed back into the world space.
+ * Putting the instances into a {@link Geometries} collection with a hierarchy builds the
+ * top level of a two-level hierarchy
+ *
+ * @author Maor Atari
+ */
+public class Instance extends Intersectable {
+    /**
+     * The shared geometry in its object space
+     */
+    private final Intersectable geometry;
+    /**
+     * The transformation from the object space to the world space
+     */
+    private Transform transform;
+    /**
+     * The transformation from the world space to the object space
+     */
+    private Transform inverse;
+    /**
+     * The box bounding the transformed geometry in the world space
+     */
+    private BoundingBox boundingBox;
+
+    /**
+     * Constructor of an instance of a shared geometry
+     *
+     * @param geometry  the shared geometry
+     * @param transform the transformation from the object space of the geometry to the world space
+     * @throws IllegalArgumentException if the geometry or the transformation is null
+     */
+    public Instance(Intersectable geometry, Transform transform) {
+        if (geometry == null) {
+            throw new IllegalArgumentException("Geometry must not be null");
+        }
+        this.geometry = geometry;
+        setTransform(transform);
+    }
+
+    /**
+     * Gets the shared geometry
+     *
+     * @return the geometry in its object space
+     */
+    public Intersectable getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Gets the transformation of the instance
+     *
+     * @return the transformation from the object space to the world space
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Moves the instance by replacing its transformation, e.g. between the frames of an animation.
+     * The collections containing the instance must be refitted afterwards
+     * (see {@link Geometries#refitBVH()})
+     *
+     * @param transform the transformation from the object space of the geometry to the world space
+     * @return this instance
+     * @throws IllegalArgumentException if the transformation is null
+     */
+    public Instance setTransform(Transform transform) {
+        if (transform == null) {
+            throw new IllegalArgumentException("Transform must not be null");
+        }
+        this.transform = transform;
+        this.inverse = transform.inverse();
+        this.boundingBox = transformBox(geometry.getBoundingBox());
+        return this;
+    }
+
+    /**
+     * Calculates the world space box bounding the transformed corners of an object space box
+     *
+     * @param box the object space box
+     * @return the world space box
+     */
+    private BoundingBox transformBox(BoundingBox box) {
+        if (box.isEmpty()) return BoundingBox.EMPTY;
+        if (!box.isBounded()) return BoundingBox.INFINITE;
+        Point[] corners = new Point[8];
+        for (int i = 0; i < 8; ++i)
+            corners[i] = transform.transformPoint(new Point(
+                    (i & 1) == 0 ? box.minX : box.maxX,
+                    (i & 2) == 0 ? box.minY : box.maxY,
+                    (i & 4) == 0 ? box.minZ : box.maxZ));
+        return new BoundingBox(corners);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+
+    /**
+     * Transforms a ray into the object space
+     *
+     * @param ray       the world space ray
+     * @param direction the world space direction of the ray transformed into the object space
+     * @return the object space ray
+     */
+    private Ray toObject(Ray ray, Vector direction) {
+        return new Ray(inverse.transformPoint(ray.getP0()), direction);
+    }
+
+    /**
+     * Transforms an intersection found in the object space into the world space
+     *
+     * @param intersection the object space intersection
+     * @return the world space intersection
+     */
+    private Intersection toWorld(Intersection intersection) {
+        return new Intersection(intersection.geometry == null ? null : new InstancedGeometry(intersection.geometry),
+                transform.transformPoint(intersection.point));
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        List<Intersection> intersections = geometry.calculateIntersections(
+                toObject(ray, inverse.transformVector(ray.getDir())));
+        return intersections == null ? null : intersections.stream().map(this::toWorld).toList();
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        // the object space ray has a normalized direction, so the object space distances are
+        // the world space ones multiplied by the length of the transformed direction
+        Vector direction = inverse.transformVector(ray.getDir());
+        Intersection intersection = geometry.calculateClosestIntersection(toObject(ray, direction),
+                maxDistance * direction.length());
+        return intersection == null ? null : toWorld(intersection);
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        Vector direction = inverse.transformVector(ray.getDir());
+        return geometry.hasIntersection(toObject(ray, direction), maxDistance * direction.length());
+    }
+
+    /**
+     * The geometry intersected in the object space as seen in the world space - it keeps the
+     * emission and the material of the geometry and transforms its normals
+     */
+    private final class InstancedGeometry extends Geometry {
+        /**
+         * The geometry in the object space
+         */
+        private final Geometry original;
+
+        /**
+         * Constructor wrapping an intersected geometry
+         *
+         * @param original the geometry in the object space
+         */
+        InstancedGeometry(Geometry original) {
+            this.original = original;
+        }
+
+        @Override
+        public Color getEmission() {
+            return original.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return original.getMaterial();
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return transform.transformNormal(original.getNormal(inverse.transformPoint(point))).normalize();
+        }
+
+        @Override
+        protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+            List<Intersection> intersections = original.calculateIntersections(
+                    toObject(ray, inverse.transformVector(ray.getDir())));
+            return intersections == null ? null : intersections.stream().map(Instance.this::toWorld).toList();
+        }
+    }
+}
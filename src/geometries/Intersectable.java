@@ -1,10 +1,8 @@
 package geometries;
 
-import lighting.LightSource;
 import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
-import primitives.Vector;
 
 import java.util.List;
 
@@ -16,10 +14,37 @@ import java.util.List;
  */
 public abstract class Intersectable {
 
+    /**
+     * Whether the bounding box of a geometry is tested before its intersections are calculated
+     * Turned off by default
+     */
+    private static boolean boundingBoxCheck = false;
+
+    /**
+     * Turns on or off the bounding box pre-rejection: when it is on, rays which miss
+     * the bounding box of a geometry are rejected by a cheap slab test without
+     * calculating the intersections with the geometry itself
+     *
+     * @param check true to test the bounding boxes before the intersection calculation
+     */
+    public static void setBoundingBoxCheck(boolean check) {
+        boundingBoxCheck = check;
+    }
+
+    /**
+     * Checks whether the bounding box pre-rejection is turned on
+     *
+     * @return true if the bounding boxes are tested before the intersection calculation
+     */
+    public static boolean isBoundingBoxCheck() {
+        return boundingBoxCheck;
+    }
+
     /**
      * Static inner class representing an intersection point with additional data
      * This is a Passive Data Structure (PDS) containing intersection information
-     * Extended to include caching for lighting calculations
+     * The intersection is immutable, so it can be safely shared between threads and retained;
+     * the data calculated while shading it is kept by the ray tracer separately
      */
     public static class Intersection {
         /**
@@ -38,38 +63,6 @@ public abstract class Intersectable {
          */
         public final Material material;
 
-        // Cache fields for lighting calculations (not final, not initialized in class)
-
-        /**
-         * Direction vector of the ray that caused this intersection
-         */
-        public Vector rayDirection;
-
-        /**
-         * Normal vector to the geometry surface at intersection point
-         */
-        public Vector normal;
-
-        /**
-         * Dot product of ray direction and normal vector
-         */
-        public double nDotRayDir;
-
-        /**
-         * The light source being processed for this intersection
-         */
-        public LightSource lightSource;
-
-        /**
-         * Direction vector from light source to intersection point
-         */
-        public Vector lightDirection;
-
-        /**
-         * Dot product of light direction and normal vector
-         */
-        public double nDotLightDir;
-
         /**
          * Constructor for Intersection
          *
@@ -113,6 +106,16 @@ public abstract class Intersectable {
         }
     }
 
+    /**
+     * Returns the axis-aligned box bounding the geometry.
+     * Unbounded geometries (e.g. planes and tubes) use the default infinite box
+     *
+     * @return the bounding box of the geometry
+     */
+    public BoundingBox getBoundingBox() {
+        return BoundingBox.INFINITE;
+    }
+
     /**
      * Helper method for calculating intersections (to be implemented by subclasses)
      * Protected access for NVI pattern - cannot be private due to Java limitations with abstract methods
@@ -125,14 +128,103 @@ public abstract class Intersectable {
     /**
      * Calculates intersections between a ray and the geometry using NVI pattern
      * Final method that calls the helper method
+     * If the bounding box check is on, rays missing the bounding box are rejected first
      *
      * @param ray the ray to check intersection with
      * @return list of intersection objects, or null if there are no intersections
      */
     public final List<Intersection> calculateIntersections(Ray ray) {
+        if (boundingBoxCheck) {
+            BoundingBox box = getBoundingBox();
+            if (box.isBounded() && !box.intersects(ray)) return null;
+        }
         return calculateIntersectionsHelper(ray);
     }
 
+    /**
+     * Helper method for finding the closest intersection closer than a given distance
+     * The default implementation selects it from the list of all the intersections,
+     * subclasses should override it to avoid calculating and allocating the farther ones
+     *
+     * @param ray         the ray to check intersection with
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return the closest intersection, or null if there are no intersections closer than maxDistance
+     */
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        List<Intersection> intersections = calculateIntersectionsHelper(ray);
+        if (intersections == null) return null;
+
+        Point p0 = ray.getP0();
+        Intersection closest = null;
+        for (Intersection intersection : intersections) {
+            double distance = p0.distance(intersection.point);
+            if (distance < maxDistance) {
+                maxDistance = distance;
+                closest = intersection;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Finds the closest intersection between a ray and the geometry using NVI pattern
+     *
+     * @param ray the ray to check intersection with
+     * @return the closest intersection, or null if there are no intersections
+     */
+    public final Intersection calculateClosestIntersection(Ray ray) {
+        return calculateClosestIntersection(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the closest intersection between a ray and the geometry closer than a given distance
+     * using NVI pattern. Composite geometries shrink the distance while they find closer
+     * intersections, so that geometries beyond the closest intersection found so far are skipped
+     * If the bounding box check is on, rays missing the bounding box are rejected first
+     *
+     * @param ray         the ray to check intersection with
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return the closest intersection, or null if there are no intersections closer than maxDistance
+     */
+    public final Intersection calculateClosestIntersection(Ray ray, double maxDistance) {
+        if (boundingBoxCheck) {
+            BoundingBox box = getBoundingBox();
+            if (box.isBounded() && !box.intersects(ray, maxDistance)) return null;
+        }
+        return calculateClosestIntersectionHelper(ray, maxDistance);
+    }
+
+    /**
+     * Helper method for checking whether the ray intersects the geometry closer than a given distance
+     * The default implementation uses the closest intersection, subclasses should override
+     * it to stop at the first intersection found without creating it
+     *
+     * @param ray         the ray to check intersection with
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return true if there is an intersection closer than maxDistance
+     */
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        return calculateClosestIntersectionHelper(ray, maxDistance) != null;
+    }
+
+    /**
+     * Checks whether the ray intersects the geometry closer than a given distance using NVI pattern
+     * (any-hit query). It is intended for occlusion tests such as shadow rays, where the
+     * existence of any blocker matters but not which one is the closest
+     * If the bounding box check is on, rays missing the bounding box are rejected first
+     *
+     * @param ray         the ray to check intersection with
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return true if there is an intersection closer than maxDistance
+     */
+    public final boolean hasIntersection(Ray ray, double maxDistance) {
+        if (boundingBoxCheck) {
+            BoundingBox box = getBoundingBox();
+            if (box.isBounded() && !box.intersects(ray, maxDistance)) return false;
+        }
+        return hasIntersectionHelper(ray, maxDistance);
+    }
+
     /**
      * Finds intersection points between a ray and the geometry
      * This method maintains backward compatibility while using the new intersection system
@@ -0,0 +1,439 @@
+package geometries;
+
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.REFERENCE_SIZE;
+import static geometries.BoundingVolumeHierarchy.arraySize;
+
+/**
+ * Class KdTree is a kd-tree acceleration structure over a collection of geometries.
+ * The box bounding the bounded geometries is split recursively by axis-aligned planes chosen
+ * by the surface area heuristic (SAH) among the boundaries of the boxes of the geometries,
+ * with a bonus for the splits cutting off empty space - so dense regions are subdivided finely
+ * while large empty regions end up in few empty leaves. The leaves reference the geometries whose
+ * bounding boxes overlap them. Rays walk through the leaves front-to-back, and the closest
+ * intersection query stops as soon as an intersection lies inside the current leaf.
+ * Unbounded geometries (e.g. planes) are kept in a separate list that is always tested.
+ * <p>
+ * The tree is built once at construction - geometries added to the source collection
+ * afterwards are not seen by the tree.
+ *
+ * @author Maor Atari
+ */
+public class KdTree extends SpatialIndex {
+    /**
+     * Cost of traversing a node relative to the cost of intersecting a geometry
+     */
+    private static final double TRAVERSAL_COST = 0.25;
+    /**
+     * Reduction of the cost of the splits with an empty side
+     */
+    private static final double EMPTY_BONUS = 0.2;
+    /**
+     * Node kind of a leaf (the kinds 0, 1, 2 are the split axes of the inner nodes)
+     */
+    private static final int LEAF = 3;
+    /**
+     * Empty leaf constant - shared by all the empty leaves
+     */
+    private static final Intersectable[] EMPTY_LEAF = new Intersectable[0];
+
+    /**
+     * The box bounding all the bounded geometries
+     */
+    private final BoundingBox box;
+    /**
+     * The nodes in depth-first order - the kind of the node in the lowest 2 bits (split axis or
+     * {@link #LEAF}), and the rest is the index of the upper child of an inner node (the lower child
+     * follows its parent) or the index of the leaf in {@link #leaves}
+     */
+    private final int[] nodes;
+    /**
+     * Split coordinates of the inner nodes (unused for the leaves)
+     */
+    private final double[] splits;
+    /**
+     * Geometries of the leaves
+     */
+    private final Intersectable[][] leaves;
+    /**
+     * Depth of the deepest leaf
+     */
+    private final int depth;
+    /**
+     * Traversal stack of every thread
+     */
+    private final ThreadLocal<TraversalStack> stacks;
+
+    /**
+     * Traversal stack of the nodes left for later with the ranges of the distances along the ray inside them
+     */
+    private static final class TraversalStack {
+        /**
+         * The nodes
+         */
+        final int[] nodes;
+        /**
+         * The distances at which the ray enters the nodes
+         */
+        final double[] entries;
+        /**
+         * The distances at which the ray leaves the nodes
+         */
+        final double[] exits;
+
+        /**
+         * Constructor of a stack
+         *
+         * @param size the maximal amount of the nodes in the stack
+         */
+        TraversalStack(int size) {
+            nodes = new int[size];
+            entries = new double[size];
+            exits = new double[size];
+        }
+    }
+
+    /**
+     * Tree under construction - growing node arrays
+     */
+    private static final class Construction {
+        /**
+         * The nodes in the form of {@link #nodes}
+         */
+        int[] nodes = new int[64];
+        /**
+         * The split coordinates
+         */
+        double[] splits = new double[64];
+        /**
+         * Amount of the nodes
+         */
+        int nodesCount = 0;
+        /**
+         * Geometries of the leaves
+         */
+        final List<Intersectable[]> leaves = new ArrayList<>();
+        /**
+         * Depth of the deepest leaf
+         */
+        int depth = 0;
+
+        /**
+         * Appends a node
+         *
+         * @return the index of the node
+         */
+        int add() {
+            if (nodesCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * nodesCount);
+                splits = Arrays.copyOf(splits, 2 * nodesCount);
+            }
+            return nodesCount++;
+        }
+    }
+
+    /**
+     * Constructor to build the tree over a collection of geometries
+     *
+     * @param geometries the geometries to be partitioned
+     */
+    public KdTree(Geometries geometries) {
+        this(geometries.getGeometries());
+    }
+
+    /**
+     * Constructor to build the tree over a list of geometries
+     *
+     * @param geometries the geometries to be partitioned
+     */
+    KdTree(List<Intersectable> geometries) {
+        List<Intersectable> bounded = new ArrayList<>();
+        List<BoundingBox> boxes = new ArrayList<>();
+        BoundingBox bounds = BoundingBox.EMPTY;
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox.isBounded()) {
+                bounded.add(geometry);
+                boxes.add(geometryBox);
+                bounds = bounds.union(geometryBox);
+            } else {
+                unbounded.add(geometry);
+            }
+        }
+        box = bounds;
+
+        if (bounded.isEmpty()) {
+            nodes = new int[0];
+            splits = new double[0];
+            leaves = new Intersectable[0][];
+            depth = 0;
+            stacks = null;
+            return;
+        }
+
+        // the depth limit of PBRT - about 8 + 1.3 log2(n)
+        int maxDepth = (int) Math.round(8 + 1.3 * Math.log(bounded.size()) / Math.log(2));
+        Construction tree = new Construction();
+        build(tree, bounded.toArray(EMPTY_LEAF), boxes.toArray(new BoundingBox[0]), box, maxDepth, maxDepth);
+        nodes = Arrays.copyOf(tree.nodes, tree.nodesCount);
+        splits = Arrays.copyOf(tree.splits, tree.nodesCount);
+        leaves = tree.leaves.toArray(new Intersectable[0][]);
+        depth = tree.depth;
+        stacks = ThreadLocal.withInitial(() -> new TraversalStack(maxDepth + 1));
+    }
+
+    /**
+     * Builds a sub-tree over geometries in depth-first order
+     *
+     * @param tree       the tree under construction
+     * @param geometries the geometries overlapping the node
+     * @param boxes      their bounding boxes
+     * @param nodeBox    the box of the node
+     * @param depth      the remaining depth
+     * @param maxDepth   the depth limit of the tree
+     */
+    private static void build(Construction tree, Intersectable[] geometries, BoundingBox[] boxes,
+                              BoundingBox nodeBox, int depth, int maxDepth) {
+        int node = tree.add();
+        int n = geometries.length;
+
+        int bestAxis = -1;
+        double bestSplit = 0, bestCost = n;
+        if (depth > 0 && n > 1) {
+            double area = nodeBox.surfaceArea();
+            double[] mins = new double[n], maxs = new double[n];
+            for (int axis = 0; axis < 3; ++axis) {
+                double low = min(nodeBox, axis), high = max(nodeBox, axis);
+                if (!(high > low)) continue;
+                for (int i = 0; i < n; ++i) {
+                    mins[i] = min(boxes[i], axis);
+                    maxs[i] = max(boxes[i], axis);
+                }
+                Arrays.sort(mins);
+                Arrays.sort(maxs);
+                // the candidates are the boundaries of the boxes inside the node
+                for (double[] candidates : new double[][]{mins, maxs})
+                    for (double split : candidates) {
+                        if (split <= low || split >= high) continue;
+                        // geometries touching the plane are referenced by both sides
+                        int below = upperBound(mins, split), above = n - lowerBound(maxs, split);
+                        double cost = TRAVERSAL_COST + (below == 0 || above == 0 ? 1 - EMPTY_BONUS : 1)
+                                * (splitArea(nodeBox, axis, split, false) * below
+                                + splitArea(nodeBox, axis, split, true) * above) / area;
+                        if (cost < bestCost) {
+                            bestCost = cost;
+                            bestAxis = axis;
+                            bestSplit = split;
+                        }
+                    }
+            }
+        }
+
+        if (bestAxis < 0) {
+            tree.nodes[node] = (tree.leaves.size() << 2) | LEAF;
+            tree.leaves.add(geometries);
+            tree.depth = Math.max(tree.depth, maxDepth - depth);
+            return;
+        }
+
+        List<Intersectable> belowGeometries = new ArrayList<>(), aboveGeometries = new ArrayList<>();
+        List<BoundingBox> belowBoxes = new ArrayList<>(), aboveBoxes = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            if (min(boxes[i], bestAxis) <= bestSplit) {
+                belowGeometries.add(geometries[i]);
+                belowBoxes.add(boxes[i]);
+            }
+            if (max(boxes[i], bestAxis) >= bestSplit) {
+                aboveGeometries.add(geometries[i]);
+                aboveBoxes.add(boxes[i]);
+            }
+        }
+
+        tree.splits[node] = bestSplit;
+        build(tree, belowGeometries.toArray(EMPTY_LEAF), belowBoxes.toArray(new BoundingBox[0]),
+                splitBox(nodeBox, bestAxis, bestSplit, false), depth - 1, maxDepth);
+        tree.nodes[node] = (tree.nodesCount << 2) | bestAxis;
+        build(tree, aboveGeometries.toArray(EMPTY_LEAF), aboveBoxes.toArray(new BoundingBox[0]),
+                splitBox(nodeBox, bestAxis, bestSplit, true), depth - 1, maxDepth);
+    }
+
+    /**
+     * Counts the sorted values lower than a given value
+     *
+     * @param values the sorted values
+     * @param value  the value
+     * @return the amount of the values lower than the value
+     */
+    private static int lowerBound(double[] values, double value) {
+        int low = 0, high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Counts the sorted values not greater than a given value
+     *
+     * @param values the sorted values
+     * @param value  the value
+     * @return the amount of the values not greater than the value
+     */
+    private static int upperBound(double[] values, double value) {
+        int low = 0, high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Calculates the surface area of a side of a box split by an axis-aligned plane
+     *
+     * @param box   the box
+     * @param axis  the axis of the split
+     * @param split the coordinate of the plane
+     * @param above true for the side above the plane, false for the side below it
+     * @return the surface area of the side
+     */
+    private static double splitArea(BoundingBox box, int axis, double split, boolean above) {
+        double dx = box.maxX - box.minX, dy = box.maxY - box.minY, dz = box.maxZ - box.minZ;
+        double d = above ? max(box, axis) - split : split - min(box, axis);
+        switch (axis) {
+            case 0 -> dx = d;
+            case 1 -> dy = d;
+            default -> dz = d;
+        }
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Calculates a side of a box split by an axis-aligned plane
+     *
+     * @param box   the box
+     * @param axis  the axis of the split
+     * @param split the coordinate of the plane
+     * @param above true for the side above the plane, false for the side below it
+     * @return the side
+     */
+    private static BoundingBox splitBox(BoundingBox box, int axis, double split, boolean above) {
+        return new BoundingBox(
+                above && axis == 0 ? split : box.minX,
+                above && axis == 1 ? split : box.minY,
+                above && axis == 2 ? split : box.minZ,
+                !above && axis == 0 ? split : box.maxX,
+                !above && axis == 1 ? split : box.maxY,
+                !above && axis == 2 ? split : box.maxZ);
+    }
+
+    /**
+     * Gets the minimal coordinate of a box along an axis
+     *
+     * @param box  the box
+     * @param axis the axis index
+     * @return the minimal coordinate
+     */
+    private static double min(BoundingBox box, int axis) {
+        return axis == 0 ? box.minX : axis == 1 ? box.minY : box.minZ;
+    }
+
+    /**
+     * Gets the maximal coordinate of a box along an axis
+     *
+     * @param box  the box
+     * @param axis the axis index
+     * @return the maximal coordinate
+     */
+    private static double max(BoundingBox box, int axis) {
+        return axis == 0 ? box.maxX : axis == 1 ? box.maxY : box.maxZ;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.isEmpty() ? box : BoundingBox.INFINITE;
+    }
+
+    /**
+     * Gets the depth of the deepest leaf
+     *
+     * @return the depth (0 for a single leaf)
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Estimates the memory used by the tree - its nodes and the references to the geometries,
+     * without the geometries themselves
+     *
+     * @return the size of the tree in bytes
+     */
+    public long getMemorySize() {
+        // the empty leaves share a single array
+        long size = arraySize(nodes.length, Integer.BYTES) + arraySize(splits.length, Double.BYTES)
+                + arraySize(leaves.length, REFERENCE_SIZE) + arraySize(0, REFERENCE_SIZE);
+        for (Intersectable[] leaf : leaves)
+            if (leaf != EMPTY_LEAF) size += arraySize(leaf.length, REFERENCE_SIZE);
+        return size;
+    }
+
+    @Override
+    void traverse(Ray ray, double maxDistance, LeafVisitor visitor) {
+        if (nodes.length == 0) return;
+
+        double[] origin = {ray.getHeadX(), ray.getHeadY(), ray.getHeadZ()};
+        double[] direction = {ray.getDirX(), ray.getDirY(), ray.getDirZ()};
+        double[] inverse = {1 / direction[0], 1 / direction[1], 1 / direction[2]};
+
+        // the range of the distances inside the root box
+        double tx1 = (box.minX - origin[0]) * inverse[0], tx2 = (box.maxX - origin[0]) * inverse[0];
+        double ty1 = (box.minY - origin[1]) * inverse[1], ty2 = (box.maxY - origin[1]) * inverse[1];
+        double tz1 = (box.minZ - origin[2]) * inverse[2], tz2 = (box.maxZ - origin[2]) * inverse[2];
+        double tMin = Math.max(Math.max(0, Math.min(tx1, tx2)), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+        double tMax = Math.min(Math.min(maxDistance, Math.max(tx1, tx2)), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+        if (!(tMin <= tMax)) return;
+
+        TraversalStack stack = stacks.get();
+        int top = 0;
+        int node = 0;
+        while (true) {
+            int kind = nodes[node] & 3;
+            if (kind != LEAF) {
+                double split = splits[node];
+                double o = origin[kind], d = direction[kind];
+                int below = node + 1, above = nodes[node] >>> 2;
+                // the child containing the ray head is visited first
+                boolean belowFirst = o < split || (o == split && d <= 0);
+                int first = belowFirst ? below : above, second = belowFirst ? above : below;
+                double tPlane = (split - o) * inverse[kind];
+
+                if (d == 0 || tPlane > tMax || tPlane <= 0) node = first;
+                else if (tPlane < tMin) node = second;
+                else {
+                    stack.nodes[top] = second;
+                    stack.entries[top] = tPlane;
+                    stack.exits[top++] = tMax;
+                    node = first;
+                    tMax = tPlane;
+                }
+                continue;
+            }
+
+            Intersectable[] leaf = leaves[nodes[node] >>> 2];
+            if (leaf.length > 0 && !visitor.visit(leaf, tMax)) return;
+            if (top == 0) return;
+            node = stack.nodes[--top];
+            tMin = stack.entries[top];
+            tMax = stack.exits[top];
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package geometries;
+
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.REFERENCE_SIZE;
+import static geometries.BoundingVolumeHierarchy.arraySize;
+
+/**
+ * Class Octree is a sparse adaptive octree acceleration structure over a collection of geometries.
+ * The cube bounding the bounded geometries is divided recursively into 8 octants, but only the
+ * octants holding more than the occupancy limit of geometries are subdivided (up to the depth limit),
+ * and the empty octants are not stored at all - so the memory follows the occupied space, and large
+ * empty regions between dense clusters cost nothing.
+ * Rays walk through the octree by the parametric algorithm of Revelles et al.: the distances at which
+ * the ray crosses the middle planes of a node are the averages of the distances at which it crosses
+ * the faces of the node, and the octants are visited front-to-back without any point location.
+ * The closest intersection query stops as soon as an intersection lies inside the current leaf.
+ * Unbounded geometries (e.g. planes) are kept in a separate list that is always tested.
+ * <p>
+ * The octree is built once at construction - geometries added to the source collection
+ * afterwards are not seen by the octree.
+ *
+ * @author Maor Atari
+ */
+public class Octree extends SpatialIndex {
+    /**
+     * Default maximal depth of the leaves
+     */
+    private static final int MAX_DEPTH = 10;
+    /**
+     * Default maximal amount of geometries in a leaf above the maximal depth
+     */
+    private static final int MAX_OCCUPANCY = 8;
+    /**
+     * Replacement of the zero components of the ray directions - keeps the distances to the planes
+     * parallel to the ray finite (and signed by the side of the ray head)
+     */
+    private static final double MIN_DIRECTION = 1e-20;
+
+    /**
+     * The box bounding all the bounded geometries
+     */
+    private final BoundingBox box;
+    /**
+     * Minimal X coordinate of the root cube
+     */
+    private final double minX;
+    /**
+     * Minimal Y coordinate of the root cube
+     */
+    private final double minY;
+    /**
+     * Minimal Z coordinate of the root cube
+     */
+    private final double minZ;
+    /**
+     * Size of the edge of the root cube
+     */
+    private final double size;
+    /**
+     * The nodes - the mask of the stored octants in the lowest 8 bits (bit x + 2y + 4z for the octant
+     * in the upper half along the axes with 1), and the rest is the index of the node of the first stored
+     * octant (the stored octants follow it in the order of their bits) or, for a leaf with the mask 0,
+     * the index of the leaf in {@link #leaves}
+     */
+    private final int[] nodes;
+    /**
+     * Geometries of the leaves
+     */
+    private final Intersectable[][] leaves;
+    /**
+     * Depth of the deepest leaf
+     */
+    private final int depth;
+
+    /**
+     * Octree under construction - growing node array
+     */
+    private static final class Construction {
+        /**
+         * The nodes in the form of {@link #nodes}
+         */
+        int[] nodes = new int[64];
+        /**
+         * Amount of the nodes
+         */
+        int nodesCount = 0;
+        /**
+         * Geometries of the leaves
+         */
+        final List<Intersectable[]> leaves = new ArrayList<>();
+        /**
+         * Depth of the deepest leaf
+         */
+        int depth = 0;
+
+        /**
+         * Appends a block of consecutive nodes
+         *
+         * @param count the amount of the nodes
+         * @return the index of the first node of the block
+         */
+        int add(int count) {
+            if (nodesCount + count > nodes.length)
+                nodes = Arrays.copyOf(nodes, Math.max(2 * nodes.length, nodesCount + count));
+            nodesCount += count;
+            return nodesCount - count;
+        }
+    }
+
+    /**
+     * Constructor to build the octree with the default limits over a collection of geometries
+     *
+     * @param geometries the geometries to be partitioned
+     */
+    public Octree(Geometries geometries) {
+        this(geometries.getGeometries(), MAX_DEPTH, MAX_OCCUPANCY);
+    }
+
+    /**
+     * Constructor to build the octree over a collection of geometries
+     *
+     * @param geometries   the geometries to be partitioned
+     * @param maxDepth     the maximal depth of the leaves
+     * @param maxOccupancy the amount of geometries up to which a node is not subdivided
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public Octree(Geometries geometries, int maxDepth, int maxOccupancy) {
+        this(geometries.getGeometries(), maxDepth, maxOccupancy);
+    }
+
+    /**
+     * Constructor to build the octree over a list of geometries
+     *
+     * @param geometries   the geometries to be partitioned
+     * @param maxDepth     the maximal depth of the leaves
+     * @param maxOccupancy the amount of geometries up to which a node is not subdivided
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    Octree(List<Intersectable> geometries, int maxDepth, int maxOccupancy) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException("Maximal depth must be positive");
+        }
+        if (maxOccupancy <= 0) {
+            throw new IllegalArgumentException("Maximal occupancy must be positive");
+        }
+
+        List<Intersectable> bounded = new ArrayList<>();
+        List<BoundingBox> boxes = new ArrayList<>();
+        BoundingBox bounds = BoundingBox.EMPTY;
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox.isBounded()) {
+                bounded.add(geometry);
+                boxes.add(geometryBox);
+                bounds = bounds.union(geometryBox);
+            } else {
+                unbounded.add(geometry);
+            }
+        }
+        box = bounds;
+
+        if (bounded.isEmpty()) {
+            minX = minY = minZ = 0;
+            size = 1;
+            nodes = new int[0];
+            leaves = new Intersectable[0][];
+            depth = 0;
+            return;
+        }
+
+        // the root is the cube around the center of the box, so all the octants are cubes
+        double edge = Math.max(box.maxX - box.minX, Math.max(box.maxY - box.minY, box.maxZ - box.minZ));
+        size = edge > 0 ? edge : 1;
+        minX = (box.minX + box.maxX - size) / 2;
+        minY = (box.minY + box.maxY - size) / 2;
+        minZ = (box.minZ + box.maxZ - size) / 2;
+
+        Construction tree = new Construction();
+        build(tree, tree.add(1), bounded.toArray(new Intersectable[0]), boxes.toArray(new BoundingBox[0]),
+                minX, minY, minZ, size, 0, maxDepth, maxOccupancy);
+        nodes = Arrays.copyOf(tree.nodes, tree.nodesCount);
+        leaves = tree.leaves.toArray(new Intersectable[0][]);
+        depth = tree.depth;
+    }
+
+    /**
+     * Builds a sub-tree over geometries
+     *
+     * @param tree         the octree under construction
+     * @param node         the index of the node
+     * @param geometries   the geometries overlapping the node
+     * @param boxes        their bounding boxes
+     * @param x            the minimal X coordinate of the node cube
+     * @param y            the minimal Y coordinate of the node cube
+     * @param z            the minimal Z coordinate of the node cube
+     * @param size         the edge size of the node cube
+     * @param level        the depth of the node
+     * @param maxDepth     the maximal depth of the leaves
+     * @param maxOccupancy the amount of geometries up to which a node is not subdivided
+     */
+    private static void build(Construction tree, int node, Intersectable[] geometries, BoundingBox[] boxes,
+                              double x, double y, double z, double size, int level, int maxDepth, int maxOccupancy) {
+        int n = geometries.length;
+        if (n > maxOccupancy && level < maxDepth) {
+            double half = size / 2, midX = x + half, midY = y + half, midZ = z + half;
+            // geometries touching a middle plane are referenced by the octants on both sides
+            List<List<Integer>> octants = new ArrayList<>(8);
+            for (int octant = 0; octant < 8; ++octant) octants.add(new ArrayList<>());
+            for (int i = 0; i < n; ++i) {
+                BoundingBox b = boxes[i];
+                int fromX = b.minX <= midX ? 0 : 1, toX = b.maxX >= midX ? 1 : 0;
+                int fromY = b.minY <= midY ? 0 : 1, toY = b.maxY >= midY ? 1 : 0;
+                int fromZ = b.minZ <= midZ ? 0 : 1, toZ = b.maxZ >= midZ ? 1 : 0;
+                for (int upperZ = fromZ; upperZ <= toZ; ++upperZ)
+                    for (int upperY = fromY; upperY <= toY; ++upperY)
+                        for (int upperX = fromX; upperX <= toX; ++upperX)
+                            octants.get(upperX | upperY << 1 | upperZ << 2).add(i);
+            }
+
+            int mask = 0;
+            boolean progress = false;
+            for (int octant = 0; octant < 8; ++octant) {
+                int count = octants.get(octant).size();
+                if (count > 0) mask |= 1 << octant;
+                if (count > 0 && count < n) progress = true;
+            }
+
+            // a subdivision where several octants hold all the geometries only multiplies the references,
+            // while a single occupied octant still shrinks the leaves around a cluster
+            if (progress || Integer.bitCount(mask) == 1) {
+                int first = tree.add(Integer.bitCount(mask));
+                tree.nodes[node] = first << 8 | mask;
+                int child = first;
+                for (int octant = 0; octant < 8; ++octant) {
+                    List<Integer> indices = octants.get(octant);
+                    if (indices.isEmpty()) continue;
+                    Intersectable[] childGeometries = new Intersectable[indices.size()];
+                    BoundingBox[] childBoxes = new BoundingBox[indices.size()];
+                    for (int k = 0; k < childGeometries.length; ++k) {
+                        childGeometries[k] = geometries[indices.get(k)];
+                        childBoxes[k] = boxes[indices.get(k)];
+                    }
+                    build(tree, child++, childGeometries, childBoxes,
+                            (octant & 1) == 0 ? x : midX, (octant & 2) == 0 ? y : midY, (octant & 4) == 0 ? z : midZ,
+                            half, level + 1, maxDepth, maxOccupancy);
+                }
+                return;
+            }
+        }
+
+        tree.nodes[node] = tree.leaves.size() << 8;
+        tree.leaves.add(geometries);
+        tree.depth = Math.max(tree.depth, level);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.isEmpty() ? box : BoundingBox.INFINITE;
+    }
+
+    /**
+     * Gets the depth of the deepest leaf
+     *
+     * @return the depth (0 for a single leaf)
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Estimates the memory used by the octree - its nodes and the references to the geometries,
+     * without the geometries themselves
+     *
+     * @return the size of the octree in bytes
+     */
+    public long getMemorySize() {
+        long size = arraySize(nodes.length, Integer.BYTES) + arraySize(leaves.length, REFERENCE_SIZE);
+        for (Intersectable[] leaf : leaves) size += arraySize(leaf.length, REFERENCE_SIZE);
+        return size;
+    }
+
+    /**
+     * Walks through the leaves pierced by a ray in front-to-back order.
+     * The ray is reflected about the center of the root along the axes where its direction is negative,
+     * so the traversal works with a non-negative direction and the reflected octants are mapped back by
+     * XOR with the reflection mask
+     *
+     * @param ray         the ray
+     * @param maxDistance the distance from the ray head beyond which the leaves are not visited
+     * @param visitor     the visitor called for every pierced leaf
+     */
+    @Override
+    void traverse(Ray ray, double maxDistance, LeafVisitor visitor) {
+        if (nodes.length == 0) return;
+
+        double ox = ray.getHeadX(), oy = ray.getHeadY(), oz = ray.getHeadZ();
+        double dx = ray.getDirX(), dy = ray.getDirY(), dz = ray.getDirZ();
+        int reflection = 0;
+        if (dx < 0) {
+            ox = 2 * minX + size - ox;
+            dx = -dx;
+            reflection |= 1;
+        }
+        if (dy < 0) {
+            oy = 2 * minY + size - oy;
+            dy = -dy;
+            reflection |= 2;
+        }
+        if (dz < 0) {
+            oz = 2 * minZ + size - oz;
+            dz = -dz;
+            reflection |= 4;
+        }
+        dx = Math.max(dx, MIN_DIRECTION);
+        dy = Math.max(dy, MIN_DIRECTION);
+        dz = Math.max(dz, MIN_DIRECTION);
+
+        double tx0 = (minX - ox) / dx, tx1 = (minX + size - ox) / dx;
+        double ty0 = (minY - oy) / dy, ty1 = (minY + size - oy) / dy;
+        double tz0 = (minZ - oz) / dz, tz1 = (minZ + size - oz) / dz;
+        if (Math.max(tx0, Math.max(ty0, tz0)) <= Math.min(tx1, Math.min(ty1, tz1)))
+            traverse(0, tx0, ty0, tz0, tx1, ty1, tz1, reflection, maxDistance, visitor);
+    }
+
+    /**
+     * Walks through the leaves of a sub-tree pierced by a ray in front-to-back order
+     *
+     * @param node        the index of the node
+     * @param tx0         the distance at which the reflected ray crosses the lower X face of the node
+     * @param ty0         the distance at which the reflected ray crosses the lower Y face of the node
+     * @param tz0         the distance at which the reflected ray crosses the lower Z face of the node
+     * @param tx1         the distance at which the reflected ray crosses the upper X face of the node
+     * @param ty1         the distance at which the reflected ray crosses the upper Y face of the node
+     * @param tz1         the distance at which the reflected ray crosses the upper Z face of the node
+     * @param reflection  the mask of the reflected axes
+     * @param maxDistance the distance from the ray head beyond which the leaves are not visited
+     * @param visitor     the visitor called for every pierced leaf
+     * @return true to continue the traversal, false to stop it
+     */
+    private boolean traverse(int node, double tx0, double ty0, double tz0, double tx1, double ty1, double tz1,
+                             int reflection, double maxDistance, LeafVisitor visitor) {
+        // the node is behind the ray head or beyond the maximal distance
+        if (tx1 < 0 || ty1 < 0 || tz1 < 0) return true;
+        if (Math.max(tx0, Math.max(ty0, tz0)) > maxDistance) return false;
+
+        int packed = nodes[node], mask = packed & 0xFF;
+        if (mask == 0) return visitor.visit(leaves[packed >>> 8], Math.min(tx1, Math.min(ty1, tz1)));
+
+        double txm = (tx0 + tx1) / 2, tym = (ty0 + ty1) / 2, tzm = (tz0 + tz1) / 2;
+
+        // the first octant - by the face through which the ray enters the node
+        int octant = 0;
+        if (tx0 > ty0 && tx0 > tz0) {
+            if (tym < tx0) octant |= 2;
+            if (tzm < tx0) octant |= 4;
+        } else if (ty0 > tz0) {
+            if (txm < ty0) octant |= 1;
+            if (tzm < ty0) octant |= 4;
+        } else {
+            if (txm < tz0) octant |= 1;
+            if (tym < tz0) octant |= 2;
+        }
+
+        int first = packed >>> 8;
+        while (octant < 8) {
+            boolean upperX = (octant & 1) != 0, upperY = (octant & 2) != 0, upperZ = (octant & 4) != 0;
+            double x0 = upperX ? txm : tx0, x1 = upperX ? tx1 : txm;
+            double y0 = upperY ? tym : ty0, y1 = upperY ? ty1 : tym;
+            double z0 = upperZ ? tzm : tz0, z1 = upperZ ? tz1 : tzm;
+
+            int stored = octant ^ reflection;
+            if ((mask & 1 << stored) != 0) {
+                int child = first + Integer.bitCount(mask & ((1 << stored) - 1));
+                if (!traverse(child, x0, y0, z0, x1, y1, z1, reflection, maxDistance, visitor)) return false;
+            }
+
+            // the next octant - through the face at which the ray leaves the current one
+            if (x1 < y1 && x1 < z1) octant = upperX ? 8 : octant | 1;
+            else if (y1 < z1) octant = upperY ? 8 : octant | 2;
+            else octant = upperZ ? 8 : octant | 4;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,489 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class PagedGeometries is an out-of-core collection of triangles, for scenes which do not fit
+ * into the heap as {@link Triangle} objects.
+ * The triangles are stored in a file (see {@link Writer}) in chunks of spatially coherent triangles -
+ * the triangles are sorted by the Morton codes of their centroids, so every chunk covers a compact
+ * region - and only the bounding boxes of the chunks stay in the heap, in a bounding volume hierarchy.
+ * The file is mapped into memory ({@link FileChannel#map}) and a chunk pierced by a ray is decoded
+ * into triangles on the first access (a fault) and kept in a fixed-size cache of the least recently
+ * used chunks, so the memory is bounded by the capacity of the cache whatever the size of the scene.
+ * <p>
+ * All the triangles share the emission and the material of the collection.
+ *
+ * @author Maor Atari
+ */
+public class PagedGeometries extends Intersectable {
+    /**
+     * The first bytes of a paged geometries file - "PGE" and the version of the format
+     */
+    private static final int MAGIC = 0x50474501;
+    /**
+     * Size of the header of a file - magic, amount of the chunks
+     */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    /**
+     * Size of an entry of the table of the chunks - bounding box, offset of the triangles, amount of the triangles
+     */
+    private static final int ENTRY_SIZE = 6 * Double.BYTES + Long.BYTES + Integer.BYTES;
+    /**
+     * Size of a triangle in a file - the coordinates of its vertices
+     */
+    private static final int TRIANGLE_SIZE = 9 * Double.BYTES;
+    /**
+     * Maximal size of a mapped segment of a file (a single mapping is limited to 2GB)
+     */
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * The chunks in a hierarchy over their bounding boxes
+     */
+    private final Geometries chunks;
+    /**
+     * Amount of the chunks
+     */
+    private final int chunksCount;
+    /**
+     * The decoded chunks by their indices, in the order of their last access
+     */
+    private final Map<Integer, Geometries> resident;
+    /**
+     * Amount of the chunks decoded since the collection was opened
+     */
+    private final AtomicLong faults = new AtomicLong();
+    /**
+     * The emission color of the triangles
+     */
+    private Color emission = Color.BLACK;
+    /**
+     * The material of the triangles
+     */
+    private Material material = new Material();
+
+    /**
+     * Constructor opening a paged geometries file
+     *
+     * @param file     the file written by {@link Writer}
+     * @param capacity the maximal amount of the decoded chunks kept in the memory
+     * @throws IllegalArgumentException if the file is null, the capacity is not positive
+     *                                  or the file is not a paged geometries file
+     * @throws IllegalStateException    if the file can not be read
+     */
+    public PagedGeometries(Path file, int capacity) {
+        if (file == null) {
+            throw new IllegalArgumentException("File must not be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        resident = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Geometries> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IllegalArgumentException("Not a paged geometries file " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int count = header.getInt(4);
+            if (header.getInt(0) != MAGIC || count < 0 || size < HEADER_SIZE + (long) count * ENTRY_SIZE) {
+                throw new IllegalArgumentException("Not a paged geometries file " + file);
+            }
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) count * ENTRY_SIZE);
+
+            // the triangles are mapped in segments of whole chunks
+            Chunk[] array = new Chunk[count];
+            ByteBuffer segment = null;
+            long segmentStart = 0;
+            // the chunks follow the table in their order and do not overlap
+            long end = HEADER_SIZE + (long) count * ENTRY_SIZE;
+            for (int i = 0; i < count; ++i) {
+                int entry = i * ENTRY_SIZE;
+                BoundingBox box = new BoundingBox(table.getDouble(entry), table.getDouble(entry + 8),
+                        table.getDouble(entry + 16), table.getDouble(entry + 24), table.getDouble(entry + 32),
+                        table.getDouble(entry + 40));
+                long offset = table.getLong(entry + 48);
+                int triangles = table.getInt(entry + 56);
+                long length = (long) triangles * TRIANGLE_SIZE;
+                if (triangles <= 0 || offset < end || length > size - offset) {
+                    throw new IllegalArgumentException("Not a paged geometries file " + file);
+                }
+                end = offset + length;
+                if (segment == null || offset + length > segmentStart + segment.capacity()) {
+                    segmentStart = offset;
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                            Math.min(size - offset, Math.max(length, MAX_SEGMENT_SIZE)));
+                }
+                array[i] = new Chunk(i, box, segment, (int) (offset - segmentStart), triangles);
+            }
+            chunksCount = count;
+            chunks = new Geometries(array).buildBVH(new BVHBuilder().setLeafSize(1));
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can not read paged geometries file " + file, e);
+        }
+    }
+
+    /**
+     * Setter for the emission color of all the triangles
+     *
+     * @param emission the emission color
+     * @return this collection
+     */
+    public PagedGeometries setEmission(Color emission) {
+        this.emission = emission;
+        clearCache();
+        return this;
+    }
+
+    /**
+     * Setter for the material of all the triangles
+     *
+     * @param material the material
+     * @return this collection
+     */
+    public PagedGeometries setMaterial(Material material) {
+        this.material = material;
+        clearCache();
+        return this;
+    }
+
+    /**
+     * Drops all the decoded chunks - they are decoded again on their next access
+     */
+    public void clearCache() {
+        synchronized (resident) {
+            resident.clear();
+        }
+    }
+
+    /**
+     * Gets the amount of the chunks in the file
+     *
+     * @return the amount of the chunks
+     */
+    public int getChunksCount() {
+        return chunksCount;
+    }
+
+    /**
+     * Gets the amount of the decoded chunks kept in the memory
+     *
+     * @return the amount of the resident chunks
+     */
+    public int getResidentCount() {
+        synchronized (resident) {
+            return resident.size();
+        }
+    }
+
+    /**
+     * Gets the amount of the chunks decoded since the collection was opened - the amount of the reads
+     * from the file
+     *
+     * @return the amount of the faults
+     */
+    public long getFaultCount() {
+        return faults.get();
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return chunks.getBoundingBox();
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        return chunks.calculateIntersections(ray);
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        return chunks.calculateClosestIntersection(ray, maxDistance);
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        return chunks.hasIntersection(ray, maxDistance);
+    }
+
+    /**
+     * Gets the triangles of a chunk, decoding them if the chunk is not resident.
+     * The decoding is done outside the lock, so the threads faulting different chunks do not wait
+     * for each other (two threads faulting the same chunk may both decode it)
+     *
+     * @param chunk the chunk
+     * @return the triangles of the chunk in a collection with a hierarchy
+     */
+    private Geometries load(Chunk chunk) {
+        Geometries triangles;
+        synchronized (resident) {
+            triangles = resident.get(chunk.index);
+        }
+        if (triangles != null) return triangles;
+
+        triangles = chunk.decode();
+        faults.incrementAndGet();
+        synchronized (resident) {
+            resident.put(chunk.index, triangles);
+        }
+        return triangles;
+    }
+
+    /**
+     * A chunk of the file - its bounding box is in the memory, and its triangles are decoded on demand
+     */
+    private final class Chunk extends Intersectable {
+        /**
+         * Index of the chunk in the file
+         */
+        private final int index;
+        /**
+         * The box bounding the triangles of the chunk
+         */
+        private final BoundingBox box;
+        /**
+         * The mapped segment of the file holding the triangles
+         */
+        private final ByteBuffer segment;
+        /**
+         * Position of the first triangle in the segment
+         */
+        private final int offset;
+        /**
+         * Amount of the triangles
+         */
+        private final int count;
+
+        /**
+         * Constructor of a chunk
+         *
+         * @param index   the index of the chunk in the file
+         * @param box     the box bounding the triangles of the chunk
+         * @param segment the mapped segment of the file holding the triangles
+         * @param offset  the position of the first triangle in the segment
+         * @param count   the amount of the triangles
+         */
+        Chunk(int index, BoundingBox box, ByteBuffer segment, int offset, int count) {
+            this.index = index;
+            this.box = box;
+            this.segment = segment;
+            this.offset = offset;
+            this.count = count;
+        }
+
+        /**
+         * Decodes the triangles of the chunk. The mapped segment is read by absolute positions only,
+         * so it is shared by all the threads
+         *
+         * @return the triangles in a collection with a hierarchy
+         */
+        Geometries decode() {
+            Triangle[] triangles = new Triangle[count];
+            for (int i = 0, position = offset; i < count; ++i, position += TRIANGLE_SIZE) {
+                Point[] vertices = new Point[3];
+                for (int v = 0; v < 3; ++v) {
+                    int p = position + v * 3 * Double.BYTES;
+                    vertices[v] = new Point(segment.getDouble(p), segment.getDouble(p + 8), segment.getDouble(p + 16));
+                }
+                triangles[i] = new Triangle(vertices[0], vertices[1], vertices[2]);
+                triangles[i].setEmission(emission).setMaterial(material);
+            }
+            return new Geometries(triangles).buildBVH();
+        }
+
+        @Override
+        public BoundingBox getBoundingBox() {
+            return box;
+        }
+
+        // the box is tested here whatever the global bounding box check is - a miss must not fault the chunk
+
+        @Override
+        protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+            return box.intersects(ray) ? load(this).calculateIntersections(ray) : null;
+        }
+
+        @Override
+        protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+            return box.intersects(ray, maxDistance) ? load(this).calculateClosestIntersection(ray, maxDistance) : null;
+        }
+
+        @Override
+        protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+            return box.intersects(ray, maxDistance) && load(this).hasIntersection(ray, maxDistance);
+        }
+    }
+
+    /**
+     * Class Writer writes triangles into a paged geometries file.
+     * The writer keeps only the coordinates of the added triangles (9 numbers per triangle) - the
+     * triangles themselves may be dropped after they are added. The triangles are sorted by the
+     * Morton codes of their centroids and cut into chunks of consecutive triangles when the file is written
+     */
+    public static class Writer {
+        /**
+         * Bits per axis of the Morton codes of the centroids
+         */
+        private static final int CODE_BITS = 21;
+
+        /**
+         * Amount of the triangles in a chunk
+         */
+        private int chunkSize = 256;
+        /**
+         * Coordinates of the vertices of the added triangles
+         */
+        private double[] coordinates = new double[9 * 64];
+        /**
+         * Amount of the added triangles
+         */
+        private int count = 0;
+
+        /**
+         * Default constructor
+         */
+        public Writer() {
+        }
+
+        /**
+         * Setter for the amount of the triangles in a chunk - the unit of the reading and of the caching
+         *
+         * @param chunkSize the amount of the triangles in a chunk
+         * @return this writer
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Writer setChunkSize(int chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("Chunk size must be positive");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Adds triangles
+         *
+         * @param triangles the triangles
+         * @return this writer
+         */
+        public Writer add(Triangle... triangles) {
+            for (Triangle triangle : triangles) {
+                if (9 * (count + 1) > coordinates.length)
+                    coordinates = Arrays.copyOf(coordinates, 2 * coordinates.length);
+                int i = 9 * count++;
+                for (Point vertex : triangle.vertices) {
+                    coordinates[i++] = vertex.getX();
+                    coordinates[i++] = vertex.getY();
+                    coordinates[i++] = vertex.getZ();
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Writes the added triangles into a file
+         *
+         * @param file the file
+         * @throws IllegalStateException if the file can not be written
+         */
+        public void write(Path file) {
+            int[] order = sortByMortonCodes();
+            int chunks = (count + chunkSize - 1) / chunkSize;
+
+            ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + chunks * ENTRY_SIZE);
+            table.putInt(MAGIC).putInt(chunks);
+            long offset = table.capacity();
+            for (int chunk = 0; chunk < chunks; ++chunk) {
+                int from = chunk * chunkSize, to = Math.min(count, from + chunkSize);
+                double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+                for (int k = from; k < to; ++k)
+                    for (int j = 9 * order[k], end = j + 9; j < end; ++j) {
+                        int axis = j % 3;
+                        bounds[axis] = Math.min(bounds[axis], coordinates[j]);
+                        bounds[axis + 3] = Math.max(bounds[axis + 3], coordinates[j]);
+                    }
+                for (double bound : bounds) table.putDouble(bound);
+                table.putLong(offset).putInt(to - from);
+                offset += (long) (to - from) * TRIANGLE_SIZE;
+            }
+            table.flip();
+
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) Files.createDirectories(parent);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    while (table.hasRemaining()) channel.write(table);
+                    ByteBuffer buffer = ByteBuffer.allocate(chunkSize * TRIANGLE_SIZE);
+                    for (int from = 0; from < count; from += chunkSize) {
+                        buffer.clear();
+                        for (int k = from, to = Math.min(count, from + chunkSize); k < to; ++k)
+                            for (int j = 9 * order[k], end = j + 9; j < end; ++j) buffer.putDouble(coordinates[j]);
+                        buffer.flip();
+                        while (buffer.hasRemaining()) channel.write(buffer);
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("I/O error - can not write paged geometries file " + file, e);
+            }
+        }
+
+        /**
+         * Sorts the added triangles by the Morton codes of their centroids
+         *
+         * @return the indices of the triangles in the sorted order
+         */
+        private int[] sortByMortonCodes() {
+            double[] centroids = new double[3 * count];
+            double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int i = 0; i < count; ++i)
+                for (int axis = 0; axis < 3; ++axis) {
+                    double c = (coordinates[9 * i + axis] + coordinates[9 * i + 3 + axis]
+                            + coordinates[9 * i + 6 + axis]) / 3;
+                    centroids[3 * i + axis] = c;
+                    bounds[axis] = Math.min(bounds[axis], c);
+                    bounds[axis + 3] = Math.max(bounds[axis + 3], c);
+                }
+
+            double cells = (1 << CODE_BITS) - 1;
+            double[] scales = new double[3];
+            for (int axis = 0; axis < 3; ++axis)
+                scales[axis] = bounds[axis + 3] > bounds[axis] ? cells / (bounds[axis + 3] - bounds[axis]) : 0;
+
+            long[] codes = new long[count];
+            int[] order = new int[count];
+            for (int i = 0; i < count; ++i) {
+                codes[i] = BVHBuilder.spreadBits((long) ((centroids[3 * i] - bounds[0]) * scales[0])) << 2
+                        | BVHBuilder.spreadBits((long) ((centroids[3 * i + 1] - bounds[1]) * scales[1])) << 1
+                        | BVHBuilder.spreadBits((long) ((centroids[3 * i + 2] - bounds[2]) * scales[2]));
+                order[i] = i;
+            }
+            BVHBuilder.radixSort(codes, order, 3 * CODE_BITS, null);
+            return order;
+        }
+    }
+}
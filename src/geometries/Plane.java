@@ -26,6 +26,11 @@ public class Plane extends Geometry {
      */
     private final Vector normal;
 
+    /**
+     * Product of the normal and the reference point - the plane equation is normal·P = offset
+     */
+    private final double offset;
+
     /**
      * Constructor to initialize Plane with a point and a normal vector
      *
@@ -35,6 +40,7 @@ public class Plane extends Geometry {
     public Plane(Point q0, Vector normal) {
         this.q0 = q0;
         this.normal = normal.normalize();
+        this.offset = q0.dotProduct(this.normal);
     }
 
     /**
@@ -52,6 +58,7 @@ public class Plane extends Geometry {
         Vector v2 = p3.subtract(p1);
 
         this.normal = v1.crossProduct(v2).normalize();
+        this.offset = q0.dotProduct(this.normal);
     }
 
     /**
@@ -79,42 +86,47 @@ public class Plane extends Geometry {
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        Point p0 = ray.getP0();
-        Vector v = ray.getDir();
+        double t = intersectionDistance(ray);
+        return t > 0 ? List.of(new Intersection(this, ray.getPoint(t))) : null;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray);
+        return t > 0 && t < maxDistance ? new Intersection(this, ray.getPoint(t)) : null;
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray);
+        return t > 0 && t < maxDistance;
+    }
 
+    /**
+     * Calculates the distance from the ray head to the intersection of the ray with the plane
+     *
+     * @param ray the ray to check intersection with
+     * @return the distance, or 0 if there is no intersection in front of the ray head
+     */
+    double intersectionDistance(Ray ray) {
         // Ray is defined by: P = P0 + t*v, t >= 0
 
-        // Plane equation: N·(P-Q0) = 0
-        // Substituting ray equation: N·(P0 + t*v - Q0) = 0
-        // Solving for t: t = N·(Q0-P0) / N·v
+        // Plane equation: N·P = N·Q0
+        // Substituting ray equation: N·P0 + t*N·v = N·Q0
+        // Solving for t: t = (N·Q0 - N·P0) / N·v
 
         // Check if ray is parallel to plane
-        double nv = normal.dotProduct(v);
+        double nv = normal.dotProduct(ray.getDir());
 
         // Ray is parallel to plane - no intersections
         if (isZero(nv)) {
-            return null;
-        }
-
-        // Check if P0 is on the plane
-        Vector p0q0;
-        try {
-            p0q0 = q0.subtract(p0);
-        } catch (IllegalArgumentException e) {
-            // P0 equals Q0, meaning P0 is on the plane
-            return null;
-        }
-
-        double t = alignZero(normal.dotProduct(p0q0) / nv);
-
-        // Check if intersection is behind ray's head or at ray's head
-        if (t <= 0) {
-            return null;
+            return 0;
         }
 
-        // Calculate intersection point
-        Point intersectionPoint = ray.getPoint(t);
+        // t is zero if P0 is on the plane
+        double t = alignZero((offset - ray.getP0().dotProduct(normal)) / nv);
 
-        return List.of(new Intersection(this, intersectionPoint));
+        // Intersection behind ray's head or at ray's head is not counted
+        return t > 0 ? t : 0;
     }
 }
\ No newline at end of file
@@ -25,6 +25,20 @@ public class Polygon extends Geometry {
      * The size of the polygon - the amount of the vertices in the polygon
      */
     private final int size;
+    /**
+     * The box bounding the polygon
+     */
+    private final BoundingBox boundingBox;
+    /**
+     * Components of the inward normals of the edges in the polygon plane, i.e. the normal of
+     * edge i (from vertex i to vertex i+1) is (edgeNormalsX[i], edgeNormalsY[i], edgeNormalsZ[i])
+     */
+    private final double[] edgeNormalsX, edgeNormalsY, edgeNormalsZ;
+    /**
+     * Offsets of the edge lines - a point P of the plane is strictly inside the polygon
+     * if the product of P with every edge normal is greater than the edge offset
+     */
+    private final double[] edgeOffsets;
 
     /**
      * Polygon constructor based on vertices list. The list must be ordered by edge
@@ -49,18 +63,55 @@ public class Polygon extends Geometry {
      *                                  </ul>
      */
     public Polygon(Point... vertices) {
+        this(true, vertices);
+    }
+
+    /**
+     * Polygon constructor for the subclasses which have their own intersection algorithm and do
+     * not need the edge lines of the inside test. Such a subclass must override all the
+     * intersection helpers
+     *
+     * @param edgeLines whether the edge lines of the inside test are to be calculated
+     * @param vertices  list of vertices according to their order by edge path
+     * @throws IllegalArgumentException in any case of illegal combination of
+     *                                  vertices, as in {@link #Polygon(Point...)}
+     */
+    protected Polygon(boolean edgeLines, Point... vertices) {
         if (vertices.length < 3)
             throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
         this.vertices = List.of(vertices);
         size = vertices.length;
+        boundingBox = new BoundingBox(vertices);
 
         // Generate the plane according to the first three vertices and associate the
         // polygon with this plane.
         // The plane holds the invariant normal (orthogonal unit) vector to the polygon
         plane = new Plane(vertices[0], vertices[1], vertices[2]);
-        if (size == 3) return; // no need for more tests for a Triangle
-
         Vector n = plane.getNormal(vertices[0]);
+
+        if (edgeLines) {
+            // Precalculate the edge lines for the inside test of intersection points
+            edgeNormalsX = new double[size];
+            edgeNormalsY = new double[size];
+            edgeNormalsZ = new double[size];
+            edgeOffsets = new double[size];
+            double nX = n.getX(), nY = n.getY(), nZ = n.getZ();
+            for (int i = 0; i < size; ++i) {
+                Point p1 = vertices[i], p2 = vertices[(i + 1) % size];
+                double eX = p2.getX() - p1.getX(), eY = p2.getY() - p1.getY(), eZ = p2.getZ() - p1.getZ();
+                // n x edge lies in the plane and points inwards - the normal is defined by the first
+                // three vertices, so the vertices of a convex polygon are counterclockwise around it
+                edgeNormalsX[i] = nY * eZ - nZ * eY;
+                edgeNormalsY[i] = nZ * eX - nX * eZ;
+                edgeNormalsZ[i] = nX * eY - nY * eX;
+                edgeOffsets[i] = edgeNormalsX[i] * p1.getX() + edgeNormalsY[i] * p1.getY()
+                        + edgeNormalsZ[i] * p1.getZ();
+            }
+        } else
+            edgeNormalsX = edgeNormalsY = edgeNormalsZ = edgeOffsets = null;
+
+        if (size == 3) return; // no need for more tests for three vertices
+
         // Subtracting any subsequent points will throw an IllegalArgumentException
         // because of Zero Vector if they are in the same point
         Vector edge1 = vertices[size - 1].subtract(vertices[size - 2]);
@@ -91,10 +142,48 @@ public class Polygon extends Geometry {
         return plane.getNormal(point);
     }
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        // For now, return null (no intersections calculated)
-        // This can be implemented in future stages if needed
-        return null;
+        double t = intersectionDistance(ray);
+        return t > 0 ? List.of(new Intersection(this, ray.getPoint(t))) : null;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray);
+        return t > 0 && t < maxDistance ? new Intersection(this, ray.getPoint(t)) : null;
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray);
+        return t > 0 && t < maxDistance;
+    }
+
+    /**
+     * Calculates the distance from the ray head to the intersection of the ray with the polygon.
+     * The ray is intersected with the plane of the polygon and the intersection point is tested
+     * against the precalculated edge lines - no objects are allocated.
+     * Intersections on the edges and the vertices are not counted
+     *
+     * @param ray the ray to check intersection with
+     * @return the distance, or 0 if there is no intersection in front of the ray head
+     */
+    private double intersectionDistance(Ray ray) {
+        double t = plane.intersectionDistance(ray);
+        if (t == 0) return 0;
+
+        double x = ray.getHeadX() + t * ray.getDirX();
+        double y = ray.getHeadY() + t * ray.getDirY();
+        double z = ray.getHeadZ() + t * ray.getDirZ();
+        for (int i = 0; i < size; ++i)
+            if (alignZero(edgeNormalsX[i] * x + edgeNormalsY[i] * y + edgeNormalsZ[i] * z - edgeOffsets[i]) <= 0)
+                return 0;
+        return t;
     }
 }
\ No newline at end of file
@@ -0,0 +1,508 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.arraySize;
+
+/**
+ * Class QuantizedBVH is a compressed bounding volume hierarchy (BVH).
+ * Only the inner nodes are stored: every inner node keeps its own box as a frame in single
+ * precision - the origin (minimal corner) and the size of a quantization step along every axis -
+ * and the boxes of its two children as 8-bit or 16-bit integer coordinates in that frame.
+ * The coordinates are rounded conservatively (minimal ones down, maximal ones up), so a child
+ * box is dequantized into a box that encloses the original one and no intersection is missed.
+ * Leaves are referenced by the index of their first geometry in the contiguous geometries array.
+ * Like {@link FlatBVH} the nodes are laid out in depth-first order and traversed with a reused
+ * stack, so the traversal allocates no objects
+ *
+ * @author Maor Atari
+ */
+final class QuantizedBVH implements BoundingVolumeHierarchy {
+    /**
+     * Frames of the inner nodes - 6 numbers per node: origin X, Y, Z then step X, Y, Z
+     */
+    private final float[] frames;
+    /**
+     * Quantized boxes of the children in 8-bit mode (null in 16-bit mode) - 12 numbers per inner
+     * node: minimal X, Y, Z and maximal X, Y, Z of the first child, then of the second one
+     */
+    private final byte[] bytes;
+    /**
+     * Quantized boxes of the children in 16-bit mode (null in 8-bit mode), same order as the bytes
+     */
+    private final char[] chars;
+    /**
+     * Children of the inner nodes - 2 numbers per node: index of an inner child node,
+     * or -(leaf + 1) for a leaf child
+     */
+    private final int[] children;
+    /**
+     * Index of the first geometry of every leaf, followed by the amount of the geometries,
+     * so that the geometries of leaf i are [leafStarts[i], leafStarts[i + 1])
+     */
+    private final int[] leafStarts;
+    /**
+     * The geometries of the leaves in depth-first order
+     */
+    private final Intersectable[] geometries;
+    /**
+     * The box bounding all the geometries (in full precision)
+     */
+    private BoundingBox box;
+    /**
+     * Maximal quantized coordinate (2^bits - 1)
+     */
+    private final int maxLevel;
+    /**
+     * Whether the root of the hierarchy is a leaf - the only case without inner nodes
+     */
+    private final boolean rootLeaf;
+    /**
+     * Traversal stack of every thread
+     */
+    private final ThreadLocal<TraversalStack> stacks;
+    /**
+     * Amount of the inner nodes written so far (during construction)
+     */
+    private int nodesCount = 0;
+    /**
+     * Amount of the leaves written so far (during construction)
+     */
+    private int leavesCount = 0;
+
+    /**
+     * Traversal stack of children with the distances at which the ray enters them
+     */
+    private static final class TraversalStack {
+        /**
+         * Children in the encoding of {@link #children}
+         */
+        final int[] entries;
+        /**
+         * Entry distances of the children
+         */
+        final double[] distances;
+
+        /**
+         * Constructor of a stack
+         *
+         * @param size the maximal amount of the entries in the stack
+         */
+        TraversalStack(int size) {
+            entries = new int[size];
+            distances = new double[size];
+        }
+    }
+
+    /**
+     * Constructor compressing a binary tree of nodes
+     *
+     * @param root the root of the tree
+     * @param bits bits per quantized coordinate - 8 or 16
+     */
+    QuantizedBVH(BVHNode root, int bits) {
+        int[] counters = new int[4]; // inner nodes, leaves, geometries, depth
+        counters[3] = count(root, 1, counters);
+        frames = new float[6 * counters[0]];
+        bytes = bits == 8 ? new byte[12 * counters[0]] : null;
+        chars = bits == 8 ? null : new char[12 * counters[0]];
+        children = new int[2 * counters[0]];
+        leafStarts = new int[counters[1] + 1];
+        geometries = new Intersectable[counters[2]];
+        box = root.box;
+        maxLevel = (1 << bits) - 1;
+        int[] nextGeometry = new int[1];
+        rootLeaf = fill(root, nextGeometry) < 0;
+        leafStarts[counters[1]] = nextGeometry[0];
+        // an inner node pops one entry and pushes at most two, so the stack never exceeds the depth + 1
+        int size = counters[3] + 1;
+        stacks = ThreadLocal.withInitial(() -> new TraversalStack(size));
+    }
+
+    /**
+     * Counts the inner nodes, the leaves and the geometries of a binary tree
+     *
+     * @param node     root of the tree
+     * @param depth    depth of the node
+     * @param counters amounts of the inner nodes, of the leaves and of the geometries, updated by the method
+     * @return the depth of the deepest leaf
+     */
+    private static int count(BVHNode node, int depth, int[] counters) {
+        if (node.geometries != null) {
+            ++counters[1];
+            counters[2] += node.geometries.length;
+            return depth;
+        }
+        ++counters[0];
+        return Math.max(count(node.left, depth + 1, counters), count(node.right, depth + 1, counters));
+    }
+
+    /**
+     * Writes a binary sub-tree in depth-first order
+     *
+     * @param node         root of the sub-tree
+     * @param nextGeometry index of the next free geometry slot, updated by the method
+     * @return the written node in the encoding of {@link #children}
+     */
+    private int fill(BVHNode node, int[] nextGeometry) {
+        if (node.geometries != null) {
+            int leaf = leavesCount++;
+            leafStarts[leaf] = nextGeometry[0];
+            for (Intersectable geometry : node.geometries) geometries[nextGeometry[0]++] = geometry;
+            return -leaf - 1;
+        }
+
+        int index = nodesCount++;
+        encode(index, node.left.box, node.right.box);
+        children[2 * index] = fill(node.left, nextGeometry);
+        children[2 * index + 1] = fill(node.right, nextGeometry);
+        return index;
+    }
+
+    /**
+     * Writes the frame of an inner node and the quantized boxes of its children
+     *
+     * @param index    the inner node index
+     * @param leftBox  the box of the first child
+     * @param rightBox the box of the second child
+     */
+    private void encode(int index, BoundingBox leftBox, BoundingBox rightBox) {
+        BoundingBox nodeBox = leftBox.union(rightBox);
+        int f = 6 * index;
+        frames[f] = origin(nodeBox.minX);
+        frames[f + 1] = origin(nodeBox.minY);
+        frames[f + 2] = origin(nodeBox.minZ);
+        // the origin is rounded down to single precision, the step must cover the box from the rounded origin
+        frames[f + 3] = step(frames[f], nodeBox.maxX);
+        frames[f + 4] = step(frames[f + 1], nodeBox.maxY);
+        frames[f + 5] = step(frames[f + 2], nodeBox.maxZ);
+        for (int axis = 0; axis < 3; ++axis) {
+            double origin = frames[f + axis], step = frames[f + 3 + axis];
+            setLevel(12 * index + axis, quantize(min(leftBox, axis), origin, step, false));
+            setLevel(12 * index + 3 + axis, quantize(max(leftBox, axis), origin, step, true));
+            setLevel(12 * index + 6 + axis, quantize(min(rightBox, axis), origin, step, false));
+            setLevel(12 * index + 9 + axis, quantize(max(rightBox, axis), origin, step, true));
+        }
+    }
+
+    /**
+     * Rounds the minimal coordinate of a box down to single precision, so that the origin of the frame
+     * is not above the minimum and the minimal level still encloses it
+     *
+     * @param min the minimal coordinate of the box
+     * @return the origin coordinate
+     */
+    private static float origin(double min) {
+        float origin = (float) min;
+        return origin > min ? Math.nextDown(origin) : origin;
+    }
+
+    /**
+     * Calculates the quantization step along an axis so that the maximal level reaches the maximal coordinate
+     *
+     * @param origin the rounded origin coordinate
+     * @param max    the maximal coordinate of the box
+     * @return the step (positive)
+     */
+    private float step(float origin, double max) {
+        float step = (float) ((max - origin) / maxLevel);
+        if (!(step > 0)) step = Float.MIN_NORMAL;
+        // rounding to single precision may shorten the step - the last level must not be below the maximum
+        while (origin + (double) step * maxLevel < max) step = Math.nextUp(step);
+        return step;
+    }
+
+    /**
+     * Quantizes a coordinate conservatively
+     *
+     * @param value  the coordinate
+     * @param origin the origin coordinate of the frame
+     * @param step   the quantization step of the frame
+     * @param up     true for rounding up (maximal coordinates), false for rounding down (minimal ones)
+     * @return the quantization level
+     */
+    private int quantize(double value, double origin, double step, boolean up) {
+        double level = (value - origin) / step;
+        int q = (int) Math.max(0, Math.min(maxLevel, up ? Math.ceil(level) : Math.floor(level)));
+        // the dequantized coordinate must enclose the original one despite the rounding of the arithmetic
+        if (up) while (q < maxLevel && origin + q * step < value) ++q;
+        else while (q > 0 && origin + q * step > value) --q;
+        return q;
+    }
+
+    /**
+     * Stores a quantization level
+     *
+     * @param i     index of the quantized coordinate
+     * @param level the level
+     */
+    private void setLevel(int i, int level) {
+        if (bytes != null) bytes[i] = (byte) level;
+        else chars[i] = (char) level;
+    }
+
+    /**
+     * Reads a quantization level
+     *
+     * @param i index of the quantized coordinate
+     * @return the level
+     */
+    private int level(int i) {
+        return bytes != null ? bytes[i] & 0xff : chars[i];
+    }
+
+    /**
+     * Gets the minimal coordinate of a box along an axis
+     *
+     * @param box  the box
+     * @param axis the axis index
+     * @return the minimal coordinate
+     */
+    private static double min(BoundingBox box, int axis) {
+        return axis == 0 ? box.minX : axis == 1 ? box.minY : box.minZ;
+    }
+
+    /**
+     * Gets the maximal coordinate of a box along an axis
+     *
+     * @param box  the box
+     * @param axis the axis index
+     * @return the maximal coordinate
+     */
+    private static double max(BoundingBox box, int axis) {
+        return axis == 0 ? box.maxX : axis == 1 ? box.maxY : box.maxZ;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    /**
+     * Calculates the surface area of the dequantized box of a child of an inner node
+     *
+     * @param node  the inner node index
+     * @param child the child index - 0 or 1
+     * @return the surface area
+     */
+    private double area(int node, int child) {
+        int f = 6 * node, q = 12 * node + 6 * child;
+        double dx = (level(q + 3) - level(q)) * (double) frames[f + 3];
+        double dy = (level(q + 4) - level(q + 1)) * (double) frames[f + 4];
+        double dz = (level(q + 5) - level(q + 2)) * (double) frames[f + 5];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    @Override
+    public double getCost() {
+        if (rootLeaf) return leafStarts[1] - leafStarts[0];
+        double rootArea = box.surfaceArea();
+        if (rootArea == 0) rootArea = 1;
+        // the root node is traversed by every ray, any other node by the rays hitting its box in the parent
+        double cost = BVHBuilder.TRAVERSAL_COST * rootArea;
+        for (int i = 0; i < children.length; ++i) {
+            int child = children[i];
+            cost += area(i / 2, i % 2)
+                    * (child >= 0 ? BVHBuilder.TRAVERSAL_COST : leafStarts[-child] - leafStarts[-child - 1]);
+        }
+        return cost / rootArea;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The exact boxes are recalculated in the reverse depth-first order and the children are
+     * quantized again in the new frames of their parents
+     */
+    @Override
+    public void refit() {
+        if (rootLeaf) {
+            box = leafBox(0);
+            return;
+        }
+        int nodes = children.length / 2;
+        BoundingBox[] exact = new BoundingBox[nodes];
+        for (int node = nodes - 1; node >= 0; --node) {
+            int left = children[2 * node], right = children[2 * node + 1];
+            BoundingBox leftBox = left >= 0 ? exact[left] : leafBox(-left - 1);
+            BoundingBox rightBox = right >= 0 ? exact[right] : leafBox(-right - 1);
+            encode(node, leftBox, rightBox);
+            exact[node] = leftBox.union(rightBox);
+        }
+        box = exact[0];
+    }
+
+    /**
+     * Calculates the box bounding the geometries of a leaf
+     *
+     * @param leaf the leaf index
+     * @return the box
+     */
+    private BoundingBox leafBox(int leaf) {
+        BoundingBox result = BoundingBox.EMPTY;
+        for (int k = leafStarts[leaf], end = leafStarts[leaf + 1]; k < end; ++k)
+            result = result.union(geometries[k].getBoundingBox());
+        return result;
+    }
+
+    @Override
+    public long getMemorySize() {
+        return arraySize(frames.length, 4)
+                + (bytes != null ? arraySize(bytes.length, 1) : arraySize(chars.length, 2))
+                + arraySize(children.length, 4) + arraySize(leafStarts.length, 4)
+                + arraySize(geometries.length, REFERENCE_SIZE);
+    }
+
+    /**
+     * Calculates the distance along a ray at which the ray enters the dequantized box of a child
+     * of an inner node (branchless slab test, see {@link BoundingBox#entryDistance})
+     *
+     * @param node        the inner node index
+     * @param child       the child index - 0 or 1
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the entry distance, or positive infinity if the box is missed within the given distance
+     */
+    private double entryDistance(int node, int child, double ox, double oy, double oz,
+                                 double invX, double invY, double invZ, double maxDistance) {
+        int f = 6 * node, q = 12 * node + 6 * child;
+        double originX = frames[f], originY = frames[f + 1], originZ = frames[f + 2];
+        double stepX = frames[f + 3], stepY = frames[f + 4], stepZ = frames[f + 5];
+
+        double tx1 = (originX + level(q) * stepX - ox) * invX, tx2 = (originX + level(q + 3) * stepX - ox) * invX;
+        double ty1 = (originY + level(q + 1) * stepY - oy) * invY, ty2 = (originY + level(q + 4) * stepY - oy) * invY;
+        double tz1 = (originZ + level(q + 2) * stepZ - oz) * invZ, tz2 = (originZ + level(q + 5) * stepZ - oz) * invZ;
+
+        double tNear = Math.max(Math.max(0, Math.min(tx1, tx2)), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+        double tFar = Math.min(Math.min(maxDistance, Math.max(tx1, tx2)), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+
+        return tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public List<Intersection> calculateIntersections(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     List<Intersection> result) {
+        if (!box.intersects(ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY)) return result;
+        if (rootLeaf) return leafIntersections(ray, 0, result);
+        int[] stack = stacks.get().entries;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            for (int child = 1; child >= 0; --child) {
+                if (entryDistance(node, child, ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY)
+                        == Double.POSITIVE_INFINITY) continue;
+                int entry = children[2 * node + child];
+                if (entry >= 0) stack[top++] = entry;
+                else result = leafIntersections(ray, -entry - 1, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the intersections of a ray with the geometries of a leaf
+     *
+     * @param ray    the ray
+     * @param leaf   the leaf index
+     * @param result the list of the intersections found so far (may be null)
+     * @return the list of the intersections found so far, or null if there are none
+     */
+    private List<Intersection> leafIntersections(Ray ray, int leaf, List<Intersection> result) {
+        for (int k = leafStarts[leaf], end = leafStarts[leaf + 1]; k < end; ++k) {
+            List<Intersection> intersections = geometries[k].calculateIntersections(ray);
+            if (intersections != null) {
+                if (result == null) result = new LinkedList<>();
+                result.addAll(intersections);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Intersection calculateClosestIntersection(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     double maxDistance) {
+        TraversalStack stack = stacks.get();
+        int[] entries = stack.entries;
+        double[] distances = stack.distances;
+        Point p0 = ray.getP0();
+        Intersection closest = null;
+
+        int top = 0;
+        entries[top] = rootLeaf ? -1 : 0;
+        distances[top++] = 0;
+        while (top > 0) {
+            --top;
+            // the entry is skipped if the closest intersection found so far is closer than its box
+            if (distances[top] >= maxDistance) continue;
+            int entry = entries[top];
+
+            if (entry < 0) {
+                int leaf = -entry - 1;
+                for (int k = leafStarts[leaf], end = leafStarts[leaf + 1]; k < end; ++k) {
+                    Intersection intersection = geometries[k].calculateClosestIntersection(ray, maxDistance);
+                    if (intersection != null) {
+                        closest = intersection;
+                        maxDistance = p0.distance(intersection.point);
+                    }
+                }
+                continue;
+            }
+
+            // children are visited front-to-back - the nearer one is pushed last
+            int first = children[2 * entry], second = children[2 * entry + 1];
+            double firstDistance = entryDistance(entry, 0, ox, oy, oz, invX, invY, invZ, maxDistance);
+            double secondDistance = entryDistance(entry, 1, ox, oy, oz, invX, invY, invZ, maxDistance);
+            if (firstDistance > secondDistance) {
+                int child = first;
+                first = second;
+                second = child;
+                double distance = firstDistance;
+                firstDistance = secondDistance;
+                secondDistance = distance;
+            }
+            if (secondDistance != Double.POSITIVE_INFINITY) {
+                entries[top] = second;
+                distances[top++] = secondDistance;
+            }
+            if (firstDistance != Double.POSITIVE_INFINITY) {
+                entries[top] = first;
+                distances[top++] = firstDistance;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public boolean hasIntersection(Ray ray, double ox, double oy, double oz,
+                                   double invX, double invY, double invZ, double maxDistance) {
+        if (!box.intersects(ox, oy, oz, invX, invY, invZ, maxDistance)) return false;
+        int[] stack = stacks.get().entries;
+        int top = 0;
+        stack[top++] = rootLeaf ? -1 : 0;
+        while (top > 0) {
+            int entry = stack[--top];
+            if (entry < 0) {
+                int leaf = -entry - 1;
+                for (int k = leafStarts[leaf], end = leafStarts[leaf + 1]; k < end; ++k)
+                    if (geometries[k].hasIntersection(ray, maxDistance)) return true;
+                continue;
+            }
+            for (int child = 1; child >= 0; --child)
+                if (entryDistance(entry, child, ox, oy, oz, invX, invY, invZ, maxDistance) != Double.POSITIVE_INFINITY)
+                    stack[top++] = children[2 * entry + child];
+        }
+        return false;
+    }
+}
@@ -0,0 +1,392 @@
+package geometries;
+
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.REFERENCE_SIZE;
+import static geometries.BoundingVolumeHierarchy.arraySize;
+
+/**
+ * Class RegularGrid is a uniform grid acceleration structure over a collection of geometries.
+ * The box bounding the bounded geometries is divided into equal cells, the amount of
+ * cells is derived from the amount of geometries, and every cell references the geometries
+ * whose bounding boxes overlap it. Rays walk through the cells using the 3D-DDA algorithm
+ * (Amanatides &amp; Woo), so only the geometries in the cells pierced by the ray are tested.
+ * A hierarchical grid replaces the dense cells by nested grids, which the rays walk through
+ * in place of the cells.
+ * Unbounded geometries (e.g. planes) are kept in a separate list that is always tested.
+ * <p>
+ * The grid is built once at construction - geometries added to the source collection
+ * afterwards are not seen by the grid.
+ *
+ * @author Maor Atari
+ */
+public class RegularGrid extends SpatialIndex {
+    /**
+     * Desired average amount of geometries per cell
+     */
+    private static final double DENSITY = 4;
+    /**
+     * Maximal amount of cells along a single axis
+     */
+    private static final int MAX_RESOLUTION = 256;
+    /**
+     * Amount of geometries above which a cell of a hierarchical grid gets a nested grid
+     */
+    private static final int DENSE_CELL = 16;
+    /**
+     * Maximal average amount of cells of a nested grid referencing a geometry - a nested grid over
+     * geometries larger than its cells would only multiply the references, so it is not kept
+     */
+    private static final int MAX_DUPLICATION = 8;
+    /**
+     * Empty cell constant - shared by all the empty cells
+     */
+    private static final Intersectable[] EMPTY_CELL = new Intersectable[0];
+
+    /**
+     * The box bounding all the bounded geometries
+     */
+    private final BoundingBox box;
+    /**
+     * Amount of cells along X axis
+     */
+    private final int nX;
+    /**
+     * Amount of cells along Y axis
+     */
+    private final int nY;
+    /**
+     * Amount of cells along Z axis
+     */
+    private final int nZ;
+    /**
+     * Size of a cell along X axis
+     */
+    private final double cellX;
+    /**
+     * Size of a cell along Y axis
+     */
+    private final double cellY;
+    /**
+     * Size of a cell along Z axis
+     */
+    private final double cellZ;
+    /**
+     * The cells - geometries overlapping every cell, indexed by x + nX * (y + nY * z)
+     */
+    private final Intersectable[][] cells;
+    /**
+     * Nested grids of the dense cells indexed as the cells (null for the other cells),
+     * or null for a single-level grid
+     */
+    private final RegularGrid[] subgrids;
+
+    /**
+     * Constructor to build the grid over a collection of geometries
+     *
+     * @param geometries the geometries to be voxelized
+     */
+    public RegularGrid(Geometries geometries) {
+        this(geometries.getGeometries());
+    }
+
+    /**
+     * Constructor to build a hierarchical grid over a collection of geometries.
+     * The cells holding more than a few geometries get nested grids over their geometries,
+     * with resolutions derived from the local amounts of geometries - so a small detailed object
+     * in a large scene is subdivided finely while the rest of the scene keeps coarse cells
+     *
+     * @param geometries the geometries to be voxelized
+     * @param levels     the amount of the levels of the grids (1 for a single-level grid)
+     * @throws IllegalArgumentException if the amount of the levels is not positive
+     */
+    public RegularGrid(Geometries geometries, int levels) {
+        this(geometries.getGeometries(), levels);
+    }
+
+    /**
+     * Constructor to build the grid over a list of geometries
+     *
+     * @param geometries the geometries to be voxelized
+     */
+    RegularGrid(List<Intersectable> geometries) {
+        this(geometries, 1);
+    }
+
+    /**
+     * Constructor to build a hierarchical grid over a list of geometries
+     *
+     * @param geometries the geometries to be voxelized
+     * @param levels     the amount of the levels of the grids (1 for a single-level grid)
+     * @throws IllegalArgumentException if the amount of the levels is not positive
+     */
+    RegularGrid(List<Intersectable> geometries, int levels) {
+        this(geometries, BoundingBox.INFINITE, checkLevels(levels));
+    }
+
+    /**
+     * Constructor to build a grid over the part of a list of geometries inside a box
+     *
+     * @param geometries the geometries to be voxelized
+     * @param clip       the box the grid is restricted to
+     * @param levels     the amount of the levels of the grids
+     */
+    private RegularGrid(List<Intersectable> geometries, BoundingBox clip, int levels) {
+        List<Intersectable> bounded = new ArrayList<>();
+        BoundingBox bounds = BoundingBox.EMPTY;
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox.isBounded()) {
+                bounded.add(geometry);
+                bounds = bounds.union(geometryBox);
+            } else {
+                unbounded.add(geometry);
+            }
+        }
+        box = bounds.intersection(clip);
+
+        if (bounded.isEmpty()) {
+            nX = nY = nZ = 0;
+            cellX = cellY = cellZ = 1;
+            cells = new Intersectable[0][];
+            subgrids = null;
+            return;
+        }
+
+        // the resolution is chosen so that the cells are close to cubes and hold
+        // DENSITY geometries in average; flat dimensions get a single cell
+        double dx = box.maxX - box.minX, dy = box.maxY - box.minY, dz = box.maxZ - box.minZ;
+        double volume = 1;
+        int dimensions = 0;
+        for (double d : new double[]{dx, dy, dz})
+            if (d > 0) {
+                volume *= d;
+                ++dimensions;
+            }
+        double cellsPerUnit = dimensions == 0 ? 0 : Math.pow(DENSITY * bounded.size() / volume, 1.0 / dimensions);
+        nX = resolution(dx, cellsPerUnit);
+        nY = resolution(dy, cellsPerUnit);
+        nZ = resolution(dz, cellsPerUnit);
+        cellX = dx > 0 ? dx / nX : 1;
+        cellY = dy > 0 ? dy / nY : 1;
+        cellZ = dz > 0 ? dz / nZ : 1;
+
+        // voxelization by bounding boxes
+        List<List<Intersectable>> lists = new ArrayList<>(Collections.nCopies(nX * nY * nZ, null));
+        for (Intersectable geometry : bounded) {
+            BoundingBox b = geometry.getBoundingBox();
+            int x0 = cellX(b.minX), x1 = cellX(b.maxX);
+            int y0 = cellY(b.minY), y1 = cellY(b.maxY);
+            int z0 = cellZ(b.minZ), z1 = cellZ(b.maxZ);
+            for (int z = z0; z <= z1; ++z)
+                for (int y = y0; y <= y1; ++y)
+                    for (int x = x0; x <= x1; ++x) {
+                        int index = x + nX * (y + nY * z);
+                        List<Intersectable> cell = lists.get(index);
+                        if (cell == null) lists.set(index, cell = new ArrayList<>());
+                        cell.add(geometry);
+                    }
+        }
+
+        cells = new Intersectable[lists.size()][];
+        for (int i = 0; i < cells.length; ++i) {
+            List<Intersectable> cell = lists.get(i);
+            cells[i] = cell == null ? EMPTY_CELL : cell.toArray(EMPTY_CELL);
+        }
+
+        if (levels == 1) {
+            subgrids = null;
+            return;
+        }
+        subgrids = new RegularGrid[cells.length];
+        for (int z = 0; z < nZ; ++z)
+            for (int y = 0; y < nY; ++y)
+                for (int x = 0; x < nX; ++x) {
+                    int index = x + nX * (y + nY * z);
+                    if (cells[index].length <= DENSE_CELL) continue;
+                    RegularGrid subgrid = new RegularGrid(lists.get(index), new BoundingBox(
+                            box.minX + x * cellX, box.minY + y * cellY, box.minZ + z * cellZ,
+                            box.minX + (x + 1) * cellX, box.minY + (y + 1) * cellY, box.minZ + (z + 1) * cellZ),
+                            levels - 1);
+                    if (subgrid.cells.length > 1
+                            && subgrid.references() <= (long) MAX_DUPLICATION * cells[index].length) {
+                        subgrids[index] = subgrid;
+                        cells[index] = EMPTY_CELL;
+                    }
+                }
+    }
+
+    /**
+     * Checks the amount of the levels of a hierarchical grid
+     *
+     * @param levels the amount of the levels
+     * @return the amount of the levels
+     * @throws IllegalArgumentException if the amount of the levels is not positive
+     */
+    private static int checkLevels(int levels) {
+        if (levels <= 0) {
+            throw new IllegalArgumentException("Levels must be positive");
+        }
+        return levels;
+    }
+
+    /**
+     * Counts the references from the cells of the grid (and of its nested grids) to the geometries
+     *
+     * @return the amount of the references
+     */
+    private long references() {
+        long references = 0;
+        for (int i = 0; i < cells.length; ++i)
+            references += subgrids != null && subgrids[i] != null ? subgrids[i].references() : cells[i].length;
+        return references;
+    }
+
+    /**
+     * Calculates the amount of cells along an axis
+     *
+     * @param extent       the extent of the grid along the axis
+     * @param cellsPerUnit the desired amount of cells per unit of length
+     * @return the amount of cells
+     */
+    private static int resolution(double extent, double cellsPerUnit) {
+        if (extent <= 0) return 1;
+        return (int) Math.max(1, Math.min(MAX_RESOLUTION, Math.ceil(extent * cellsPerUnit)));
+    }
+
+    /**
+     * Calculates the cell index along X axis for a coordinate (clamped to the grid)
+     *
+     * @param x the coordinate
+     * @return the cell index
+     */
+    private int cellX(double x) {
+        return clamp((int) ((x - box.minX) / cellX), nX);
+    }
+
+    /**
+     * Calculates the cell index along Y axis for a coordinate (clamped to the grid)
+     *
+     * @param y the coordinate
+     * @return the cell index
+     */
+    private int cellY(double y) {
+        return clamp((int) ((y - box.minY) / cellY), nY);
+    }
+
+    /**
+     * Calculates the cell index along Z axis for a coordinate (clamped to the grid)
+     *
+     * @param z the coordinate
+     * @return the cell index
+     */
+    private int cellZ(double z) {
+        return clamp((int) ((z - box.minZ) / cellZ), nZ);
+    }
+
+    /**
+     * Clamps a cell index into the range [0, n)
+     *
+     * @param index the index
+     * @param n     the amount of cells
+     * @return the clamped index
+     */
+    private static int clamp(int index, int n) {
+        return index < 0 ? 0 : (index >= n ? n - 1 : index);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return unbounded.isEmpty() ? box : BoundingBox.INFINITE;
+    }
+
+    /**
+     * Estimates the memory used by the grid - its cells and the references to the geometries,
+     * without the geometries themselves
+     *
+     * @return the size of the grid in bytes
+     */
+    public long getMemorySize() {
+        // the empty cells share a single array
+        long size = arraySize(cells.length, REFERENCE_SIZE) + arraySize(0, REFERENCE_SIZE);
+        for (Intersectable[] cell : cells)
+            if (cell != EMPTY_CELL) size += arraySize(cell.length, REFERENCE_SIZE);
+        if (subgrids != null) {
+            size += arraySize(subgrids.length, REFERENCE_SIZE);
+            for (RegularGrid subgrid : subgrids)
+                if (subgrid != null) size += subgrid.getMemorySize();
+        }
+        return size;
+    }
+
+    @Override
+    void traverse(Ray ray, double maxDistance, LeafVisitor visitor) {
+        traverse(ray.getHeadX(), ray.getHeadY(), ray.getHeadZ(), ray.getDirX(), ray.getDirY(), ray.getDirZ(),
+                maxDistance, visitor);
+    }
+
+    /**
+     * Walks through the cells pierced by a ray in front-to-back order (3D-DDA).
+     * The dense cells are walked through by their nested grids, so the visitor sees
+     * the cells of all the levels in front-to-back order
+     *
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param dirX        X component of the ray direction
+     * @param dirY        Y component of the ray direction
+     * @param dirZ        Z component of the ray direction
+     * @param maxDistance the distance from the ray head beyond which the cells are not visited
+     * @param visitor     the visitor called for every non-empty pierced cell
+     * @return true if the traversal has reached the end of the grid, false if it has been stopped
+     * by the visitor or by the maximal distance
+     */
+    private boolean traverse(double ox, double oy, double oz, double dirX, double dirY, double dirZ,
+                             double maxDistance, LeafVisitor visitor) {
+        if (cells.length == 0) return true;
+
+        double tEntry = box.entryDistance(ox, oy, oz, 1 / dirX, 1 / dirY, 1 / dirZ, maxDistance);
+        if (tEntry == Double.POSITIVE_INFINITY) return true;
+
+        double px = ox + tEntry * dirX, py = oy + tEntry * dirY, pz = oz + tEntry * dirZ;
+        int x = cellX(px), y = cellY(py), z = cellZ(pz);
+
+        int stepX = dirX > 0 ? 1 : -1, stepY = dirY > 0 ? 1 : -1, stepZ = dirZ > 0 ? 1 : -1;
+        double tDeltaX = Math.abs(cellX / dirX), tDeltaY = Math.abs(cellY / dirY), tDeltaZ = Math.abs(cellZ / dirZ);
+        double tMaxX = dirX == 0 ? Double.POSITIVE_INFINITY
+                : tEntry + (box.minX + (x + (dirX > 0 ? 1 : 0)) * cellX - px) / dirX;
+        double tMaxY = dirY == 0 ? Double.POSITIVE_INFINITY
+                : tEntry + (box.minY + (y + (dirY > 0 ? 1 : 0)) * cellY - py) / dirY;
+        double tMaxZ = dirZ == 0 ? Double.POSITIVE_INFINITY
+                : tEntry + (box.minZ + (z + (dirZ > 0 ? 1 : 0)) * cellZ - pz) / dirZ;
+
+        while (true) {
+            double tExit = Math.min(tMaxX, Math.min(tMaxY, tMaxZ));
+            int index = x + nX * (y + nY * z);
+            Intersectable[] cell = cells[index];
+            if (cell.length > 0 && !visitor.visit(cell, tExit)) return false;
+            if (subgrids != null && subgrids[index] != null
+                    && !subgrids[index].traverse(ox, oy, oz, dirX, dirY, dirZ, maxDistance, visitor)) return false;
+            // the cells behind this one are beyond the maximal distance
+            if (tExit >= maxDistance) return false;
+
+            if (tMaxX <= tMaxY && tMaxX <= tMaxZ) {
+                x += stepX;
+                if (x < 0 || x >= nX) return true;
+                tMaxX += tDeltaX;
+            } else if (tMaxY <= tMaxZ) {
+                y += stepY;
+                if (y < 0 || y >= nY) return true;
+                tMaxY += tDeltaY;
+            } else {
+                z += stepZ;
+                if (z < 0 || z >= nZ) return true;
+                tMaxZ += tDeltaZ;
+            }
+        }
+    }
+}
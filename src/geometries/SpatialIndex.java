@@ -0,0 +1,135 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Abstract class SpatialIndex is the base of the acceleration structures which partition the space
+ * into leaves referencing the geometries whose bounding boxes overlap them (grids, kd-trees, octrees).
+ * A subclass only walks through the leaves pierced by a ray in front-to-back order, and the queries
+ * are answered here on the leaves it visits. Unbounded geometries (e.g. planes) are kept in a
+ * separate list that is always tested.
+ *
+ * @author Maor Atari
+ */
+abstract class SpatialIndex extends Intersectable {
+    /**
+     * The unbounded geometries which are tested for every ray - filled by the subclass
+     */
+    final List<Intersectable> unbounded = new LinkedList<>();
+
+    /**
+     * Visitor of the leaves pierced by a ray
+     */
+    interface LeafVisitor {
+        /**
+         * Visits a leaf
+         *
+         * @param leaf         the geometries of the leaf
+         * @param exitDistance the distance along the ray at which it leaves the leaf
+         * @return true to continue to the next leaf, false to stop the traversal
+         */
+        boolean visit(Intersectable[] leaf, double exitDistance);
+    }
+
+    /**
+     * Walks through the leaves pierced by a ray in front-to-back order
+     *
+     * @param ray         the ray
+     * @param maxDistance the distance from the ray head beyond which the leaves are not visited
+     * @param visitor     the visitor called for every non-empty pierced leaf
+     */
+    abstract void traverse(Ray ray, double maxDistance, LeafVisitor visitor);
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        // a geometry may overlap many leaves - every geometry is tested only once (mailboxing)
+        Set<Intersectable> tested = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Intersection> result = new LinkedList<>();
+
+        for (Intersectable geometry : unbounded) {
+            List<Intersection> intersections = geometry.calculateIntersections(ray);
+            if (intersections != null) result.addAll(intersections);
+        }
+
+        traverse(ray, Double.POSITIVE_INFINITY, (leaf, exitDistance) -> {
+            for (Intersectable geometry : leaf) {
+                if (!tested.add(geometry)) continue;
+                List<Intersection> intersections = geometry.calculateIntersections(ray);
+                if (intersections != null) result.addAll(intersections);
+            }
+            return true;
+        });
+
+        return result.isEmpty() ? null : result;
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the geometries of the index.
+     * The traversal stops at the first leaf which yields an intersection closer than
+     * the distance at which the ray leaves the leaf - the leaves behind it are farther
+     *
+     * @param ray         the ray
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return the closest intersection, or null if there are no intersections closer than maxDistance
+     */
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        // closest intersection and its distance - arrays for the access from the visitor
+        Intersection[] closest = {null};
+        double[] closestDistance = {maxDistance};
+
+        for (Intersectable geometry : unbounded)
+            updateClosest(geometry, ray, p0, closest, closestDistance);
+
+        traverse(ray, closestDistance[0], (leaf, exitDistance) -> {
+            for (Intersectable geometry : leaf)
+                updateClosest(geometry, ray, p0, closest, closestDistance);
+            return closestDistance[0] > exitDistance;
+        });
+
+        return closest[0];
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        for (Intersectable geometry : unbounded)
+            if (geometry.hasIntersection(ray, maxDistance)) return true;
+
+        boolean[] found = {false};
+        traverse(ray, maxDistance, (leaf, exitDistance) -> {
+            for (Intersectable geometry : leaf)
+                if (geometry.hasIntersection(ray, maxDistance)) {
+                    found[0] = true;
+                    return false;
+                }
+            return true;
+        });
+        return found[0];
+    }
+
+    /**
+     * Updates the closest intersection found so far with the closest intersection of a geometry
+     *
+     * @param geometry        the geometry
+     * @param ray             the ray
+     * @param p0              the ray head
+     * @param closest         holder of the closest intersection
+     * @param closestDistance holder of the distance to the closest intersection
+     */
+    private static void updateClosest(Intersectable geometry, Ray ray, Point p0,
+                                      Intersection[] closest, double[] closestDistance) {
+        Intersection intersection = geometry.calculateClosestIntersection(ray, closestDistance[0]);
+        if (intersection != null) {
+            closest[0] = intersection;
+            closestDistance[0] = p0.distance(intersection.point);
+        }
+    }
+}
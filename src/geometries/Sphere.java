@@ -21,6 +21,16 @@ public class Sphere extends RadialGeometry {
      */
     private final Point center;
 
+    /**
+     * Coordinates of the center, kept as plain numbers for the allocation-free intersection test
+     */
+    private final double centerX, centerY, centerZ;
+
+    /**
+     * The box bounding the sphere
+     */
+    private final BoundingBox boundingBox;
+
     /**
      * Constructor to initialize Sphere with center and radius
      *
@@ -30,6 +40,16 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point center, double radius) {
         super(radius);
         this.center = center;
+        centerX = center.getX();
+        centerY = center.getY();
+        centerZ = center.getZ();
+        this.boundingBox = new BoundingBox(centerX - radius, centerY - radius, centerZ - radius,
+                centerX + radius, centerY + radius, centerZ + radius);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
     }
 
     @Override
@@ -82,4 +102,41 @@ public class Sphere extends RadialGeometry {
         // Both points are behind the ray
         return null;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        double t = closestDistance(ray);
+        return t > 0 && t < maxDistance ? new Intersection(this, ray.getPoint(t)) : null;
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        double t = closestDistance(ray);
+        return t > 0 && t < maxDistance;
+    }
+
+    /**
+     * Calculates the distance from the ray head to the closest intersection in front of it.
+     * The calculation is done on plain numbers and allocates no objects
+     *
+     * @param ray the ray to check intersection with
+     * @return the distance, or 0 if there is no intersection in front of the ray head
+     */
+    private double closestDistance(Ray ray) {
+        // u = center - p0 (zero if ray starts at sphere center, then tm = d = 0 and t = radius)
+        double ux = centerX - ray.getHeadX(), uy = centerY - ray.getHeadY(), uz = centerZ - ray.getHeadZ();
+        double tm = alignZero(ray.getDirX() * ux + ray.getDirY() * uy + ray.getDirZ() * uz);
+        double d = alignZero(Math.sqrt(Math.max(0, ux * ux + uy * uy + uz * uz - tm * tm)));
+
+        // No intersections: the ray's line is outside the sphere
+        if (d >= radius) {
+            return 0;
+        }
+
+        double th = alignZero(Math.sqrt(radius * radius - d * d));
+        double t1 = alignZero(tm - th);
+        // The nearer point if it is in front of the ray, the farther one otherwise
+        double t = t1 > 0 ? t1 : alignZero(tm + th);
+        return t > 0 ? t : 0;
+    }
+}
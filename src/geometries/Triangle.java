@@ -2,19 +2,35 @@ package geometries;
 
 import primitives.Point;
 import primitives.Ray;
-import primitives.Vector;
 
 import java.util.List;
 
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 /**
  * Class Triangle is the basic class representing a triangle in Cartesian
  * 3-Dimensional coordinate system.
+ * Intersections are calculated by the Möller–Trumbore algorithm: the first vertex and
+ * the two edges leaving it are kept as plain numbers, so a ray is tested against the
+ * triangle without allocating any object unless it hits
  *
  * @author Maor Atari
  */
 public class Triangle extends Polygon {
+    /**
+     * Coordinates of the first vertex
+     */
+    private final double p1X, p1Y, p1Z;
+    /**
+     * Components of the edge from the first vertex to the second one
+     */
+    private final double edge1X, edge1Y, edge1Z;
+    /**
+     * Components of the edge from the first vertex to the third one
+     */
+    private final double edge2X, edge2Y, edge2Z;
+
     /**
      * Constructor to initialize Triangle based on three vertices
      *
@@ -23,69 +39,97 @@ public class Triangle extends Polygon {
      * @param p3 third vertex
      */
     public Triangle(Point p1, Point p2, Point p3) {
-        super(p1, p2, p3);
+        super(false, p1, p2, p3);
+        p1X = p1.getX();
+        p1Y = p1.getY();
+        p1Z = p1.getZ();
+        edge1X = p2.getX() - p1X;
+        edge1Y = p2.getY() - p1Y;
+        edge1Z = p2.getZ() - p1Z;
+        edge2X = p3.getX() - p1X;
+        edge2Y = p3.getY() - p1Y;
+        edge2Z = p3.getZ() - p1Z;
     }
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        // First, check if ray intersects the plane of the triangle
-        // Use the old findIntersections method from plane as suggested in the instructions
-        List<Point> planeIntersections = plane.findIntersections(ray);
+        double t = intersectionDistance(ray, null);
+        return t > 0 ? List.of(new Intersection(this, ray.getPoint(t))) : null;
+    }
 
-        // If no intersection with plane, then no intersection with triangle
-        if (planeIntersections == null) {
-            return null;
-        }
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray, null);
+        return t > 0 && t < maxDistance ? new Intersection(this, ray.getPoint(t)) : null;
+    }
 
-        Point p0 = ray.getP0();
-        Vector v = ray.getDir();
-
-        // Get the three vertices of the triangle
-        Point p1 = vertices.get(0);
-        Point p2 = vertices.get(1);
-        Point p3 = vertices.get(2);
-
-        // Calculate vectors from ray origin to vertices
-        Vector v1, v2, v3;
-        try {
-            v1 = p1.subtract(p0);
-            v2 = p2.subtract(p0);
-            v3 = p3.subtract(p0);
-        } catch (IllegalArgumentException e) {
-            // Ray starts at one of the vertices
-            return null;
-        }
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray, null);
+        return t > 0 && t < maxDistance;
+    }
 
-        // Calculate normals for each edge using cross products
-        Vector n1, n2, n3;
-        try {
-            // n1 = (v1 x v2) normalized
-            n1 = v1.crossProduct(v2).normalize();
-            // n2 = (v2 x v3) normalized
-            n2 = v2.crossProduct(v3).normalize();
-            // n3 = (v3 x v1) normalized
-            n3 = v3.crossProduct(v1).normalize();
-        } catch (IllegalArgumentException e) {
-            // Vectors are parallel or zero - point is on edge/vertex
-            return null;
-        }
+    /**
+     * Calculates the barycentric coordinates of the intersection of a ray with the triangle.
+     * The coordinates are the weights of the vertices in the intersection point, i.e.
+     * P = w1*p1 + w2*p2 + w3*p3, and may be used e.g. for interpolating vertex data
+     *
+     * @param ray the ray to check intersection with
+     * @return array of the weights {w1, w2, w3} of the three vertices,
+     * or null if the ray does not intersect the triangle
+     */
+    public double[] calculateBarycentricCoordinates(Ray ray) {
+        double[] barycentric = new double[3];
+        return intersectionDistance(ray, barycentric) > 0 ? barycentric : null;
+    }
 
-        // Check if all dot products have the same sign
-        double vn1 = v.dotProduct(n1);
-        double vn2 = v.dotProduct(n2);
-        double vn3 = v.dotProduct(n3);
+    /**
+     * Calculates the distance from the ray head to the intersection of the ray with the triangle
+     * (Möller–Trumbore algorithm). Intersections on the edges and the vertices are not counted
+     *
+     * @param ray         the ray to check intersection with
+     * @param barycentric array to be filled with the barycentric coordinates of the intersection
+     *                    (may be null), untouched if there is no intersection
+     * @return the distance, or 0 if there is no intersection in front of the ray head
+     */
+    private double intersectionDistance(Ray ray, double[] barycentric) {
+        double dirX = ray.getDirX(), dirY = ray.getDirY(), dirZ = ray.getDirZ();
 
-        // If any dot product is zero, the point is on edge/vertex
-        if (isZero(vn1) || isZero(vn2) || isZero(vn3)) {
-            return null;
-        }
+        // p = dir x edge2
+        double pX = dirY * edge2Z - dirZ * edge2Y;
+        double pY = dirZ * edge2X - dirX * edge2Z;
+        double pZ = dirX * edge2Y - dirY * edge2X;
 
-        // Check if all have the same sign
-        if ((vn1 > 0 && vn2 > 0 && vn3 > 0) || (vn1 < 0 && vn2 < 0 && vn3 < 0)) {
-            // Return intersection object with this triangle as the geometry
-            return List.of(new Intersection(this, planeIntersections.get(0)));
-        }
+        // Ray is parallel to the triangle plane
+        double det = edge1X * pX + edge1Y * pY + edge1Z * pZ;
+        if (isZero(det)) return 0;
+        double invDet = 1 / det;
+
+        // s = p0 - p1
+        double sX = ray.getHeadX() - p1X, sY = ray.getHeadY() - p1Y, sZ = ray.getHeadZ() - p1Z;
+
+        // Weight of the second vertex - the point is outside or on the edge p1p3
+        double u = alignZero((sX * pX + sY * pY + sZ * pZ) * invDet);
+        if (u <= 0 || alignZero(u - 1) >= 0) return 0;
+
+        // q = s x edge1
+        double qX = sY * edge1Z - sZ * edge1Y;
+        double qY = sZ * edge1X - sX * edge1Z;
+        double qZ = sX * edge1Y - sY * edge1X;
 
-        return null;
+        // Weight of the third vertex - the point is outside or on the edge p1p2 or the edge p2p3
+        double v = alignZero((dirX * qX + dirY * qY + dirZ * qZ) * invDet);
+        if (v <= 0 || alignZero(u + v - 1) >= 0) return 0;
+
+        // Intersection behind ray's head or at ray's head is not counted
+        double t = alignZero((edge2X * qX + edge2Y * qY + edge2Z * qZ) * invDet);
+        if (t <= 0) return 0;
+
+        if (barycentric != null) {
+            barycentric[0] = 1 - u - v;
+            barycentric[1] = u;
+            barycentric[2] = v;
+        }
+        return t;
     }
-}
\ No newline at end of file
+}
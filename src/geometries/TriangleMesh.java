@@ -0,0 +1,580 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.arraySize;
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Class TriangleMesh is a mesh of triangles sharing their vertices.
+ * The coordinates of the vertices are kept in a single array and the faces are triples of
+ * indices into it, so a vertex shared by several faces is stored once and a face costs three
+ * numbers - instead of the points, the plane and the normal of a {@link Triangle} object.
+ * The faces are intersected by the Möller–Trumbore algorithm directly on the arrays, within a
+ * bounding volume hierarchy over the faces which is stored in flat arrays as well, so no object is
+ * created per face. An intersection references a lightweight view of the intersected face, which
+ * gives the normal of the face and the emission and the material of the mesh.
+ * <p>
+ * All the faces share the emission and the material of the mesh.
+ *
+ * @author Maor Atari
+ */
+public class TriangleMesh extends Geometry {
+    /**
+     * Maximal amount of faces in a leaf of the hierarchy
+     */
+    private static final int LEAF_SIZE = 4;
+
+    /**
+     * Coordinates of the vertices - 3 numbers per vertex
+     */
+    private final double[] positions;
+    /**
+     * Indices of the vertices of the faces - 3 numbers per face, counterclockwise around the normal,
+     * in the order of the leaves of the hierarchy
+     */
+    private final int[] faces;
+    /**
+     * Bounds of the nodes of the hierarchy in depth-first order - 6 numbers per node: minimal X, Y, Z
+     * then maximal X, Y, Z
+     */
+    private final double[] bounds;
+    /**
+     * Links of the nodes of the hierarchy - 2 numbers per node: for an inner node the index of the
+     * second child (the first one follows its parent) and 0, for a leaf the index of its first face
+     * and the amount of its faces
+     */
+    private final int[] links;
+    /**
+     * The box bounding all the faces
+     */
+    private final BoundingBox box;
+    /**
+     * Traversal stack of every thread
+     */
+    private final ThreadLocal<TraversalStack> stacks;
+
+    /**
+     * Traversal stack of nodes with the distances at which the ray enters them
+     */
+    private static final class TraversalStack {
+        /**
+         * Indices of the nodes
+         */
+        final int[] nodes;
+        /**
+         * Entry distances of the nodes
+         */
+        final double[] distances;
+
+        /**
+         * Constructor of a stack
+         *
+         * @param size the maximal amount of the nodes in the stack
+         */
+        TraversalStack(int size) {
+            nodes = new int[size];
+            distances = new double[size];
+        }
+    }
+
+    /**
+     * Hierarchy under construction - growing node arrays
+     */
+    private static final class Construction {
+        /**
+         * The bounds in the form of {@link #bounds}
+         */
+        double[] bounds = new double[6 * 64];
+        /**
+         * The links in the form of {@link #links}
+         */
+        int[] links = new int[2 * 64];
+        /**
+         * Amount of the nodes
+         */
+        int nodesCount = 0;
+        /**
+         * Depth of the deepest leaf
+         */
+        int depth = 0;
+
+        /**
+         * Appends a node
+         *
+         * @return the index of the node
+         */
+        int add() {
+            if (2 * nodesCount == links.length) {
+                bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+                links = Arrays.copyOf(links, 2 * links.length);
+            }
+            return nodesCount++;
+        }
+    }
+
+    /**
+     * Constructor of a mesh
+     *
+     * @param positions coordinates of the vertices - x, y, z of every vertex
+     * @param indices   indices of the vertices of the faces - 3 indices of every face
+     * @throws IllegalArgumentException <ul>
+     *                                  <li>if an array is null or its length is not a multiple of 3</li>
+     *                                  <li>if an index is out of the range of the vertices</li>
+     *                                  <li>if the vertices of a face lay on the same line</li>
+     *                                  </ul>
+     */
+    public TriangleMesh(double[] positions, int[] indices) {
+        if (positions == null || positions.length % 3 != 0) {
+            throw new IllegalArgumentException("Positions must hold 3 coordinates per vertex");
+        }
+        if (indices == null || indices.length % 3 != 0) {
+            throw new IllegalArgumentException("Indices must hold 3 vertices per face");
+        }
+        int vertices = positions.length / 3, count = indices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertices)
+                throw new IllegalArgumentException("Vertex index out of range");
+
+        this.positions = positions.clone();
+        double[] centroids = new double[3 * count];
+        for (int face = 0; face < count; ++face) {
+            int a = 3 * indices[3 * face], b = 3 * indices[3 * face + 1], c = 3 * indices[3 * face + 2];
+            double e1X = positions[b] - positions[a], e1Y = positions[b + 1] - positions[a + 1];
+            double e1Z = positions[b + 2] - positions[a + 2];
+            double e2X = positions[c] - positions[a], e2Y = positions[c + 1] - positions[a + 1];
+            double e2Z = positions[c + 2] - positions[a + 2];
+            if (e1Y * e2Z - e1Z * e2Y == 0 && e1Z * e2X - e1X * e2Z == 0 && e1X * e2Y - e1Y * e2X == 0)
+                throw new IllegalArgumentException("Vertices of a face must not lay on the same line");
+            for (int axis = 0; axis < 3; ++axis)
+                centroids[3 * face + axis] = (positions[a + axis] + positions[b + axis] + positions[c + axis]) / 3;
+        }
+
+        if (count == 0) {
+            faces = new int[0];
+            bounds = new double[0];
+            links = new int[0];
+            box = BoundingBox.EMPTY;
+            stacks = null;
+            return;
+        }
+
+        int[] order = new int[count];
+        for (int face = 0; face < count; ++face) order[face] = face;
+        Construction tree = new Construction();
+        build(tree, indices, centroids, order, 0, count, 1);
+
+        faces = new int[indices.length];
+        for (int k = 0; k < count; ++k)
+            System.arraycopy(indices, 3 * order[k], faces, 3 * k, 3);
+        bounds = Arrays.copyOf(tree.bounds, 6 * tree.nodesCount);
+        links = Arrays.copyOf(tree.links, 2 * tree.nodesCount);
+        box = new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+        int depth = tree.depth;
+        stacks = ThreadLocal.withInitial(() -> new TraversalStack(depth + 1));
+    }
+
+    /**
+     * Builds a sub-hierarchy over a range of faces in depth-first order. The faces are split at the
+     * middle of the bounds of their centroids along the widest axis, or into halves if all the
+     * centroids fall on the same side
+     *
+     * @param tree      the hierarchy under construction
+     * @param indices   the indices of the vertices of the faces
+     * @param centroids the centroids of the faces
+     * @param order     the faces, reordered in place into the order of the leaves
+     * @param from      the first face of the range
+     * @param to        the end of the range (exclusive)
+     * @param level     the depth of the node
+     */
+    private void build(Construction tree, int[] indices, double[] centroids, int[] order, int from, int to, int level) {
+        int node = tree.add();
+        double[] nodeBounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        double[] centroidBounds = nodeBounds.clone();
+        for (int k = from; k < to; ++k) {
+            int face = order[k];
+            for (int v = 0; v < 3; ++v) {
+                int p = 3 * indices[3 * face + v];
+                for (int axis = 0; axis < 3; ++axis) {
+                    nodeBounds[axis] = Math.min(nodeBounds[axis], positions[p + axis]);
+                    nodeBounds[axis + 3] = Math.max(nodeBounds[axis + 3], positions[p + axis]);
+                }
+            }
+            for (int axis = 0; axis < 3; ++axis) {
+                centroidBounds[axis] = Math.min(centroidBounds[axis], centroids[3 * face + axis]);
+                centroidBounds[axis + 3] = Math.max(centroidBounds[axis + 3], centroids[3 * face + axis]);
+            }
+        }
+        System.arraycopy(nodeBounds, 0, tree.bounds, 6 * node, 6);
+
+        if (to - from <= LEAF_SIZE) {
+            tree.links[2 * node] = from;
+            tree.links[2 * node + 1] = to - from;
+            tree.depth = Math.max(tree.depth, level);
+            return;
+        }
+
+        int axis = 0;
+        for (int a = 1; a < 3; ++a)
+            if (centroidBounds[a + 3] - centroidBounds[a] > centroidBounds[axis + 3] - centroidBounds[axis]) axis = a;
+        double middle = (centroidBounds[axis] + centroidBounds[axis + 3]) / 2;
+        int mid = from;
+        for (int k = from; k < to; ++k)
+            if (centroids[3 * order[k] + axis] < middle) {
+                int face = order[k];
+                order[k] = order[mid];
+                order[mid++] = face;
+            }
+        if (mid == from || mid == to) mid = (from + to) >>> 1;
+
+        build(tree, indices, centroids, order, from, mid, level + 1);
+        tree.links[2 * node] = tree.nodesCount;
+        tree.links[2 * node + 1] = 0;
+        build(tree, indices, centroids, order, mid, to, level + 1);
+    }
+
+    /**
+     * Gets the amount of the vertices
+     *
+     * @return the amount of the vertices
+     */
+    public int getVerticesCount() {
+        return positions.length / 3;
+    }
+
+    /**
+     * Gets the amount of the faces
+     *
+     * @return the amount of the faces
+     */
+    public int getFacesCount() {
+        return faces.length / 3;
+    }
+
+    /**
+     * Estimates the memory used by the mesh - its vertices, faces and hierarchy
+     *
+     * @return the size of the mesh in bytes
+     */
+    public long getMemorySize() {
+        return arraySize(positions.length, Double.BYTES) + arraySize(faces.length, Integer.BYTES)
+                + arraySize(bounds.length, Double.BYTES) + arraySize(links.length, Integer.BYTES);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    /**
+     * Calculates the normal of the mesh at a point on one of its faces.
+     * The faces are searched one by one - the intersections found by the mesh reference their faces,
+     * whose normals are calculated directly
+     *
+     * @param point the point on the mesh
+     * @return the unit normal of the face containing the point
+     * @throws IllegalArgumentException if the point is not on the mesh
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        for (int face = 0, count = faces.length / 3; face < count; ++face) {
+            Vector normal = faceNormal(face);
+            int a = 3 * faces[3 * face];
+            if (!isZero((x - positions[a]) * normal.getX() + (y - positions[a + 1]) * normal.getY()
+                    + (z - positions[a + 2]) * normal.getZ())) continue;
+            // the point is inside the face if it is on the inner side of the three edges
+            boolean inside = true;
+            for (int v = 0; v < 3 && inside; ++v) {
+                int p = 3 * faces[3 * face + v], q = 3 * faces[3 * face + (v + 1) % 3];
+                double eX = positions[q] - positions[p], eY = positions[q + 1] - positions[p + 1];
+                double eZ = positions[q + 2] - positions[p + 2];
+                double wX = x - positions[p], wY = y - positions[p + 1], wZ = z - positions[p + 2];
+                inside = alignZero((eY * wZ - eZ * wY) * normal.getX() + (eZ * wX - eX * wZ) * normal.getY()
+                        + (eX * wY - eY * wX) * normal.getZ()) >= 0;
+            }
+            if (inside) return normal;
+        }
+        throw new IllegalArgumentException("Point is not on the mesh");
+    }
+
+    /**
+     * Calculates the unit normal of a face
+     *
+     * @param face the face index
+     * @return the normal
+     */
+    private Vector faceNormal(int face) {
+        int a = 3 * faces[3 * face], b = 3 * faces[3 * face + 1], c = 3 * faces[3 * face + 2];
+        return new Vector(positions[b] - positions[a], positions[b + 1] - positions[a + 1], positions[b + 2] - positions[a + 2])
+                .crossProduct(new Vector(positions[c] - positions[a], positions[c + 1] - positions[a + 1],
+                        positions[c + 2] - positions[a + 2]))
+                .normalize();
+    }
+
+    /**
+     * Calculates the distance from the ray head to the intersection of the ray with a face
+     * (Möller–Trumbore algorithm, as in {@link Triangle}). Intersections on the edges and
+     * the vertices are not counted
+     *
+     * @param face the face index
+     * @param ray  the ray to check intersection with
+     * @return the distance, or 0 if there is no intersection in front of the ray head
+     */
+    private double faceDistance(int face, Ray ray) {
+        int a = 3 * faces[3 * face], b = 3 * faces[3 * face + 1], c = 3 * faces[3 * face + 2];
+        double p1X = positions[a], p1Y = positions[a + 1], p1Z = positions[a + 2];
+        double edge1X = positions[b] - p1X, edge1Y = positions[b + 1] - p1Y, edge1Z = positions[b + 2] - p1Z;
+        double edge2X = positions[c] - p1X, edge2Y = positions[c + 1] - p1Y, edge2Z = positions[c + 2] - p1Z;
+        double dirX = ray.getDirX(), dirY = ray.getDirY(), dirZ = ray.getDirZ();
+
+        // p = dir x edge2
+        double pX = dirY * edge2Z - dirZ * edge2Y;
+        double pY = dirZ * edge2X - dirX * edge2Z;
+        double pZ = dirX * edge2Y - dirY * edge2X;
+
+        // Ray is parallel to the face plane
+        double det = edge1X * pX + edge1Y * pY + edge1Z * pZ;
+        if (isZero(det)) return 0;
+        double invDet = 1 / det;
+
+        // s = p0 - p1
+        double sX = ray.getHeadX() - p1X, sY = ray.getHeadY() - p1Y, sZ = ray.getHeadZ() - p1Z;
+
+        // Weight of the second vertex - the point is outside or on the edge p1p3
+        double u = alignZero((sX * pX + sY * pY + sZ * pZ) * invDet);
+        if (u <= 0 || alignZero(u - 1) >= 0) return 0;
+
+        // q = s x edge1
+        double qX = sY * edge1Z - sZ * edge1Y;
+        double qY = sZ * edge1X - sX * edge1Z;
+        double qZ = sX * edge1Y - sY * edge1X;
+
+        // Weight of the third vertex - the point is outside or on the edge p1p2 or the edge p2p3
+        double v = alignZero((dirX * qX + dirY * qY + dirZ * qZ) * invDet);
+        if (v <= 0 || alignZero(u + v - 1) >= 0) return 0;
+
+        // Intersection behind ray's head or at ray's head is not counted
+        double t = alignZero((edge2X * qX + edge2Y * qY + edge2Z * qZ) * invDet);
+        return t > 0 ? t : 0;
+    }
+
+    /**
+     * Calculates the distance at which a ray enters the box of a node
+     *
+     * @param node        the node index
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @return the entry distance (0 if the head is inside the box),
+     * or positive infinity if the box is missed within the given distance
+     */
+    private double entryDistance(int node, double ox, double oy, double oz,
+                                 double invX, double invY, double invZ, double maxDistance) {
+        int i = 6 * node;
+        double tx1 = (bounds[i] - ox) * invX, tx2 = (bounds[i + 3] - ox) * invX;
+        double ty1 = (bounds[i + 1] - oy) * invY, ty2 = (bounds[i + 4] - oy) * invY;
+        double tz1 = (bounds[i + 2] - oz) * invZ, tz2 = (bounds[i + 5] - oz) * invZ;
+
+        double tNear = Math.max(Math.max(0, Math.min(tx1, tx2)), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+        double tFar = Math.min(Math.min(maxDistance, Math.max(tx1, tx2)), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+
+        return tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        if (links.length == 0) return null;
+        double ox = ray.getHeadX(), oy = ray.getHeadY(), oz = ray.getHeadZ();
+        double invX = 1 / ray.getDirX(), invY = 1 / ray.getDirY(), invZ = 1 / ray.getDirZ();
+        List<Intersection> result = null;
+
+        int[] stack = stacks.get().nodes;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(node, ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY)
+                    == Double.POSITIVE_INFINITY) continue;
+
+            int count = links[2 * node + 1];
+            if (count == 0) {
+                stack[top++] = links[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int face = links[2 * node], end = face + count; face < end; ++face) {
+                double t = faceDistance(face, ray);
+                if (t > 0) {
+                    if (result == null) result = new LinkedList<>();
+                    result.add(new Intersection(new Face(face), ray.getPoint(t)));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        if (links.length == 0) return null;
+        double ox = ray.getHeadX(), oy = ray.getHeadY(), oz = ray.getHeadZ();
+        double invX = 1 / ray.getDirX(), invY = 1 / ray.getDirY(), invZ = 1 / ray.getDirZ();
+        TraversalStack stack = stacks.get();
+        int[] nodes = stack.nodes;
+        double[] distances = stack.distances;
+        int closest = -1;
+
+        int top = 0;
+        nodes[top] = 0;
+        distances[top++] = entryDistance(0, ox, oy, oz, invX, invY, invZ, maxDistance);
+        while (top > 0) {
+            --top;
+            // the node is skipped if the closest intersection found so far is closer than its box
+            if (distances[top] >= maxDistance) continue;
+            int node = nodes[top];
+
+            int count = links[2 * node + 1];
+            if (count > 0) {
+                for (int face = links[2 * node], end = face + count; face < end; ++face) {
+                    double t = faceDistance(face, ray);
+                    if (t > 0 && t < maxDistance) {
+                        closest = face;
+                        maxDistance = t;
+                    }
+                }
+                continue;
+            }
+
+            // children are visited front-to-back - the nearer one is pushed last
+            int first = node + 1, second = links[2 * node];
+            double firstDistance = entryDistance(first, ox, oy, oz, invX, invY, invZ, maxDistance);
+            double secondDistance = entryDistance(second, ox, oy, oz, invX, invY, invZ, maxDistance);
+            if (firstDistance > secondDistance) {
+                int node1 = first;
+                first = second;
+                second = node1;
+                double distance = firstDistance;
+                firstDistance = secondDistance;
+                secondDistance = distance;
+            }
+            if (secondDistance != Double.POSITIVE_INFINITY) {
+                nodes[top] = second;
+                distances[top++] = secondDistance;
+            }
+            if (firstDistance != Double.POSITIVE_INFINITY) {
+                nodes[top] = first;
+                distances[top++] = firstDistance;
+            }
+        }
+        // the only objects are those of the closest intersection
+        return closest < 0 ? null : new Intersection(new Face(closest), ray.getPoint(maxDistance));
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        if (links.length == 0) return false;
+        double ox = ray.getHeadX(), oy = ray.getHeadY(), oz = ray.getHeadZ();
+        double invX = 1 / ray.getDirX(), invY = 1 / ray.getDirY(), invZ = 1 / ray.getDirZ();
+
+        int[] stack = stacks.get().nodes;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(node, ox, oy, oz, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+
+            int count = links[2 * node + 1];
+            if (count == 0) {
+                stack[top++] = links[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int face = links[2 * node], end = face + count; face < end; ++face) {
+                double t = faceDistance(face, ray);
+                if (t > 0 && t < maxDistance) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A face of the mesh as referenced by an intersection - it gives the normal of the face and keeps
+     * the emission and the material of the mesh
+     */
+    private final class Face extends Geometry {
+        /**
+         * Index of the face
+         */
+        private final int face;
+
+        /**
+         * Constructor of a view of a face
+         *
+         * @param face the face index
+         */
+        Face(int face) {
+            this.face = face;
+        }
+
+        @Override
+        public Color getEmission() {
+            return TriangleMesh.this.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return TriangleMesh.this.getMaterial();
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return faceNormal(face);
+        }
+
+        @Override
+        public BoundingBox getBoundingBox() {
+            return box;
+        }
+
+        @Override
+        protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+            double t = faceDistance(face, ray);
+            return t > 0 ? List.of(new Intersection(this, ray.getPoint(t))) : null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            return obj instanceof Face other && other.owner() == TriangleMesh.this && other.face == face;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(TriangleMesh.this) + face;
+        }
+
+        /**
+         * Gets the mesh of the face
+         *
+         * @return the mesh
+         */
+        private TriangleMesh owner() {
+            return TriangleMesh.this;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import primitives.Vector;
 
 import java.util.List;
 
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 /**
@@ -51,8 +52,78 @@ public class Tube extends RadialGeometry {
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        // For now, return null (no intersections calculated)
-        // This can be implemented in future stages if needed
-        return null;
+        double[] distances = new double[2];
+        int count = surfaceDistances(ray, distances);
+        // the ray line hits the surface twice - keep the points in front of the ray head
+        if (count == 0 || distances[1] <= 0) return null;
+        Intersection far = new Intersection(this, ray.getPoint(distances[1]));
+        return distances[0] <= 0 ? List.of(far)
+                : List.of(new Intersection(this, ray.getPoint(distances[0])), far);
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        double t = closestDistance(ray);
+        return t > 0 && t < maxDistance ? new Intersection(this, ray.getPoint(t)) : null;
+    }
+
+    @Override
+    protected boolean hasIntersectionHelper(Ray ray, double maxDistance) {
+        double t = closestDistance(ray);
+        return t > 0 && t < maxDistance;
+    }
+
+    /**
+     * Calculates the distance from the ray head to the closest intersection in front of it
+     *
+     * @param ray the ray to check intersection with
+     * @return the distance, or 0 if there is no intersection in front of the ray head
+     */
+    private double closestDistance(Ray ray) {
+        double[] distances = new double[2];
+        if (surfaceDistances(ray, distances) == 0) return 0;
+        // The nearer point if it is in front of the ray, the farther one otherwise
+        return distances[0] > 0 ? distances[0] : Math.max(distances[1], 0);
+    }
+
+    /**
+     * Calculates the distances along a ray to the intersections of the ray line with the
+     * (infinite) lateral surface of the tube. The ray and the axis are projected onto the plane
+     * orthogonal to the axis, where the surface is a circle, which gives the quadratic equation
+     * a*t^2 + b*t + c = 0 with a = |v⊥|^2, b = 2*v⊥·Δ⊥, c = |Δ⊥|^2 - r^2
+     * (v is the ray direction and Δ is the vector from the axis head to the ray head).
+     * The calculation is done on plain numbers and allocates no objects
+     *
+     * @param ray       the ray to check intersection with
+     * @param distances array of (at least) two numbers to be filled by the distances in
+     *                  ascending order (the distances behind the ray head are negative or zero)
+     * @return the amount of the intersections of the ray line - 0 if the line is parallel to the
+     * axis, tangent to the surface or misses it, otherwise 2
+     */
+    protected final int surfaceDistances(Ray ray, double[] distances) {
+        double aX = axisRay.getDirX(), aY = axisRay.getDirY(), aZ = axisRay.getDirZ();
+        double vX = ray.getDirX(), vY = ray.getDirY(), vZ = ray.getDirZ();
+        double dX = ray.getHeadX() - axisRay.getHeadX();
+        double dY = ray.getHeadY() - axisRay.getHeadY();
+        double dZ = ray.getHeadZ() - axisRay.getHeadZ();
+
+        double va = vX * aX + vY * aY + vZ * aZ;
+        double da = dX * aX + dY * aY + dZ * aZ;
+
+        // Ray is parallel to the axis - no intersections
+        double a = alignZero(1 - va * va);
+        if (a <= 0) return 0;
+
+        double b = 2 * (vX * dX + vY * dY + vZ * dZ - va * da);
+        double c = dX * dX + dY * dY + dZ * dZ - da * da - radiusSquared;
+
+        // Ray line misses the surface or is tangent to it
+        double discriminant = alignZero(b * b - 4 * a * c);
+        if (discriminant <= 0) return 0;
+
+        double root = Math.sqrt(discriminant);
+        distances[0] = alignZero((-b - root) / (2 * a));
+        distances[1] = alignZero((-b + root) / (2 * a));
+        return 2;
     }
 }
\ No newline at end of file
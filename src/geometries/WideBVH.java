@@ -0,0 +1,437 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static geometries.BoundingVolumeHierarchy.arraySize;
+
+/**
+ * Class WideBVH is a 4-wide bounding volume hierarchy (BVH): every node has up to four children
+ * and the boxes of all the children of a node are tested against a ray at once.
+ * The hierarchy is collapsed from a binary one by repeatedly replacing the inner child with
+ * the largest surface area by its two children. The bounds of the children of a node are stored
+ * in structure-of-arrays form (4 minimal X coordinates, then 4 minimal Y coordinates, etc.),
+ * so the slab test of the four children is the same arithmetic on four consecutive lanes - a
+ * fixed-length loop without branches that the JIT compiler may execute with SIMD instructions.
+ * The lanes of missing children hold NaN bounds, which never pass the slab test
+ *
+ * @author Maor Atari
+ */
+final class WideBVH implements BoundingVolumeHierarchy {
+    /**
+     * The amount of the children of a node
+     */
+    static final int WIDTH = 4;
+
+    /**
+     * Bounds of the children - 6 * WIDTH numbers per node: WIDTH minimal X coordinates,
+     * WIDTH minimal Y coordinates, WIDTH minimal Z coordinates, then the maximal ones
+     */
+    double[] bounds;
+    /**
+     * Children of the nodes - WIDTH numbers per node: index of the child node for an inner child,
+     * index of the first geometry for a leaf child
+     */
+    int[] children;
+    /**
+     * Amounts of the geometries of the children - WIDTH numbers per node: 0 for an inner child or
+     * a missing one, the amount of the geometries for a leaf child
+     */
+    int[] counts;
+    /**
+     * The geometries of the leaves in depth-first order
+     */
+    final Intersectable[] geometries;
+    /**
+     * The box bounding all the geometries
+     */
+    private BoundingBox box;
+    /**
+     * Traversal stack of every thread
+     */
+    private final ThreadLocal<TraversalStack> stacks;
+    /**
+     * Amount of the nodes written so far (during construction)
+     */
+    private int nodesCount = 0;
+    /**
+     * Amount of the geometries written so far (during construction)
+     */
+    private int geometriesCount = 0;
+
+    /**
+     * Traversal stack of the node children with the distances at which the ray enters them,
+     * and the entry distances of the children of the current node
+     */
+    private static final class TraversalStack {
+        /**
+         * Entries of the stack: index of a node, or -(lane + 1) for a leaf child whose lane
+         * index is node * WIDTH + child
+         */
+        final int[] entries;
+        /**
+         * Entry distances of the stack entries
+         */
+        final double[] distances;
+        /**
+         * Entry distances of the children of the current node
+         */
+        final double[] lanes = new double[WIDTH];
+
+        /**
+         * Constructor of a stack
+         *
+         * @param size the maximal amount of the entries in the stack
+         */
+        TraversalStack(int size) {
+            entries = new int[size];
+            distances = new double[size];
+        }
+    }
+
+    /**
+     * Constructor collapsing a binary tree of nodes
+     *
+     * @param root the root of the tree
+     */
+    WideBVH(BVHNode root) {
+        int[] counters = new int[3]; // inner nodes, geometries, depth
+        counters[2] = count(root, 1, counters);
+        // every wide node replaces at least one binary inner node - the arrays are trimmed after the collapse
+        int maxNodes = Math.max(1, counters[0]);
+        bounds = new double[6 * WIDTH * maxNodes];
+        children = new int[WIDTH * maxNodes];
+        counts = new int[WIDTH * maxNodes];
+        geometries = new Intersectable[counters[1]];
+        box = root.box;
+        fill(root);
+        bounds = Arrays.copyOf(bounds, 6 * WIDTH * nodesCount);
+        children = Arrays.copyOf(children, WIDTH * nodesCount);
+        counts = Arrays.copyOf(counts, WIDTH * nodesCount);
+        // a node pops one entry and pushes at most WIDTH, the depth is not more than the binary one
+        int size = (WIDTH - 1) * counters[2] + 2;
+        stacks = ThreadLocal.withInitial(() -> new TraversalStack(size));
+    }
+
+    /**
+     * Counts the inner nodes and the geometries of a binary tree
+     *
+     * @param node     root of the tree
+     * @param depth    depth of the node
+     * @param counters amount of the inner nodes and amount of the geometries, updated by the method
+     * @return the depth of the deepest leaf
+     */
+    private static int count(BVHNode node, int depth, int[] counters) {
+        if (node.geometries != null) {
+            counters[1] += node.geometries.length;
+            return depth;
+        }
+        ++counters[0];
+        return Math.max(count(node.left, depth + 1, counters), count(node.right, depth + 1, counters));
+    }
+
+    /**
+     * Writes a node collapsed from a binary sub-tree and its descendants in depth-first order
+     *
+     * @param node root of the binary sub-tree
+     * @return index of the written node
+     */
+    private int fill(BVHNode node) {
+        // gather up to WIDTH children, opening the inner child with the largest area each time
+        BVHNode[] lanes = new BVHNode[WIDTH];
+        int lanesCount;
+        if (node.geometries != null) {
+            lanes[0] = node;
+            lanesCount = 1;
+        } else {
+            lanes[0] = node.left;
+            lanes[1] = node.right;
+            lanesCount = 2;
+        }
+        while (lanesCount < WIDTH) {
+            int open = -1;
+            double largest = -1;
+            for (int lane = 0; lane < lanesCount; ++lane) {
+                if (lanes[lane].geometries == null && lanes[lane].box.surfaceArea() > largest) {
+                    largest = lanes[lane].box.surfaceArea();
+                    open = lane;
+                }
+            }
+            if (open < 0) break;
+            BVHNode inner = lanes[open];
+            lanes[open] = inner.left;
+            lanes[lanesCount++] = inner.right;
+        }
+
+        int index = nodesCount++;
+        int base = index * WIDTH;
+        for (int lane = 0; lane < WIDTH; ++lane) {
+            BVHNode child = lane < lanesCount ? lanes[lane] : null;
+            setBounds(index, lane, child == null ? null : child.box);
+            if (child == null) {
+                children[base + lane] = -1;
+                counts[base + lane] = 0;
+            } else if (child.geometries != null) {
+                children[base + lane] = geometriesCount;
+                counts[base + lane] = child.geometries.length;
+                for (Intersectable geometry : child.geometries) geometries[geometriesCount++] = geometry;
+            } else {
+                children[base + lane] = fill(child);
+                counts[base + lane] = 0;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Writes the bounds of a child lane
+     *
+     * @param node     the node index
+     * @param lane     the child lane
+     * @param childBox the box of the child, or null for a missing child (NaN bounds)
+     */
+    private void setBounds(int node, int lane, BoundingBox childBox) {
+        int i = 6 * WIDTH * node + lane;
+        bounds[i] = childBox == null ? Double.NaN : childBox.minX;
+        bounds[i + WIDTH] = childBox == null ? Double.NaN : childBox.minY;
+        bounds[i + 2 * WIDTH] = childBox == null ? Double.NaN : childBox.minZ;
+        bounds[i + 3 * WIDTH] = childBox == null ? Double.NaN : childBox.maxX;
+        bounds[i + 4 * WIDTH] = childBox == null ? Double.NaN : childBox.maxY;
+        bounds[i + 5 * WIDTH] = childBox == null ? Double.NaN : childBox.maxZ;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    public long getMemorySize() {
+        return arraySize(bounds.length, 8) + arraySize(children.length, 4) + arraySize(counts.length, 4)
+                + arraySize(geometries.length, REFERENCE_SIZE);
+    }
+
+    /**
+     * Calculates the surface area of the box of a child lane
+     *
+     * @param node the node index
+     * @param lane the child lane
+     * @return the surface area
+     */
+    private double area(int node, int lane) {
+        int i = 6 * WIDTH * node + lane;
+        double dx = bounds[i + 3 * WIDTH] - bounds[i];
+        double dy = bounds[i + 4 * WIDTH] - bounds[i + WIDTH];
+        double dz = bounds[i + 5 * WIDTH] - bounds[i + 2 * WIDTH];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    @Override
+    public double getCost() {
+        double rootArea = box.surfaceArea();
+        if (rootArea == 0) rootArea = 1;
+        // the root node is traversed by every ray, any other node by the rays hitting its lane in the parent
+        double cost = BVHBuilder.TRAVERSAL_COST * rootArea;
+        for (int i = 0; i < children.length; ++i)
+            if (children[i] >= 0)
+                cost += area(i / WIDTH, i % WIDTH) * (counts[i] == 0 ? BVHBuilder.TRAVERSAL_COST : counts[i]);
+        return cost / rootArea;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The children of a node follow it in the depth-first order, so the nodes are refitted
+     * in the reverse order of the arrays
+     */
+    @Override
+    public void refit() {
+        for (int node = children.length / WIDTH - 1; node >= 0; --node)
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                int child = children[WIDTH * node + lane], count = counts[WIDTH * node + lane];
+                if (child < 0) continue;
+                setBounds(node, lane, count == 0 ? nodeBox(child) : leafBox(child, count));
+            }
+        box = nodeBox(0);
+    }
+
+    /**
+     * Calculates the box bounding the geometries of a leaf
+     *
+     * @param first index of the first geometry of the leaf
+     * @param count amount of the geometries of the leaf
+     * @return the box
+     */
+    private BoundingBox leafBox(int first, int count) {
+        BoundingBox result = BoundingBox.EMPTY;
+        for (int k = first; k < first + count; ++k) result = result.union(geometries[k].getBoundingBox());
+        return result;
+    }
+
+    /**
+     * Calculates the box bounding the children of a node
+     *
+     * @param node the node index
+     * @return the box
+     */
+    private BoundingBox nodeBox(int node) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int lane = 0; lane < WIDTH; ++lane) {
+            if (children[WIDTH * node + lane] < 0) continue;
+            int i = 6 * WIDTH * node + lane;
+            minX = Math.min(minX, bounds[i]);
+            minY = Math.min(minY, bounds[i + WIDTH]);
+            minZ = Math.min(minZ, bounds[i + 2 * WIDTH]);
+            maxX = Math.max(maxX, bounds[i + 3 * WIDTH]);
+            maxY = Math.max(maxY, bounds[i + 4 * WIDTH]);
+            maxZ = Math.max(maxZ, bounds[i + 5 * WIDTH]);
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Calculates the distances along a ray at which the ray enters the boxes of all the children
+     * of a node (branchless slab test of all the lanes at once, see {@link BoundingBox#entryDistance})
+     *
+     * @param node        the node index
+     * @param ox          X coordinate of the ray head
+     * @param oy          Y coordinate of the ray head
+     * @param oz          Z coordinate of the ray head
+     * @param invX        inverse of X component of the ray direction
+     * @param invY        inverse of Y component of the ray direction
+     * @param invZ        inverse of Z component of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @param distances   array of WIDTH numbers to be filled by the entry distances,
+     *                    positive infinity (or NaN) for the missed children
+     */
+    private void entryDistances(int node, double ox, double oy, double oz,
+                                double invX, double invY, double invZ, double maxDistance,
+                                double[] distances) {
+        int base = 6 * WIDTH * node;
+        for (int lane = 0; lane < WIDTH; ++lane) {
+            int i = base + lane;
+            double tx1 = (bounds[i] - ox) * invX, tx2 = (bounds[i + 3 * WIDTH] - ox) * invX;
+            double ty1 = (bounds[i + WIDTH] - oy) * invY, ty2 = (bounds[i + 4 * WIDTH] - oy) * invY;
+            double tz1 = (bounds[i + 2 * WIDTH] - oz) * invZ, tz2 = (bounds[i + 5 * WIDTH] - oz) * invZ;
+
+            double tNear = Math.max(Math.max(0, Math.min(tx1, tx2)), Math.max(Math.min(ty1, ty2), Math.min(tz1, tz2)));
+            double tFar = Math.min(Math.min(maxDistance, Math.max(tx1, tx2)), Math.min(Math.max(ty1, ty2), Math.max(tz1, tz2)));
+
+            distances[lane] = tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    @Override
+    public List<Intersection> calculateIntersections(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     List<Intersection> result) {
+        TraversalStack stack = stacks.get();
+        int[] entries = stack.entries;
+        double[] lanes = stack.lanes;
+        int top = 0;
+        entries[top++] = 0;
+        while (top > 0) {
+            int node = entries[--top];
+            entryDistances(node, ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY, lanes);
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                if (lanes[lane] == Double.POSITIVE_INFINITY) continue;
+                int child = node * WIDTH + lane;
+                if (counts[child] == 0) {
+                    entries[top++] = children[child];
+                    continue;
+                }
+                for (int k = children[child], end = k + counts[child]; k < end; ++k) {
+                    List<Intersection> intersections = geometries[k].calculateIntersections(ray);
+                    if (intersections != null) {
+                        if (result == null) result = new LinkedList<>();
+                        result.addAll(intersections);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Intersection calculateClosestIntersection(Ray ray, double ox, double oy, double oz,
+                                                     double invX, double invY, double invZ,
+                                                     double maxDistance) {
+        TraversalStack stack = stacks.get();
+        int[] entries = stack.entries;
+        double[] distances = stack.distances;
+        double[] lanes = stack.lanes;
+        Point p0 = ray.getP0();
+        Intersection closest = null;
+
+        int top = 0;
+        entries[top] = 0;
+        distances[top++] = 0;
+        while (top > 0) {
+            --top;
+            // the entry is skipped if the closest intersection found so far is closer than its box
+            if (distances[top] >= maxDistance) continue;
+            int entry = entries[top];
+
+            if (entry < 0) {
+                int child = -entry - 1;
+                for (int k = children[child], end = k + counts[child]; k < end; ++k) {
+                    Intersection intersection = geometries[k].calculateClosestIntersection(ray, maxDistance);
+                    if (intersection != null) {
+                        closest = intersection;
+                        maxDistance = p0.distance(intersection.point);
+                    }
+                }
+                continue;
+            }
+
+            // the hit children are pushed far-to-near, so that they are visited front-to-back
+            entryDistances(entry, ox, oy, oz, invX, invY, invZ, maxDistance, lanes);
+            int first = top;
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                double distance = lanes[lane];
+                if (distance == Double.POSITIVE_INFINITY) continue;
+                int child = entry * WIDTH + lane;
+                int pushed = counts[child] == 0 ? children[child] : -child - 1;
+                // insertion into the pushed entries in descending order of distance
+                int j = top++;
+                for (; j > first && distances[j - 1] < distance; --j) {
+                    entries[j] = entries[j - 1];
+                    distances[j] = distances[j - 1];
+                }
+                entries[j] = pushed;
+                distances[j] = distance;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public boolean hasIntersection(Ray ray, double ox, double oy, double oz,
+                                   double invX, double invY, double invZ, double maxDistance) {
+        TraversalStack stack = stacks.get();
+        int[] entries = stack.entries;
+        double[] lanes = stack.lanes;
+        int top = 0;
+        entries[top++] = 0;
+        while (top > 0) {
+            int node = entries[--top];
+            entryDistances(node, ox, oy, oz, invX, invY, invZ, maxDistance, lanes);
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                if (lanes[lane] == Double.POSITIVE_INFINITY) continue;
+                int child = node * WIDTH + lane;
+                if (counts[child] == 0) {
+                    entries[top++] = children[child];
+                    continue;
+                }
+                for (int k = children[child], end = k + counts[child]; k < end; ++k)
+                    if (geometries[k].hasIntersection(ray, maxDistance)) return true;
+            }
+        }
+        return false;
+    }
+}
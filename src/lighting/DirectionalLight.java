@@ -38,7 +38,13 @@ public class DirectionalLight extends Light implements LightSource {
 
     @Override
     public Vector getL(Point p) {
-        // Direction from light to point is always the same (opposite to light direction)
-        return direction.scale(-1);
+        // Direction from light to point is always the same - the light direction
+        return direction;
+    }
+
+    @Override
+    public double getDistance(Point p) {
+        // Directional light is infinitely far away
+        return Double.POSITIVE_INFINITY;
     }
 }
\ No newline at end of file
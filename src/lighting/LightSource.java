@@ -27,4 +27,12 @@ public interface LightSource {
      * @return the normalized direction vector from light source to point p
      */
     Vector getL(Point p);
+
+    /**
+     * Gets the distance from the light source to a given point
+     *
+     * @param p the point to calculate distance to
+     * @return the distance from the light source to point p
+     */
+    double getDistance(Point p);
 }
\ No newline at end of file
@@ -97,4 +97,9 @@ public class PointLight extends Light implements LightSource {
         // Direction from light source to point
         return p.subtract(position).normalize();
     }
+
+    @Override
+    public double getDistance(Point p) {
+        return position.distance(p);
+    }
 }
\ No newline at end of file
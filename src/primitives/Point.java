@@ -1,7 +1,5 @@
 package primitives;
 
-import java.lang.reflect.Field;
-
 /**
  * This class represents a Point in 3D space
  *
@@ -39,48 +37,30 @@ public class Point {
     }
 
     /**
-     * Get X coordinate using reflection
+     * Get X coordinate
      *
      * @return X coordinate
      */
     public double getX() {
-        try {
-            Field field = Double3.class.getDeclaredField("d1");
-            field.setAccessible(true);
-            return (Double) field.get(xyz);
-        } catch (Exception e) {
-            throw new RuntimeException("Cannot access d1 field", e);
-        }
+        return xyz.d1();
     }
 
     /**
-     * Get Y coordinate using reflection
+     * Get Y coordinate
      *
      * @return Y coordinate
      */
     public double getY() {
-        try {
-            Field field = Double3.class.getDeclaredField("d2");
-            field.setAccessible(true);
-            return (Double) field.get(xyz);
-        } catch (Exception e) {
-            throw new RuntimeException("Cannot access d2 field", e);
-        }
+        return xyz.d2();
     }
 
     /**
-     * Get Z coordinate using reflection
+     * Get Z coordinate
      *
      * @return Z coordinate
      */
     public double getZ() {
-        try {
-            Field field = Double3.class.getDeclaredField("d3");
-            field.setAccessible(true);
-            return (Double) field.get(xyz);
-        } catch (Exception e) {
-            throw new RuntimeException("Cannot access d3 field", e);
-        }
+        return xyz.d3();
     }
 
     /**
@@ -110,9 +90,21 @@ public class Point {
      * @return squared distance
      */
     public double distanceSquared(Point other) {
-        double dx = getX() - other.getX();
-        double dy = getY() - other.getY();
-        double dz = getZ() - other.getZ();
+        return distanceSquared(other.xyz.d1(), other.xyz.d2(), other.xyz.d3());
+    }
+
+    /**
+     * Calculate squared distance between this point and a point given by its coordinates
+     *
+     * @param x X coordinate of the other point
+     * @param y Y coordinate of the other point
+     * @param z Z coordinate of the other point
+     * @return squared distance
+     */
+    public double distanceSquared(double x, double y, double z) {
+        double dx = xyz.d1() - x;
+        double dy = xyz.d2() - y;
+        double dz = xyz.d3() - z;
         return dx * dx + dy * dy + dz * dz;
     }
 
@@ -126,6 +118,29 @@ public class Point {
         return Math.sqrt(distanceSquared(other));
     }
 
+    /**
+     * Calculate distance between this point and a point given by its coordinates
+     *
+     * @param x X coordinate of the other point
+     * @param y Y coordinate of the other point
+     * @param z Z coordinate of the other point
+     * @return distance
+     */
+    public double distance(double x, double y, double z) {
+        return Math.sqrt(distanceSquared(x, y, z));
+    }
+
+    /**
+     * Calculate dot product of the position vector of this point (from the origin) with a vector,
+     * without creating the position vector
+     *
+     * @param vector the vector
+     * @return dot product value
+     */
+    public double dotProduct(Vector vector) {
+        return xyz.d1() * vector.xyz.d1() + xyz.d2() * vector.xyz.d2() + xyz.d3() * vector.xyz.d3();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -13,6 +13,12 @@ import static primitives.Util.isZero;
  * @author Maor Atari
  */
 public class Ray {
+    /**
+     * Size of the shift of ray heads for secondary rays (e.g. shadow rays)
+     * so that they do not intersect the surface they start from
+     */
+    private static final double DELTA = 0.1;
+
     /**
      * The starting point of the ray
      */
@@ -22,6 +28,34 @@ public class Ray {
      */
     private final Vector dir;
 
+    // Coordinates of the head and components of the direction, kept as plain numbers
+    // so that intersection code may work on them without allocating objects
+
+    /**
+     * X coordinate of the starting point
+     */
+    private final double headX;
+    /**
+     * Y coordinate of the starting point
+     */
+    private final double headY;
+    /**
+     * Z coordinate of the starting point
+     */
+    private final double headZ;
+    /**
+     * X component of the normalized direction
+     */
+    private final double dirX;
+    /**
+     * Y component of the normalized direction
+     */
+    private final double dirY;
+    /**
+     * Z component of the normalized direction
+     */
+    private final double dirZ;
+
     /**
      * Constructor to initialize Ray based on starting point and direction vector
      *
@@ -30,7 +64,54 @@ public class Ray {
      */
     public Ray(Point p0, Vector dir) {
         this.p0 = p0;
-        this.dir = dir.normalize();
+        headX = p0.xyz.d1();
+        headY = p0.xyz.d2();
+        headZ = p0.xyz.d3();
+
+        double x = dir.xyz.d1(), y = dir.xyz.d2(), z = dir.xyz.d3();
+        double length = Math.sqrt(x * x + y * y + z * z);
+        // an already normalized direction is kept as is
+        if (isZero(length - 1)) {
+            this.dir = dir;
+        } else {
+            x /= length;
+            y /= length;
+            z /= length;
+            this.dir = new Vector(x, y, z);
+        }
+        dirX = x;
+        dirY = y;
+        dirZ = z;
+    }
+
+    /**
+     * Constructor to initialize a secondary Ray starting at a surface point.
+     * The head is shifted by a small distance along the surface normal, towards the
+     * side of the surface the ray goes to
+     *
+     * @param p0     the surface point
+     * @param dir    the direction vector (will be normalized)
+     * @param normal the normal vector to the surface at the point
+     */
+    public Ray(Point p0, Vector dir, Vector normal) {
+        this(shiftHead(p0, dir, normal), dir);
+    }
+
+    /**
+     * Shifts the head of a secondary ray by a small distance along the surface normal
+     *
+     * @param p0     the surface point
+     * @param dir    the direction vector of the ray
+     * @param normal the normal vector to the surface at the point
+     * @return the shifted head, or the point itself if the ray is tangent to the surface
+     */
+    private static Point shiftHead(Point p0, Vector dir, Vector normal) {
+        double nv = normal.dotProduct(dir);
+        if (isZero(nv)) return p0;
+        double delta = nv > 0 ? DELTA : -DELTA;
+        return new Point(p0.xyz.d1() + normal.xyz.d1() * delta,
+                p0.xyz.d2() + normal.xyz.d2() * delta,
+                p0.xyz.d3() + normal.xyz.d3() * delta);
     }
 
     /**
@@ -51,6 +132,60 @@ public class Ray {
         return dir;
     }
 
+    /**
+     * Gets the X coordinate of the starting point
+     *
+     * @return X coordinate of the starting point
+     */
+    public double getHeadX() {
+        return headX;
+    }
+
+    /**
+     * Gets the Y coordinate of the starting point
+     *
+     * @return Y coordinate of the starting point
+     */
+    public double getHeadY() {
+        return headY;
+    }
+
+    /**
+     * Gets the Z coordinate of the starting point
+     *
+     * @return Z coordinate of the starting point
+     */
+    public double getHeadZ() {
+        return headZ;
+    }
+
+    /**
+     * Gets the X component of the (normalized) direction
+     *
+     * @return X component of the direction
+     */
+    public double getDirX() {
+        return dirX;
+    }
+
+    /**
+     * Gets the Y component of the (normalized) direction
+     *
+     * @return Y component of the direction
+     */
+    public double getDirY() {
+        return dirY;
+    }
+
+    /**
+     * Gets the Z component of the (normalized) direction
+     *
+     * @return Z component of the direction
+     */
+    public double getDirZ() {
+        return dirZ;
+    }
+
     /**
      * Calculates a point on the ray at a given distance from the starting point
      *
@@ -61,7 +196,7 @@ public class Ray {
         if (isZero(t)) {
             return p0;
         }
-        return p0.add(dir.scale(t));
+        return new Point(headX + dirX * t, headY + dirY * t, headZ + dirZ * t);
     }
 
     /**
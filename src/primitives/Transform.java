@@ -0,0 +1,277 @@
+package primitives;
+
+import java.util.Arrays;
+
+import static primitives.Util.isZero;
+
+/**
+ * Class Transform represents an invertible affine transformation of the 3-Dimensional space -
+ * a linear map (rotation, scaling, shearing) followed by a translation.
+ * The transformation is immutable and keeps its inverse, so that both directions are
+ * applied without solving anything per call.
+ *
+ * @author Maor Atari
+ */
+public final class Transform {
+    /**
+     * The identity transformation
+     */
+    public static final Transform IDENTITY = new Transform(new double[]{
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0});
+
+    /**
+     * The matrix of the transformation - 3 rows of 4 numbers: the linear part in the first
+     * three columns and the translation in the last one
+     */
+    private final double[] matrix;
+    /**
+     * The matrix of the inverse transformation in the same form
+     */
+    private final double[] inverse;
+
+    /**
+     * Constructor of a transformation by its matrix, calculating the inverse matrix
+     *
+     * @param matrix 3 rows of 4 numbers: linear part then translation
+     * @throws IllegalArgumentException if the transformation is not invertible
+     */
+    private Transform(double[] matrix) {
+        this.matrix = matrix;
+        this.inverse = invert(matrix);
+    }
+
+    /**
+     * Constructor of a transformation by its matrix and the matrix of its inverse
+     *
+     * @param matrix  3 rows of 4 numbers: linear part then translation
+     * @param inverse the matrix of the inverse transformation in the same form
+     */
+    private Transform(double[] matrix, double[] inverse) {
+        this.matrix = matrix;
+        this.inverse = inverse;
+    }
+
+    /**
+     * Constructor of a transformation by its linear part and its translation
+     *
+     * @param m00 row 0, column 0 of the linear part
+     * @param m01 row 0, column 1 of the linear part
+     * @param m02 row 0, column 2 of the linear part
+     * @param m10 row 1, column 0 of the linear part
+     * @param m11 row 1, column 1 of the linear part
+     * @param m12 row 1, column 2 of the linear part
+     * @param m20 row 2, column 0 of the linear part
+     * @param m21 row 2, column 1 of the linear part
+     * @param m22 row 2, column 2 of the linear part
+     * @param translation the translation applied after the linear part
+     * @throws IllegalArgumentException if the transformation is not invertible
+     */
+    public Transform(double m00, double m01, double m02,
+                     double m10, double m11, double m12,
+                     double m20, double m21, double m22, Double3 translation) {
+        this(new double[]{
+                m00, m01, m02, translation.d1(),
+                m10, m11, m12, translation.d2(),
+                m20, m21, m22, translation.d3()});
+    }
+
+    /**
+     * Creates a translation
+     *
+     * @param offset the translation vector
+     * @return the translation
+     */
+    public static Transform translation(Vector offset) {
+        return translation(offset.xyz.d1(), offset.xyz.d2(), offset.xyz.d3());
+    }
+
+    /**
+     * Creates a translation by its components
+     *
+     * @param x offset along X axis
+     * @param y offset along Y axis
+     * @param z offset along Z axis
+     * @return the translation
+     */
+    public static Transform translation(double x, double y, double z) {
+        return new Transform(new double[]{
+                1, 0, 0, x,
+                0, 1, 0, y,
+                0, 0, 1, z});
+    }
+
+    /**
+     * Creates a scaling along the axes about the origin
+     *
+     * @param x scale factor along X axis
+     * @param y scale factor along Y axis
+     * @param z scale factor along Z axis
+     * @return the scaling
+     * @throws IllegalArgumentException if any of the factors is zero
+     */
+    public static Transform scaling(double x, double y, double z) {
+        return new Transform(new double[]{
+                x, 0, 0, 0,
+                0, y, 0, 0,
+                0, 0, z, 0});
+    }
+
+    /**
+     * Creates a uniform scaling about the origin
+     *
+     * @param factor the scale factor
+     * @return the scaling
+     * @throws IllegalArgumentException if the factor is zero
+     */
+    public static Transform scaling(double factor) {
+        return scaling(factor, factor, factor);
+    }
+
+    /**
+     * Creates a rotation about an axis through the origin (right-hand rule)
+     *
+     * @param axis  the direction of the rotation axis
+     * @param angle the rotation angle in degrees
+     * @return the rotation
+     */
+    public static Transform rotation(Vector axis, double angle) {
+        Vector u = axis.normalize();
+        double x = u.xyz.d1(), y = u.xyz.d2(), z = u.xyz.d3();
+        double radians = Math.toRadians(angle);
+        double c = Math.cos(radians), s = Math.sin(radians), t = 1 - c;
+        // Rodrigues' rotation formula
+        return new Transform(new double[]{
+                t * x * x + c, t * x * y - s * z, t * x * z + s * y, 0,
+                t * x * y + s * z, t * y * y + c, t * y * z - s * x, 0,
+                t * x * z - s * y, t * y * z + s * x, t * z * z + c, 0});
+    }
+
+    /**
+     * Composes the transformation with another one applied after it
+     *
+     * @param next the transformation applied after this one
+     * @return the composed transformation
+     */
+    public Transform then(Transform next) {
+        return new Transform(multiply(next.matrix, matrix), multiply(inverse, next.inverse));
+    }
+
+    /**
+     * Gets the inverse transformation
+     *
+     * @return the inverse transformation
+     */
+    public Transform inverse() {
+        return new Transform(inverse, matrix);
+    }
+
+    /**
+     * Transforms a point
+     *
+     * @param point the point
+     * @return the transformed point
+     */
+    public Point transformPoint(Point point) {
+        double x = point.xyz.d1(), y = point.xyz.d2(), z = point.xyz.d3();
+        return new Point(
+                matrix[0] * x + matrix[1] * y + matrix[2] * z + matrix[3],
+                matrix[4] * x + matrix[5] * y + matrix[6] * z + matrix[7],
+                matrix[8] * x + matrix[9] * y + matrix[10] * z + matrix[11]);
+    }
+
+    /**
+     * Transforms a direction vector - only the linear part is applied, so the length may change
+     *
+     * @param vector the vector
+     * @return the transformed vector
+     */
+    public Vector transformVector(Vector vector) {
+        double x = vector.xyz.d1(), y = vector.xyz.d2(), z = vector.xyz.d3();
+        return new Vector(
+                matrix[0] * x + matrix[1] * y + matrix[2] * z,
+                matrix[4] * x + matrix[5] * y + matrix[6] * z,
+                matrix[8] * x + matrix[9] * y + matrix[10] * z);
+    }
+
+    /**
+     * Transforms a normal of a surface, so that it stays perpendicular to the transformed surface -
+     * the transposed inverse of the linear part is applied
+     *
+     * @param normal the normal
+     * @return the transformed normal (not normalized)
+     */
+    public Vector transformNormal(Vector normal) {
+        double x = normal.xyz.d1(), y = normal.xyz.d2(), z = normal.xyz.d3();
+        return new Vector(
+                inverse[0] * x + inverse[4] * y + inverse[8] * z,
+                inverse[1] * x + inverse[5] * y + inverse[9] * z,
+                inverse[2] * x + inverse[6] * y + inverse[10] * z);
+    }
+
+    /**
+     * Multiplies two affine matrices
+     *
+     * @param a the left matrix (applied last)
+     * @param b the right matrix (applied first)
+     * @return the product
+     */
+    private static double[] multiply(double[] a, double[] b) {
+        double[] result = new double[12];
+        for (int row = 0; row < 3; ++row) {
+            int r = 4 * row;
+            for (int column = 0; column < 4; ++column)
+                result[r + column] = a[r] * b[column] + a[r + 1] * b[4 + column] + a[r + 2] * b[8 + column];
+            result[r + 3] += a[r + 3];
+        }
+        return result;
+    }
+
+    /**
+     * Inverts an affine matrix
+     *
+     * @param m the matrix
+     * @return the inverse matrix
+     * @throws IllegalArgumentException if the matrix is singular
+     */
+    private static double[] invert(double[] m) {
+        // cofactors of the linear part
+        double c00 = m[5] * m[10] - m[6] * m[9];
+        double c01 = m[6] * m[8] - m[4] * m[10];
+        double c02 = m[4] * m[9] - m[5] * m[8];
+        double determinant = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (isZero(determinant)) {
+            throw new IllegalArgumentException("Transform must be invertible");
+        }
+
+        double f = 1 / determinant;
+        double[] result = {
+                c00 * f, (m[2] * m[9] - m[1] * m[10]) * f, (m[1] * m[6] - m[2] * m[5]) * f, 0,
+                c01 * f, (m[0] * m[10] - m[2] * m[8]) * f, (m[2] * m[4] - m[0] * m[6]) * f, 0,
+                c02 * f, (m[1] * m[8] - m[0] * m[9]) * f, (m[0] * m[5] - m[1] * m[4]) * f, 0};
+        // the inverse translation is the inverse linear part applied to the negated translation
+        for (int r = 0; r < 12; r += 4)
+            result[r + 3] = -(result[r] * m[3] + result[r + 1] * m[7] + result[r + 2] * m[11]);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Transform other)) return false;
+        for (int i = 0; i < 12; ++i)
+            if (!isZero(matrix[i] - other.matrix[i])) return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) Math.round(Arrays.stream(matrix).sum());
+    }
+
+    @Override
+    public String toString() {
+        return "Transform" + Arrays.toString(matrix);
+    }
+}
@@ -105,6 +105,7 @@ public class Vector extends Point {
      * @param other the other vector
      * @return dot product value
      */
+    @Override
     public double dotProduct(Vector other) {
         return xyz.d1() * other.xyz.d1() +
                 xyz.d2() * other.xyz.d2() +
@@ -0,0 +1,46 @@
+package renderer;
+
+import geometries.Intersectable;
+import geometries.Intersectable.Intersection;
+import primitives.Ray;
+import scene.Scene;
+
+/**
+ * Ray tracer using an acceleration structure (e.g. a regular grid, a kd-tree or an octree)
+ * The structure is built over the scene geometries by the caller, once, before the tracer is
+ * created, and every ray is intersected with the structure in place of the scene geometries.
+ * Shading is the same as in {@link SimpleRayTracer}
+ *
+ * @author Maor Atari
+ */
+public class AcceleratedRayTracer extends SimpleRayTracer {
+
+    /**
+     * The acceleration structure built over the scene geometries
+     */
+    private final Intersectable accelerator;
+
+    /**
+     * Constructor to initialize accelerated ray tracer with a scene and a structure over its geometries
+     * The scene geometries must be complete before the structure is built
+     *
+     * @param scene       the 3D scene to be rendered
+     * @param accelerator the acceleration structure built over the scene geometries
+     * @throws IllegalArgumentException if the acceleration structure is null
+     */
+    public AcceleratedRayTracer(Scene scene, Intersectable accelerator) {
+        super(scene);
+        if (accelerator == null) throw new IllegalArgumentException("Acceleration structure must not be null");
+        this.accelerator = accelerator;
+    }
+
+    @Override
+    protected Intersection findClosestIntersection(Ray ray) {
+        return accelerator.calculateClosestIntersection(ray);
+    }
+
+    @Override
+    protected boolean hasIntersection(Ray ray, double maxDistance) {
+        return accelerator.hasIntersection(ray, maxDistance);
+    }
+}
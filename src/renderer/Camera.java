@@ -1,9 +1,16 @@
 package renderer;
 
+import geometries.KdTree;
+import geometries.Octree;
+import geometries.RegularGrid;
 import primitives.*;
 import scene.Scene;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.MissingResourceException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Camera class represents a camera in 3D space
@@ -61,6 +68,16 @@ public class Camera implements Cloneable {
      */
     private int nY = 1;
 
+    /**
+     * Number of rendering threads (0 for rendering in the calling thread)
+     */
+    private int threadsCount = 0;
+
+    /**
+     * Size (in pixels) of the square tiles the image is split into for multithreaded rendering
+     */
+    private int tileSize = 16;
+
     /**
      * Private constructor for Camera
      */
@@ -93,31 +110,26 @@ public class Camera implements Cloneable {
      * @return ray through the pixel center
      */
     public Ray constructRay(int nX, int nY, int j, int i) {
-        Point pC = location.add(vTo.scale(distance));
-
         double rY = height / nY;
         double rX = width / nX;
 
         double yI = -(i - (nY - 1) / 2.0) * rY;
         double xJ = (j - (nX - 1) / 2.0) * rX;
 
-        Point pIJ = pC;
-
-        if (!Util.isZero(xJ)) {
-            pIJ = pIJ.add(vRight.scale(xJ));
-        }
-
-        if (!Util.isZero(yI)) {
-            pIJ = pIJ.add(vUp.scale(yI));
-        }
-
-        Vector vIJ = pIJ.subtract(location);
+        // Vector from the camera location to the pixel center: vTo*d + vRight*xJ + vUp*yI,
+        // calculated on plain numbers so that only the ray direction itself is allocated
+        Double3 to = vTo.getXyz(), right = vRight.getXyz(), up = vUp.getXyz();
+        Vector vIJ = new Vector(
+                to.d1() * distance + right.d1() * xJ + up.d1() * yI,
+                to.d2() * distance + right.d2() * xJ + up.d2() * yI,
+                to.d3() * distance + right.d3() * xJ + up.d3() * yI);
 
         return new Ray(location, vIJ);
     }
 
     /**
      * Renders the entire image by casting rays through each pixel
+     * If multithreading is set, the image is rendered in tiles by a pool of threads
      *
      * @return this Camera object for method chaining
      * @throws UnsupportedOperationException if imageWriter or rayTracer are not set
@@ -130,6 +142,11 @@ public class Camera implements Cloneable {
             throw new UnsupportedOperationException("RayTracer is not set");
         }
 
+        if (threadsCount > 0) {
+            renderImageTiles();
+            return this;
+        }
+
         // Loop through all pixels in the view plane
         for (int i = 0; i < nY; i++) {
             for (int j = 0; j < nX; j++) {
@@ -140,6 +157,57 @@ public class Camera implements Cloneable {
         return this;
     }
 
+    /**
+     * Renders the image by splitting it into tiles which are rendered by a
+     * work-stealing pool of threads. Every pixel gets exactly the same color as
+     * in the single-threaded rendering
+     */
+    private void renderImageTiles() {
+        ForkJoinPool pool = new ForkJoinPool(threadsCount);
+        try {
+            List<ForkJoinTask<?>> tasks = new LinkedList<>();
+            for (int i = 0; i < nY; i += tileSize) {
+                for (int j = 0; j < nX; j += tileSize) {
+                    final int row = i, column = j;
+                    tasks.add(pool.submit(() -> renderTile(column, row)));
+                }
+            }
+            // Wait for all the tiles, rethrowing the failure of any of them
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Renders a single tile into a local buffer and then writes it into the image
+     *
+     * @param column pixel column index of the tile's top left corner
+     * @param row    pixel row index of the tile's top left corner
+     */
+    private void renderTile(int column, int row) {
+        int width = Math.min(tileSize, nX - column);
+        int height = Math.min(tileSize, nY - row);
+
+        Color[] colors = new Color[width * height];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                colors[i * width + j] = rayTracer.traceRay(constructRay(nX, nY, column + j, row + i));
+            }
+        }
+
+        // The image writer is shared by all the rendering threads
+        synchronized (imageWriter) {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    imageWriter.writePixel(column + j, row + i, colors[i * width + j]);
+                }
+            }
+        }
+    }
+
     /**
      * Casts a ray through a specific pixel and colors it
      *
@@ -359,6 +427,34 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Set multithreaded rendering
+         *
+         * @param threads number of rendering threads, 0 for rendering in the calling thread
+         * @return this builder
+         */
+        public Builder setMultithreading(int threads) {
+            if (threads < 0) {
+                throw new IllegalArgumentException("Number of threads must not be negative");
+            }
+            camera.threadsCount = threads;
+            return this;
+        }
+
+        /**
+         * Set the size of the tiles for multithreaded rendering
+         *
+         * @param tileSize size (in pixels) of the side of a square tile
+         * @return this builder
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize <= 0) {
+                throw new IllegalArgumentException("Tile size must be positive");
+            }
+            camera.tileSize = tileSize;
+            return this;
+        }
+
         /**
          * Set ray tracer for the camera
          *
@@ -371,6 +467,18 @@ public class Camera implements Cloneable {
                 case SIMPLE:
                     camera.rayTracer = new SimpleRayTracer(scene);
                     break;
+                case GRID:
+                    camera.rayTracer = new AcceleratedRayTracer(scene, new RegularGrid(scene.geometries));
+                    break;
+                case HIERARCHICAL_GRID:
+                    camera.rayTracer = new AcceleratedRayTracer(scene, new RegularGrid(scene.geometries, 2));
+                    break;
+                case KD_TREE:
+                    camera.rayTracer = new AcceleratedRayTracer(scene, new KdTree(scene.geometries));
+                    break;
+                case OCTREE:
+                    camera.rayTracer = new AcceleratedRayTracer(scene, new Octree(scene.geometries));
+                    break;
                 default:
                     camera.rayTracer = null;
                     break;
@@ -378,6 +486,17 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Set a ray tracer configured by the caller
+         *
+         * @param rayTracer the ray tracer to use
+         * @return this builder
+         */
+        public Builder setRayTracer(RayTracerBase rayTracer) {
+            camera.rayTracer = rayTracer;
+            return this;
+        }
+
         /**
          * Build the camera
          *
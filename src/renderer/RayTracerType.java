@@ -12,5 +12,17 @@ public enum RayTracerType {
     /**
      * Ray tracer using regular grid
      */
-    GRID
+    GRID,
+    /**
+     * Ray tracer using two-level grid - dense cells of the regular grid have nested grids
+     */
+    HIERARCHICAL_GRID,
+    /**
+     * Ray tracer using kd-tree
+     */
+    KD_TREE,
+    /**
+     * Ray tracer using sparse octree
+     */
+    OCTREE
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package renderer;
+
+import geometries.Geometry;
+import geometries.Intersectable.Intersection;
+import lighting.LightSource;
+import primitives.Material;
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Class ShadingContext holds the data calculated while shading a single intersection
+ * This is a Passive Data Structure (PDS) filled by the ray tracer.
+ * Unlike {@link Intersection}, which is immutable and may be shared between threads,
+ * a context is mutable and is reused: every rendering thread owns one context which
+ * is refilled for every shaded point, so no per-hit objects are allocated for it
+ *
+ * @author Maor Atari
+ */
+final class ShadingContext {
+    /**
+     * The intersected geometry
+     */
+    Geometry geometry;
+
+    /**
+     * The intersection point
+     */
+    Point point;
+
+    /**
+     * The material of the intersected geometry
+     */
+    Material material;
+
+    /**
+     * Direction vector of the ray that caused the intersection
+     */
+    Vector rayDirection;
+
+    /**
+     * Normal vector to the geometry surface at intersection point
+     */
+    Vector normal;
+
+    /**
+     * Dot product of ray direction and normal vector
+     */
+    double nDotRayDir;
+
+    /**
+     * The light source being processed for the intersection
+     */
+    LightSource lightSource;
+
+    /**
+     * Direction vector from light source to intersection point
+     */
+    Vector lightDirection;
+
+    /**
+     * Dot product of light direction and normal vector
+     */
+    double nDotLightDir;
+
+    /**
+     * Default constructor - the context is filled by {@link #reset(Intersection, Vector)}
+     */
+    ShadingContext() {
+    }
+
+    /**
+     * Refills the context for a new intersection, clearing the light source data
+     *
+     * @param intersection the intersection to be shaded
+     * @param rayDirection the direction of the intersecting ray
+     */
+    void reset(Intersection intersection, Vector rayDirection) {
+        geometry = intersection.geometry;
+        point = intersection.point;
+        material = intersection.material;
+        this.rayDirection = rayDirection;
+        normal = null;
+        nDotRayDir = 0;
+        lightSource = null;
+        lightDirection = null;
+        nDotLightDir = 0;
+    }
+}
@@ -8,8 +8,6 @@ import primitives.Ray;
 import primitives.Vector;
 import scene.Scene;
 
-import java.util.List;
-
 import static primitives.Util.isZero;
 
 /**
@@ -20,6 +18,16 @@ import static primitives.Util.isZero;
  */
 public class SimpleRayTracer extends RayTracerBase {
 
+    /**
+     * Shading context of every rendering thread, reused for all the points it shades
+     */
+    private final ThreadLocal<ShadingContext> shadingContext = ThreadLocal.withInitial(ShadingContext::new);
+
+    /**
+     * Whether shadow rays are cast towards the light sources (on by default)
+     */
+    private boolean shadows = true;
+
     /**
      * Constructor to initialize simple ray tracer with a scene
      * Calls the parent constructor to set up the scene
@@ -30,6 +38,18 @@ public class SimpleRayTracer extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * Sets the unshaded-check mode - whether a shadow ray is cast towards every light source.
+     * Without it every light source lights every point facing it, as before shadows were added
+     *
+     * @param shadows true to check that the light sources are not blocked, false to ignore blockers
+     * @return this ray tracer
+     */
+    public SimpleRayTracer setShadows(boolean shadows) {
+        this.shadows = shadows;
+        return this;
+    }
+
     /**
      * Traces a ray through the scene and calculates its color intensity
      * Implements ray tracing with Phong lighting model
@@ -39,21 +59,43 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     @Override
     public Color traceRay(Ray ray) {
-        // Find intersections between ray and scene geometries using new intersection system
-        List<Intersection> intersections = scene.geometries.calculateIntersections(ray);
+        // Find the closest intersection point to ray origin
+        Intersection closestIntersection = findClosestIntersection(ray);
 
         // If no intersections found, return background color
-        if (intersections == null) {
+        if (closestIntersection == null) {
             return scene.background;
         }
 
-        // Find the closest intersection point to ray origin
-        Intersection closestIntersection = ray.findClosestIntersection(intersections);
-
         // Calculate and return the color at the intersection point
         return calcColor(closestIntersection, ray);
     }
 
+    /**
+     * Finds the closest intersection of a ray with the scene geometries
+     * Subclasses may override it to use an acceleration structure
+     *
+     * @param ray the ray to intersect with the scene
+     * @return the closest intersection, or null if there are no intersections
+     */
+    protected Intersection findClosestIntersection(Ray ray) {
+        // Closest-hit query - farther geometries are skipped and only one intersection is created
+        return scene.geometries.calculateClosestIntersection(ray);
+    }
+
+    /**
+     * Checks whether a ray hits any scene geometry closer than a given distance
+     * Subclasses may override it to use an acceleration structure
+     *
+     * @param ray         the ray to intersect with the scene
+     * @param maxDistance the distance from the ray head beyond which intersections are ignored
+     * @return true if there is an intersection closer than maxDistance
+     */
+    protected boolean hasIntersection(Ray ray, double maxDistance) {
+        // Any-hit query - stops at the first blocker without creating intersections
+        return scene.geometries.hasIntersection(ray, maxDistance);
+    }
+
     /**
      * Calculates the color at a given intersection in the scene
      * Updated to use Phong lighting model with ray parameter
@@ -63,87 +105,106 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the color at the given intersection
      */
     private Color calcColor(Intersection intersection, Ray ray) {
+        // Reuse the shading context of the current thread
+        ShadingContext context = shadingContext.get();
+
         // Initialize intersection data for lighting calculations
-        if (!preprocessIntersection(intersection, ray.getDir())) {
+        if (!preprocessIntersection(context, intersection, ray.getDir())) {
             // If preprocessing failed (e.g., ray perpendicular to surface), return black
             return Color.BLACK;
         }
 
         // Calculate local lighting effects using Phong model
-        return calcColorLocalEffects(intersection);
+        return calcColorLocalEffects(context);
     }
 
     /**
      * Preprocesses intersection data for lighting calculations
-     * Initializes ray direction, normal vector, and their dot product
+     * Initializes ray direction, normal vector, and their dot product in the shading context
      *
+     * @param context      the shading context to fill
      * @param intersection the intersection to preprocess
      * @param rayDirection the direction of the intersecting ray
      * @return false if dot product is zero (ray perpendicular to surface), true otherwise
      */
-    private boolean preprocessIntersection(Intersection intersection, Vector rayDirection) {
-        // Store ray direction
-        intersection.rayDirection = rayDirection;
+    private boolean preprocessIntersection(ShadingContext context, Intersection intersection, Vector rayDirection) {
+        // Store intersection data and ray direction
+        context.reset(intersection, rayDirection);
 
         // Calculate normal at intersection point
-        intersection.normal = intersection.geometry.getNormal(intersection.point);
+        context.normal = context.geometry.getNormal(context.point);
 
         // Calculate dot product of normal and ray direction
-        intersection.nDotRayDir = intersection.normal.dotProduct(rayDirection);
+        context.nDotRayDir = context.normal.dotProduct(rayDirection);
 
         // Return false if dot product is zero (perpendicular ray)
-        return !isZero(intersection.nDotRayDir);
+        return !isZero(context.nDotRayDir);
     }
 
     /**
-     * Sets light source data for intersection
+     * Sets light source data in the shading context
      * Initializes light source, light direction, and their dot product
      *
-     * @param intersection the intersection to set light data for
+     * @param context     the shading context to set light data for
      * @param lightSource the light source to process
      * @return false if either dot product is zero, true otherwise
      */
-    private boolean setLightSource(Intersection intersection, LightSource lightSource) {
+    private boolean setLightSource(ShadingContext context, LightSource lightSource) {
         // Store light source
-        intersection.lightSource = lightSource;
+        context.lightSource = lightSource;
 
         // Calculate light direction (from light to point)
-        intersection.lightDirection = lightSource.getL(intersection.point);
+        context.lightDirection = lightSource.getL(context.point);
 
         // Calculate dot product of normal and light direction
-        intersection.nDotLightDir = intersection.normal.dotProduct(intersection.lightDirection);
+        context.nDotLightDir = context.normal.dotProduct(context.lightDirection);
 
         // Return false if either dot product is zero
-        return !isZero(intersection.nDotRayDir) && !isZero(intersection.nDotLightDir);
+        return !isZero(context.nDotRayDir) && !isZero(context.nDotLightDir);
+    }
+
+    /**
+     * Checks whether the intersection point is not shaded from the current light source
+     * A shadow ray is cast from the point towards the light and any geometry between
+     * them blocks the light
+     *
+     * @param context the shading context with the light source data set
+     * @return true if nothing blocks the light source, false otherwise
+     */
+    private boolean unshaded(ShadingContext context) {
+        // Shadow ray from the point towards the light, shifted off the surface
+        Vector pointToLight = context.lightDirection.scale(-1);
+        Ray shadowRay = new Ray(context.point, pointToLight, context.normal);
+        return !hasIntersection(shadowRay, context.lightSource.getDistance(context.point));
     }
 
     /**
      * Calculates local lighting effects using Phong model
      * Combines emission color with ambient, diffuse, and specular components
      *
-     * @param intersection the intersection to calculate lighting for
+     * @param context the shading context of the intersection to calculate lighting for
      * @return the final color including all local lighting effects
      */
-    private Color calcColorLocalEffects(Intersection intersection) {
+    private Color calcColorLocalEffects(ShadingContext context) {
         // Start with emission color of the geometry
-        Color color = intersection.geometry.getEmission();
+        Color color = context.geometry.getEmission();
 
         // Add ambient light component
-        color = color.add(scene.ambientLight.getIntensity().scale(intersection.material.kA));
+        color = color.add(scene.ambientLight.getIntensity().scale(context.material.kA));
 
         // Process each light source in the scene
         for (LightSource lightSource : scene.lights) {
             // Set light source data for this intersection
-            if (!setLightSource(intersection, lightSource)) {
-                continue; // Skip this light if setup failed
+            if (!setLightSource(context, lightSource) || shadows && !unshaded(context)) {
+                continue; // Skip this light if setup failed or the point is in its shadow
             }
 
             // Get light intensity at intersection point
-            Color lightIntensity = lightSource.getIntensity(intersection.point);
+            Color lightIntensity = lightSource.getIntensity(context.point);
 
             // Calculate diffuse and specular components
-            Double3 diffuse = calcDiffusive(intersection);
-            Double3 specular = calcSpecular(intersection);
+            Double3 diffuse = calcDiffusive(context);
+            Double3 specular = calcSpecular(context);
 
             // Add diffuse and specular contributions
             color = color.add(lightIntensity.scale(diffuse.add(specular)));
@@ -155,41 +216,33 @@ public class SimpleRayTracer extends RayTracerBase {
     /**
      * Calculates the diffuse reflection component using Lambert's law
      *
-     * @param intersection the intersection data
+     * @param context the shading context
      * @return the diffuse reflection coefficient
      */
-    private Double3 calcDiffusive(Intersection intersection) {
+    private Double3 calcDiffusive(ShadingContext context) {
         // Diffuse reflection: kD * max(0, n·l)
-        double nDotL = Math.abs(intersection.nDotLightDir);
-        return intersection.material.kD.scale(nDotL);
+        double nDotL = Math.abs(context.nDotLightDir);
+        return context.material.kD.scale(nDotL);
     }
 
     /**
      * Calculates the specular reflection component using Phong model
      *
-     * @param intersection the intersection data
+     * @param context the shading context
      * @return the specular reflection coefficient
      */
-    private Double3 calcSpecular(Intersection intersection) {
-        // Calculate reflection vector: r = l - 2(n·l)n
-        Vector l = intersection.lightDirection.scale(-1); // Light direction (from point to light)
-        Vector n = intersection.normal;
-        double nDotL = intersection.nDotLightDir;
-
-        Vector r = l.subtract(n.scale(2 * nDotL));
-
-        // Calculate view direction (from point to camera): v = -rayDirection
-        Vector v = intersection.rayDirection.scale(-1);
-
-        // Calculate dot product of reflection and view vectors
-        double rDotV = r.dotProduct(v);
+    private Double3 calcSpecular(ShadingContext context) {
+        // Reflection vector r = l - 2(n·l)n and view direction v = -rayDirection, so
+        // r·v = 2(n·l)(n·rayDirection) - l·rayDirection - no vectors are allocated
+        double rDotV = 2 * context.nDotLightDir * context.nDotRayDir
+                - context.lightDirection.dotProduct(context.rayDirection);
 
         // Specular reflection: kS * max(0, r·v)^nShininess
         if (rDotV <= 0) {
             return Double3.ZERO; // No specular reflection
         }
 
-        double specularFactor = Math.pow(rDotV, intersection.material.nShininess);
-        return intersection.material.kS.scale(specularFactor);
+        double specularFactor = Math.pow(rDotV, context.material.nShininess);
+        return context.material.kS.scale(specularFactor);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,419 @@
+package unittests.geometries;
+
+import geometries.BVHBuildMode;
+import geometries.BVHBuilder;
+import geometries.BVHLayout;
+import geometries.Geometries;
+import geometries.Instance;
+import geometries.Intersectable.Intersection;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.BVHBuilder class
+ *
+ * @author Maor Atari
+ */
+class BVHBuilderTests {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in assertEquals
+     */
+    private static final double DELTA = 0.000001;
+
+    /**
+     * Default constructor for BVHBuilderTests
+     */
+    public BVHBuilderTests() {
+    }
+
+    /**
+     * Adds a cube of spheres and triangles to geometries
+     *
+     * @param geometries the geometries to fill
+     * @param size       amount of the geometries along an edge of the cube
+     * @return the geometries
+     */
+    private static Geometries cube(Geometries geometries, int size) {
+        for (int i = 0; i < size; ++i)
+            for (int j = 0; j < size; ++j)
+                for (int k = 0; k < size; ++k) {
+                    if ((i + j + k) % 2 == 0)
+                        geometries.add(new Sphere(new Point(i * 3, j * 3, k * 3), 1));
+                    else
+                        geometries.add(new Triangle(new Point(i * 3, j * 3, k * 3),
+                                new Point(i * 3 + 2, j * 3, k * 3), new Point(i * 3, j * 3 + 2, k * 3 + 1)));
+                }
+        return geometries;
+    }
+
+    /**
+     * Checks that the closest intersections found by a hierarchy are the same as found by the linear scan
+     *
+     * @param linear the geometries without a hierarchy
+     * @param bvh    the same geometries with a hierarchy
+     */
+    private static void assertSameClosest(Geometries linear, Geometries bvh) {
+        for (int i = 0; i < 200; ++i) {
+            Ray ray = new Ray(new Point(-5 + (i % 20) * 2, -5 + (i / 20) * 4, -10), new Vector(0.3, 0.2, 1));
+            Intersection expected = linear.calculateClosestIntersection(ray);
+            Intersection actual = bvh.calculateClosestIntersection(ray);
+            if (expected == null) assertNull(actual, "Hierarchy found an intersection the linear scan did not");
+            else {
+                assertNotNull(actual, "Hierarchy missed an intersection");
+                assertEquals(expected.point, actual.point, "Hierarchy found a different closest intersection");
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link Geometries#buildBVH(BVHBuilder)} with a {@link BVHBuilder}.
+     */
+    @Test
+    void testBuild() {
+        Geometries linear = cube(new Geometries(), 6);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Default parameters
+        BVHBuilder builder = new BVHBuilder();
+        assertNull(builder.getReport(), "Report before any build");
+        assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+        BVHBuilder.Report report = builder.getReport();
+        assertNotNull(report, "Report after the build");
+        assertEquals(216, report.geometries(), "Wrong amount of geometries in the report");
+        assertEquals(2 * report.leaves() - 1, report.nodes(), "Binary hierarchy must have 2*leaves-1 nodes");
+        assertTrue(report.leaves() >= 216 / 4, "Leaves must not exceed the leaf size");
+        assertTrue(report.depth() > 1, "Hierarchy must have inner nodes");
+
+        // TC02: Multithreaded build of a scene big enough to be split between the threads
+        Geometries big = cube(new Geometries(), 14);
+        Geometries bigBVH = cube(new Geometries(), 14).buildBVH(builder.setMultithreading(4));
+        assertEquals(2744, builder.getReport().geometries(), "Wrong amount of geometries in the report");
+        assertSameClosest(big, bigBVH);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Single geometry in a leaf, minimal amount of bins
+        builder = new BVHBuilder().setLeafSize(1).setBinsCount(2);
+        assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+        assertEquals(216, builder.getReport().leaves(), "Every geometry must be in its own leaf");
+
+        // TC12: All the geometries in the same position
+        Geometries same = new Geometries();
+        for (int i = 0; i < 10; ++i) same.add(new Sphere(Point.ZERO, 1));
+        builder = new BVHBuilder();
+        same.buildBVH(builder);
+        assertNotNull(same.calculateClosestIntersection(new Ray(new Point(0, 0, -5), new Vector(0, 0, 1))),
+                "Ray should hit the spheres");
+        assertTrue(builder.getReport().leaves() >= 3, "Leaves must not exceed the leaf size");
+
+        // TC13: Wrong parameters
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setLeafSize(0), "Zero leaf size");
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setBinsCount(1), "Single bin");
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setMultithreading(-1),
+                "Negative threads");
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setBuildMode(null), "No build mode");
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setLayout(null), "No layout");
+    }
+
+    /**
+     * Test method for {@link Geometries#buildBVH(BVHBuilder)} with a {@link BVHBuilder} in LBVH mode.
+     */
+    @Test
+    void testBuildLinear() {
+        Geometries linear = cube(new Geometries(), 6);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Default parameters
+        BVHBuilder builder = new BVHBuilder().setBuildMode(BVHBuildMode.LBVH);
+        assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+        BVHBuilder.Report report = builder.getReport();
+        assertEquals(216, report.geometries(), "Wrong amount of geometries in the report");
+        assertEquals(2 * report.leaves() - 1, report.nodes(), "Binary hierarchy must have 2*leaves-1 nodes");
+        assertTrue(report.leaves() >= 216 / 4, "Leaves must not exceed the leaf size");
+
+        // TC02: Multithreaded build (parallel sort) of a scene big enough to be split between the threads
+        Geometries big = cube(new Geometries(), 14);
+        assertSameClosest(big, cube(new Geometries(), 14).buildBVH(builder.setMultithreading(4)));
+        assertEquals(2744, builder.getReport().geometries(), "Wrong amount of geometries in the report");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Single geometry in a leaf
+        builder = new BVHBuilder().setBuildMode(BVHBuildMode.LBVH).setLeafSize(1);
+        assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+        assertEquals(216, builder.getReport().leaves(), "Every geometry must be in its own leaf");
+
+        // TC12: All the geometries in the same position (same Morton codes)
+        Geometries same = new Geometries();
+        for (int i = 0; i < 10; ++i) same.add(new Sphere(Point.ZERO, 1));
+        same.buildBVH(builder = new BVHBuilder().setBuildMode(BVHBuildMode.LBVH));
+        assertNotNull(same.calculateClosestIntersection(new Ray(new Point(0, 0, -5), new Vector(0, 0, 1))),
+                "Ray should hit the spheres");
+        assertTrue(builder.getReport().leaves() >= 3, "Leaves must not exceed the leaf size");
+    }
+
+    /**
+     * Test method for {@link Geometries#buildBVH(BVHBuilder)} with the layouts of {@link BVHLayout}.
+     */
+    @Test
+    void testLayouts() {
+        Geometries linear = cube(new Geometries(), 6);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: All the queries of every layout agree with the linear scan
+        for (BVHLayout layout : BVHLayout.values()) {
+            Geometries bvh = cube(new Geometries(), 6).buildBVH(new BVHBuilder().setLayout(layout));
+            assertSameClosest(linear, bvh);
+            for (int i = 0; i < 50; ++i) {
+                Ray ray = new Ray(new Point(-5 + (i % 10) * 2, -5 + (i / 10) * 4, -10), new Vector(0.3, 0.2, 1));
+                List<Point> expected = linear.findIntersections(ray);
+                List<Point> actual = bvh.findIntersections(ray);
+                assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                        layout + " layout differs from linear scan");
+                for (double distance : new double[]{5, 15, 40})
+                    assertEquals(linear.hasIntersection(ray, distance), bvh.hasIntersection(ray, distance),
+                            layout + " layout differs from linear scan");
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Hierarchy of a single leaf in every layout
+        Ray ray = new Ray(new Point(0, 0, -5), new Vector(0, 0, 1));
+        for (BVHLayout layout : BVHLayout.values()) {
+            Geometries single = new Geometries(new Sphere(Point.ZERO, 1)).buildBVH(new BVHBuilder().setLayout(layout));
+            assertEquals(new Point(0, 0, -1), single.calculateClosestIntersection(ray).point,
+                    "Wrong closest intersection in " + layout + " layout");
+            assertEquals(2, single.findIntersections(ray).size(), "Wrong number of intersections in " + layout + " layout");
+            assertFalse(single.hasIntersection(ray, 4), "Intersection beyond maximal distance in " + layout + " layout");
+        }
+    }
+
+    /**
+     * Test method for {@link Geometries#buildBVH(BVHBuilder)} with the {@link BVHLayout#QUANTIZED} layout.
+     */
+    @Test
+    void testQuantization() {
+        Geometries linear = cube(new Geometries(), 6);
+        BVHBuilder builder = new BVHBuilder();
+        cube(new Geometries(), 6).buildBVH(builder);
+        long flatSize = builder.getReport().memorySize();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: 8-bit quantization finds the same intersections and takes less memory than the flat layout
+        Geometries bvh = cube(new Geometries(), 6).buildBVH(builder.setLayout(BVHLayout.QUANTIZED));
+        assertSameClosest(linear, bvh);
+        BVHBuilder.Report report = builder.getReport();
+        assertEquals(BVHLayout.QUANTIZED, report.layout(), "Wrong layout in the report");
+        assertTrue(report.memorySize() * 2 < flatSize, "Quantized layout must take less than half of the memory");
+        assertEquals((double) report.memorySize() / 216, report.bytesPerGeometry(), DELTA,
+                "Wrong bytes per geometry");
+
+        // TC02: 16-bit quantization finds the same intersections and takes more memory than the 8-bit one
+        bvh = cube(new Geometries(), 6).buildBVH(builder.setQuantizationBits(16));
+        assertSameClosest(linear, bvh);
+        assertTrue(builder.getReport().memorySize() > report.memorySize(), "16 bits must take more memory than 8");
+        assertTrue(builder.getReport().memorySize() < flatSize, "Quantized layout must take less memory");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Rays grazing the extreme geometries of the boxes are not lost by the rounding
+        Geometries far = new Geometries(new Sphere(Point.ZERO, 1), new Sphere(new Point(1000.1, 0, 0), 1),
+                new Sphere(new Point(500, 0, 0), 1))
+                .buildBVH(new BVHBuilder().setLayout(BVHLayout.QUANTIZED).setLeafSize(1));
+        assertNotNull(far.calculateClosestIntersection(new Ray(new Point(-0.999, 0, -10), new Vector(0, 0, 1))),
+                "Geometry on the minimal border of the box is lost");
+        assertNotNull(far.calculateClosestIntersection(new Ray(new Point(1001.099, 0, -10), new Vector(0, 0, 1))),
+                "Geometry on the maximal border of the box is lost");
+
+        // TC12: Rays grazing the minimal faces of boxes whose minima are not representable in single precision
+        for (double shift : new double[]{0, 1000}) {
+            Polygon[] array = new Polygon[400];
+            for (int i = 0; i < 400; ++i) {
+                double x = shift + i % 20 * 0.5 + 0.1, y = i / 20 * 0.5 + 0.1, z = i % 3 * 0.1;
+                array[i] = new Polygon(new Point(x, y, z), new Point(x + 0.3, y, z),
+                        new Point(x + 0.3, y + 0.3, z), new Point(x, y + 0.3, z));
+            }
+            Geometries quads = new Geometries(array);
+            for (int bits : new int[]{8, 16}) {
+                Geometries quantized = new Geometries(array)
+                        .buildBVH(new BVHBuilder().setLayout(BVHLayout.QUANTIZED).setQuantizationBits(bits));
+                for (int i = 0; i < 400; ++i)
+                    for (double offset : new double[]{1e-9, 1e-7, 1e-5}) {
+                        Ray ray = new Ray(new Point(shift + i % 20 * 0.5 + 0.1 + offset, i / 20 * 0.5 + 0.1 + offset, -10),
+                                new Vector(0, 0, 1));
+                        assertEquals(quads.hasIntersection(ray, 20), quantized.hasIntersection(ray, 20),
+                                "Quantized hierarchy lost a geometry on the minimal face of a box (" + bits + " bits)");
+                    }
+            }
+        }
+
+        // TC13: Wrong amount of bits
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setQuantizationBits(4), "4 bits");
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setQuantizationBits(32), "32 bits");
+    }
+
+    /**
+     * Test method for {@link Geometries#refitBVH()}.
+     */
+    @Test
+    void testRefit() {
+        Sphere unit = new Sphere(Point.ZERO, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Refitted hierarchy of every layout follows the moved geometries without a rebuild
+        for (BVHLayout layout : BVHLayout.values()) {
+            Instance[] instances = new Instance[216];
+            for (int i = 0; i < instances.length; ++i)
+                instances[i] = new Instance(unit, Transform.translation(i % 6 * 3, i / 6 % 6 * 3, i / 36 * 3));
+            Geometries linear = new Geometries(instances);
+            BVHBuilder builder = new BVHBuilder().setLayout(layout);
+            Geometries bvh = new Geometries(instances).buildBVH(builder);
+            BVHBuilder.Report report = builder.getReport();
+            for (int i = 0; i < instances.length; ++i)
+                instances[i].setTransform(instances[i].getTransform().then(Transform.translation(0.5, i % 3 * 0.2, 1)));
+            bvh.refitBVH();
+            assertSame(report, builder.getReport(), "Small motion must not rebuild the " + layout + " hierarchy");
+            assertEquals(linear.refitBVH().getBoundingBox().maxZ, bvh.getBoundingBox().maxZ, DELTA,
+                    "Wrong box of the refitted collection");
+            assertSameClosest(linear, bvh);
+        }
+
+        // TC02: Hierarchy degraded beyond the threshold is rebuilt
+        Instance[] instances = new Instance[216];
+        for (int i = 0; i < instances.length; ++i)
+            instances[i] = new Instance(unit, Transform.translation(i % 6 * 3, i / 6 % 6 * 3, i / 36 * 3));
+        BVHBuilder builder = new BVHBuilder();
+        Geometries bvh = new Geometries(instances).buildBVH(builder);
+        BVHBuilder.Report report = builder.getReport();
+        // the neighbours are scattered to the opposite sides of the scene
+        for (int i = 0; i < instances.length; ++i)
+            instances[i].setTransform(Transform.translation((i * 37) % 216 / 6.0 * 3 % 18, i % 2 * 15, i * 7 % 18));
+        bvh.refitBVH();
+        assertNotSame(report, builder.getReport(), "Degraded hierarchy must be rebuilt");
+        assertSameClosest(new Geometries(instances), bvh);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Threshold 1 rebuilds whenever the cost grows, no motion keeps the hierarchy
+        builder = new BVHBuilder().setRebuildThreshold(1);
+        bvh = new Geometries(instances).buildBVH(builder);
+        report = builder.getReport();
+        bvh.refitBVH();
+        assertSame(report, builder.getReport(), "Refit without motion must not rebuild");
+
+        // TC12: Collection without a hierarchy only updates its box
+        Instance single = new Instance(unit, Transform.IDENTITY);
+        Geometries noBVH = new Geometries(single);
+        single.setTransform(Transform.translation(10, 0, 0));
+        assertEquals(11, noBVH.refitBVH().getBoundingBox().maxX, DELTA, "Wrong box of the refitted collection");
+
+        // TC13: Wrong threshold
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setRebuildThreshold(0.9),
+                "Threshold below 1");
+    }
+
+    /**
+     * Test method for {@link Geometries#buildBVH(BVHBuilder)} with a cache directory.
+     *
+     * @throws IOException if the temporary cache directory can not be used
+     */
+    @Test
+    void testCache() throws IOException {
+        Path directory = Files.createTempDirectory("bvh-cache");
+        try {
+            Geometries linear = cube(new Geometries(), 6);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: First build stores the hierarchy
+            BVHBuilder builder = new BVHBuilder().setCacheDirectory(directory);
+            assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+            BVHBuilder.Report built = builder.getReport();
+            assertFalse(built.cached(), "First build must not be loaded from the cache");
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.count(), "Hierarchy must be stored in the cache");
+            }
+
+            // TC02: Same geometries are loaded in every layout
+            for (BVHLayout layout : BVHLayout.values()) {
+                builder = new BVHBuilder().setCacheDirectory(directory).setLayout(layout);
+                assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+                BVHBuilder.Report loaded = builder.getReport();
+                assertTrue(loaded.cached(), "Hierarchy must be loaded from the cache in " + layout + " layout");
+                assertEquals(built.nodes(), loaded.nodes(), "Loaded hierarchy must have the same nodes");
+                assertEquals(built.leaves(), loaded.leaves(), "Loaded hierarchy must have the same leaves");
+                assertEquals(built.depth(), loaded.depth(), "Loaded hierarchy must have the same depth");
+                assertEquals(built.cost(), loaded.cost(), DELTA, "Loaded hierarchy must have the same cost");
+            }
+
+            // TC03: Other build parameters are not loaded
+            builder = new BVHBuilder().setCacheDirectory(directory).setLeafSize(2);
+            cube(new Geometries(), 6).buildBVH(builder);
+            assertFalse(builder.getReport().cached(), "Other parameters must not be loaded");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: Moved geometry is not loaded
+            Geometries moved = cube(new Geometries(), 6);
+            moved.add(new Sphere(new Point(100, 0, 0), 1));
+            builder = new BVHBuilder().setCacheDirectory(directory);
+            moved.buildBVH(builder);
+            assertFalse(builder.getReport().cached(), "Other geometries must not be loaded");
+
+            // TC12: Damaged file is built again
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) Files.write(file, new byte[]{1, 2, 3});
+            }
+            builder = new BVHBuilder().setCacheDirectory(directory);
+            assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+            assertFalse(builder.getReport().cached(), "Damaged file must not be loaded");
+            cube(new Geometries(), 6).buildBVH(builder);
+            assertTrue(builder.getReport().cached(), "Damaged file must be replaced");
+
+            // TC13: File of the right size with inconsistent links or order is built again
+            for (int damage = 0; damage < 3; ++damage) {
+                Path file;
+                try (Stream<Path> files = Files.list(directory)) {
+                    file = files.findFirst().orElseThrow();
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+                int nodes = buffer.getInt(4), count = buffer.getInt(8);
+                int links = 16 + nodes * 6 * Double.BYTES, order = links + nodes * 2 * Integer.BYTES;
+                switch (damage) {
+                    // second child of the root out of range
+                    case 0 -> buffer.putInt(links, nodes + 5);
+                    // leaf range beyond the geometries
+                    case 1 -> {
+                        int leaf = 0;
+                        while (buffer.getInt(links + (2 * leaf + 1) * Integer.BYTES) == 0) ++leaf;
+                        buffer.putInt(links + 2 * leaf * Integer.BYTES, count);
+                    }
+                    // duplicate geometry - another one is dropped
+                    default -> buffer.putInt(order + Integer.BYTES, buffer.getInt(order));
+                }
+                Files.write(file, buffer.array());
+                builder = new BVHBuilder().setCacheDirectory(directory);
+                assertSameClosest(linear, cube(new Geometries(), 6).buildBVH(builder));
+                assertFalse(builder.getReport().cached(), "Inconsistent file must not be loaded");
+            }
+
+            // TC14: Missing directory
+            assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setCacheDirectory(null),
+                    "No cache directory");
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package unittests.geometries;
+
+import geometries.BoundingBox;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.BoundingBox class
+ *
+ * @author Maor Atari
+ */
+class BoundingBoxTests {
+    /**
+     * Default constructor for BoundingBoxTests
+     */
+    public BoundingBoxTests() {
+    }
+
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.000001;
+
+    /**
+     * Test method for {@link BoundingBox#union(BoundingBox)} and {@link BoundingBox#surfaceArea()}.
+     */
+    @Test
+    void testUnion() {
+        BoundingBox box1 = new BoundingBox(new Point(0, 0, 0), new Point(1, 1, 1));
+        BoundingBox box2 = new BoundingBox(new Point(2, 0, 0), new Point(3, 1, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Union of two disjoint boxes
+        BoundingBox union = box1.union(box2);
+        assertEquals(0, union.minX, DELTA, "Wrong minimal X of union");
+        assertEquals(3, union.maxX, DELTA, "Wrong maximal X of union");
+        assertEquals(14, union.surfaceArea(), DELTA, "Wrong surface area of union");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Union with the empty box
+        assertEquals(6, box1.union(BoundingBox.EMPTY).surfaceArea(), DELTA, "Empty box changed the union");
+        // TC12: Union with the infinite box
+        assertFalse(box1.union(BoundingBox.INFINITE).isBounded(), "Union with infinite box must be unbounded");
+        // TC13: Empty box has no area
+        assertEquals(0, BoundingBox.EMPTY.surfaceArea(), DELTA, "Empty box must have no area");
+    }
+
+    /**
+     * Test method for {@link BoundingBox#intersection(BoundingBox)}.
+     */
+    @Test
+    void testIntersection() {
+        BoundingBox box1 = new BoundingBox(new Point(0, 0, 0), new Point(2, 2, 2));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Overlapping boxes
+        BoundingBox common = box1.intersection(new BoundingBox(new Point(1, -1, 1), new Point(3, 1, 3)));
+        assertEquals(1, common.minX, DELTA, "Wrong minimal X of intersection");
+        assertEquals(0, common.minY, DELTA, "Wrong minimal Y of intersection");
+        assertEquals(1, common.maxY, DELTA, "Wrong maximal Y of intersection");
+        assertEquals(6, common.surfaceArea(), DELTA, "Wrong surface area of intersection");
+        // TC02: Disjoint boxes
+        assertTrue(box1.intersection(new BoundingBox(new Point(3, 0, 0), new Point(4, 1, 1))).isEmpty(),
+                "Intersection of disjoint boxes must be empty");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Intersection with the infinite box
+        assertEquals(24, box1.intersection(BoundingBox.INFINITE).surfaceArea(), DELTA,
+                "Infinite box changed the intersection");
+    }
+
+    /**
+     * Test method for {@link BoundingBox#intersects(Ray)}.
+     */
+    @Test
+    void testIntersects() {
+        BoundingBox box = new BoundingBox(new Point(-1, -1, -1), new Point(1, 1, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the box
+        assertTrue(box.intersects(new Ray(new Point(-5, 0.5, 0), new Vector(1, 0, 0))), "Ray crosses the box");
+        // TC02: Ray misses the box
+        assertFalse(box.intersects(new Ray(new Point(-5, 3, 0), new Vector(1, 0, 0))), "Ray misses the box");
+        // TC03: Ray starts inside the box
+        assertTrue(box.intersects(new Ray(new Point(0, 0, 0), new Vector(1, 2, 3))), "Ray starts inside the box");
+        // TC04: Box is behind the ray
+        assertFalse(box.intersects(new Ray(new Point(5, 0, 0), new Vector(1, 0, 0))), "Box is behind the ray");
+        // TC05: Diagonal ray crosses the box
+        assertTrue(box.intersects(new Ray(new Point(-5, -5, -5), new Vector(1, 1, 1))), "Diagonal ray crosses the box");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Infinite box is always hit
+        assertTrue(BoundingBox.INFINITE.intersects(new Ray(new Point(5, 0, 0), new Vector(1, 0, 0))),
+                "Infinite box must be hit");
+        // TC12: Empty box is never hit
+        assertFalse(BoundingBox.EMPTY.intersects(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0))),
+                "Empty box must not be hit");
+    }
+}
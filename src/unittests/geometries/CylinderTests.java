@@ -1,12 +1,15 @@
 package unittests.geometries;
 
+import geometries.BoundingBox;
 import geometries.Cylinder;
 import org.junit.jupiter.api.Test;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Unit tests for geometries.Cylinder class
@@ -70,4 +73,79 @@ class CylinderTests {
         Vector normal7 = cylinder.getNormal(new Point(1, 0, 2));
         assertEquals(expectedTop, normal7, "Cylinder's normal on top edge is incorrect");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Cylinder#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // Cylinder of radius 1 and height 2 standing on the XY plane around the Z axis
+        Cylinder cylinder = new Cylinder(new Ray(Point.ZERO, new Vector(0, 0, 1)), 1, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the lateral surface twice
+        assertEquals(List.of(new Point(-1, 0, 1), new Point(1, 0, 1)),
+                cylinder.findIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 0))),
+                "Ray crosses lateral surface");
+
+        // TC02: Ray crosses both bases
+        assertEquals(List.of(new Point(0.5, 0, 0), new Point(0.5, 0, 2)),
+                cylinder.findIntersections(new Ray(new Point(0.5, 0, -1), new Vector(0, 0, 1))),
+                "Ray crosses both bases");
+
+        // TC03: Ray crosses a base and the lateral surface
+        assertEquals(List.of(new Point(0, 0, 2), new Point(1, 0, 1)),
+                cylinder.findIntersections(new Ray(new Point(-1, 0, 3), new Vector(1, 0, -1))),
+                "Ray crosses base and lateral surface");
+
+        // TC04: Ray's line crosses the infinite tube beyond the bases
+        assertNull(cylinder.findIntersections(new Ray(new Point(-2, 0, 3), new Vector(1, 0, 0))),
+                "Ray above cylinder");
+
+        // TC05: Ray starts inside the cylinder
+        assertEquals(List.of(new Point(0, 0, 2)),
+                cylinder.findIntersections(new Ray(new Point(0, 0, 1), new Vector(0, 0, 1))),
+                "Ray from inside cylinder");
+
+        // TC06: Ray starts after the cylinder
+        assertNull(cylinder.findIntersections(new Ray(new Point(2, 0, 1), new Vector(1, 0, 0))),
+                "Ray after cylinder");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray along the lateral surface
+        assertNull(cylinder.findIntersections(new Ray(new Point(1, 0, -1), new Vector(0, 0, 1))),
+                "Ray along lateral surface");
+
+        // TC12: Ray in the plane of a base
+        assertNull(cylinder.findIntersections(new Ray(new Point(-2, 0, 2), new Vector(1, 0, 0))),
+                "Ray in base plane");
+
+        // TC13: Ray through the rims of both bases
+        assertNull(cylinder.findIntersections(new Ray(new Point(-2, 0, -1), new Vector(1, 0, 1))),
+                "Ray through rims");
+    }
+
+    /**
+     * Test method for {@link Cylinder#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Cylinder along an axis
+        BoundingBox box = new Cylinder(new Ray(new Point(1, 2, 3), new Vector(0, 0, 1)), 1, 2).getBoundingBox();
+        assertEquals(0, box.minX, DELTA, "Wrong minimal X");
+        assertEquals(1, box.minY, DELTA, "Wrong minimal Y");
+        assertEquals(3, box.minZ, DELTA, "Wrong minimal Z");
+        assertEquals(2, box.maxX, DELTA, "Wrong maximal X");
+        assertEquals(3, box.maxY, DELTA, "Wrong maximal Y");
+        assertEquals(5, box.maxZ, DELTA, "Wrong maximal Z");
+
+        // TC02: Tilted cylinder - the box encloses the bases
+        double s = Math.sqrt(0.5);
+        box = new Cylinder(new Ray(Point.ZERO, new Vector(1, 1, 0)), 1, 2).getBoundingBox();
+        assertEquals(-s, box.minX, DELTA, "Wrong minimal X of tilted cylinder");
+        assertEquals(-1, box.minZ, DELTA, "Wrong minimal Z of tilted cylinder");
+        assertEquals(2 * s + s, box.maxX, DELTA, "Wrong maximal X of tilted cylinder");
+        assertEquals(1, box.maxZ, DELTA, "Wrong maximal Z of tilted cylinder");
+    }
+}
@@ -1,6 +1,8 @@
 package unittests.geometries;
 
 import geometries.Geometries;
+import geometries.Intersectable;
+import geometries.Intersectable.Intersection;
 import geometries.Plane;
 import geometries.Sphere;
 import geometries.Triangle;
@@ -87,4 +89,168 @@ public class GeometriesTests {
         assertNotNull(result, "Ray should intersect all geometries");
         assertEquals(4, result.size(), "Should intersect all geometries"); // 2 from sphere + 1 from triangle + 1 from plane
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Geometries#buildBVH()}
+     * The hierarchy must produce the same intersections as the linear scan
+     */
+    @Test
+    void testBuildBVH() {
+        Geometries linear = new Geometries();
+        Geometries bvh = new Geometries();
+        for (int i = 0; i < 10; ++i) {
+            for (int j = 0; j < 10; ++j) {
+                Sphere sphere = new Sphere(new Point(i * 3, j * 3, 0), 1);
+                Triangle triangle = new Triangle(new Point(i * 3, j * 3, 5), new Point(i * 3 + 2, j * 3, 5),
+                        new Point(i * 3, j * 3 + 2, 5));
+                linear.add(sphere, triangle);
+                bvh.add(sphere, triangle);
+            }
+        }
+        Plane plane = new Plane(new Point(0, 0, 10), new Vector(0, 0, 1));
+        linear.add(plane);
+        bvh.add(plane);
+        bvh.buildBVH();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray through a sphere, a triangle and the plane
+        Ray ray = new Ray(new Point(3.2, 6.2, -5), new Vector(0, 0, 1));
+        List<Point> result = bvh.findIntersections(ray);
+        assertNotNull(result, "Ray should intersect geometries in the hierarchy");
+        assertEquals(4, result.size(), "Wrong number of intersections in the hierarchy");
+        assertEquals(linear.findIntersections(ray).size(), result.size(), "Hierarchy differs from linear scan");
+
+        // TC02: Ray hits only the unbounded plane
+        result = bvh.findIntersections(new Ray(new Point(-50, -50, -5), new Vector(0, 0, 1)));
+        assertNotNull(result, "Ray should intersect the unbounded plane");
+        assertEquals(1, result.size(), "Ray should intersect only the plane");
+
+        // TC03: Ray misses everything
+        assertNull(bvh.findIntersections(new Ray(new Point(-50, -50, -5), new Vector(0, 0, -1))),
+                "Ray misses all geometries");
+
+        // TC04: Oblique rays produce the same intersections as the linear scan
+        for (int k = 0; k < 20; ++k) {
+            ray = new Ray(new Point(-5, k, -5), new Vector(1, 0.3, 0.8));
+            List<Point> expected = linear.findIntersections(ray);
+            List<Point> actual = bvh.findIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                    "Hierarchy differs from linear scan");
+        }
+    }
+
+    /**
+     * Test method for {@link Intersectable#setBoundingBoxCheck(boolean)}
+     * The bounding box pre-rejection must not change the intersections
+     */
+    @Test
+    void testBoundingBoxCheck() {
+        Geometries geometries = new Geometries(
+                new Sphere(new Point(2, 0, 0), 1),
+                new Triangle(new Point(1, 0, 1), new Point(0, 1, 1), new Point(-1, 0, 1)),
+                new Plane(new Point(1, 1, 2), new Vector(0, 0, 1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Bounded geometries are hit with the check on
+        Intersectable.setBoundingBoxCheck(true);
+        try {
+            List<Point> result = geometries.findIntersections(new Ray(new Point(2, 0, -2), new Vector(0, 0, 1)));
+            assertNotNull(result, "Ray should intersect the sphere and the plane");
+            assertEquals(3, result.size(), "Wrong number of intersections with bounding box check");
+
+            // TC02: Ray missing the bounded geometries still hits the unbounded plane
+            result = geometries.findIntersections(new Ray(new Point(10, 10, -2), new Vector(0, 0, 1)));
+            assertNotNull(result, "Ray should intersect the plane");
+            assertEquals(1, result.size(), "Wrong number of intersections with bounding box check");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: Nested collection changed after it was added - the box of the parent grows with it
+            Geometries nested = new Geometries(new Sphere(new Point(0, 0, 0), 1));
+            Geometries parent = new Geometries(nested);
+            Ray ray = new Ray(new Point(20, 0, -2), new Vector(0, 0, 1));
+            assertNull(parent.findIntersections(ray), "Ray misses the nested collection");
+            nested.add(new Sphere(new Point(20, 0, 0), 1));
+            result = parent.findIntersections(ray);
+            assertNotNull(result, "Ray should intersect the sphere added to the nested collection");
+            assertEquals(2, result.size(), "Wrong number of intersections with bounding box check");
+
+            // TC12: The hierarchy of the parent is discarded as well
+            Geometries built = new Geometries(nested, new Sphere(new Point(-20, 0, 0), 1)).buildBVH();
+            nested.add(new Sphere(new Point(40, 0, 0), 1));
+            assertNotNull(built.findIntersections(new Ray(new Point(40, 0, -2), new Vector(0, 0, 1))),
+                    "Ray should intersect the sphere added to the nested collection");
+        } finally {
+            Intersectable.setBoundingBoxCheck(false);
+        }
+    }
+
+    /**
+     * Test method for {@link Geometries#calculateClosestIntersection(Ray, double)}
+     * Both the linear scan and the hierarchy must find the same closest intersection as
+     * the selection from the list of all the intersections
+     */
+    @Test
+    void testCalculateClosestIntersection() {
+        Geometries linear = new Geometries();
+        for (int i = 0; i < 6; ++i)
+            for (int j = 0; j < 6; ++j)
+                linear.add(new Sphere(new Point(i * 3, j * 3, -i - j), 1),
+                        new Triangle(new Point(i * 3, j * 3, 4), new Point(i * 3 + 2, j * 3, 4),
+                                new Point(i * 3, j * 3 + 2, 4)));
+        linear.add(new Plane(new Point(0, 0, 10), new Vector(0, 0, 1)));
+        Geometries bvh = new Geometries(linear).buildBVH();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Closest intersection equals the closest one of all the intersections
+        for (int k = 0; k < 30; ++k) {
+            Ray ray = new Ray(new Point(-3 + k * 0.7, -3 + k * 0.5, -10), new Vector(0.1, 0.2, 1));
+            Intersection expected = ray.findClosestIntersection(linear.calculateIntersections(ray));
+            assertEquals(expected, linear.calculateClosestIntersection(ray), "Wrong closest intersection");
+            assertEquals(expected, bvh.calculateClosestIntersection(ray), "Wrong closest intersection in hierarchy");
+        }
+
+        // TC02: Intersections beyond the maximal distance are ignored
+        Ray ray = new Ray(new Point(0, 0, -10), new Vector(0, 0, 1));
+        assertEquals(new Point(0, 0, -1), linear.calculateClosestIntersection(ray).point,
+                "Wrong closest intersection");
+        assertNull(linear.calculateClosestIntersection(ray, 5), "Intersection beyond maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Empty collection
+        assertNull(new Geometries().calculateClosestIntersection(ray), "Empty collection has no intersection");
+        // TC12: Only the unbounded plane is hit
+        ray = new Ray(new Point(-50, -50, -10), new Vector(0, 0, 1));
+        assertEquals(new Point(-50, -50, 10), bvh.calculateClosestIntersection(ray).point,
+                "Ray should hit only the plane");
+    }
+
+    /**
+     * Test method for {@link Geometries#hasIntersection(Ray, double)}
+     */
+    @Test
+    void testHasIntersection() {
+        Geometries linear = new Geometries(
+                new Sphere(new Point(0, 0, 5), 1),
+                new Triangle(new Point(-1, -1, 10), new Point(1, -1, 10), new Point(0, 1, 10)),
+                new Plane(new Point(0, 0, 20), new Vector(0, 0, 1)));
+        Geometries bvh = new Geometries(linear).buildBVH();
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Blocker closer than the maximal distance
+        assertTrue(linear.hasIntersection(ray, 100), "There is a blocker on the ray");
+        assertTrue(bvh.hasIntersection(ray, 100), "There is a blocker on the ray in the hierarchy");
+        // TC02: All the geometries are beyond the maximal distance
+        assertFalse(linear.hasIntersection(ray, 3), "The blockers are beyond the maximal distance");
+        assertFalse(bvh.hasIntersection(ray, 3), "The blockers are beyond the maximal distance in the hierarchy");
+        // TC03: Only the plane blocks a ray missing the bounded geometries
+        Ray side = new Ray(new Point(5, 5, 0), new Vector(0, 0, 1));
+        assertTrue(bvh.hasIntersection(side, 100), "The plane blocks the ray");
+        assertFalse(bvh.hasIntersection(side, 15), "The plane is beyond the maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray going away from all the geometries
+        assertFalse(bvh.hasIntersection(new Ray(Point.ZERO, new Vector(0, 0, -1)), Double.POSITIVE_INFINITY),
+                "Nothing blocks the ray");
+    }
+}
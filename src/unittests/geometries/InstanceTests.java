@@ -0,0 +1,148 @@
+package unittests.geometries;
+
+import geometries.BoundingBox;
+import geometries.Geometries;
+import geometries.Instance;
+import geometries.Intersectable.Intersection;
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.Instance class
+ *
+ * @author Maor Atari
+ */
+class InstanceTests {
+    /**
+     * Default constructor for InstanceTests
+     */
+    public InstanceTests() {
+    }
+
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in assertEquals
+     */
+    private static final double DELTA = 0.000001;
+
+    /**
+     * Unit sphere at the origin, shared by the instances
+     */
+    private final Sphere unit = new Sphere(Point.ZERO, 1);
+
+    /**
+     * Test method for {@link Instance#calculateIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // sphere of radius 2 at (5,0,0)
+        Instance instance = new Instance(unit, Transform.scaling(2).then(Transform.translation(new Vector(5, 0, 0))));
+        Ray ray = new Ray(new Point(5, 0, -10), new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the transformed geometry
+        List<Point> result = instance.findIntersections(ray);
+        assertNotNull(result, "Ray should cross the instance");
+        assertEquals(2, result.size(), "Wrong number of points");
+        assertTrue(result.contains(new Point(5, 0, -2)) && result.contains(new Point(5, 0, 2)),
+                "Wrong intersection points");
+
+        // TC02: Closest intersection and distances are in the world space
+        assertEquals(new Point(5, 0, -2), instance.calculateClosestIntersection(ray).point, "Wrong closest point");
+        assertNull(instance.calculateClosestIntersection(ray, 7.9), "Intersection beyond maximal distance");
+        assertTrue(instance.hasIntersection(ray, 8.1), "Intersection within maximal distance");
+        assertFalse(instance.hasIntersection(ray, 7.9), "Intersection beyond maximal distance");
+
+        // TC03: Ray misses the transformed geometry though it crosses the shared one
+        assertNull(instance.findIntersections(new Ray(new Point(0, 0, -10), new Vector(0, 0, 1))),
+                "Ray should miss the instance");
+
+        // TC04: Two-level hierarchy - instances of a shared collection in a collection with a hierarchy
+        Geometries model = new Geometries(unit, new Triangle(new Point(0, 2, 0), new Point(1, 2, 0),
+                new Point(0, 3, 0))).buildBVH();
+        Geometries forest = new Geometries(), copies = new Geometries();
+        for (int i = 0; i < 10; ++i)
+            for (int j = 0; j < 10; ++j) {
+                forest.add(new Instance(model, Transform.translation(i * 4, 0, j * 4)));
+                copies.add(new Sphere(new Point(i * 4, 0, j * 4), 1), new Triangle(new Point(i * 4, 2, j * 4),
+                        new Point(i * 4 + 1, 2, j * 4), new Point(i * 4, 3, j * 4)));
+            }
+        forest.buildBVH();
+        for (int i = 0; i < 100; ++i) {
+            Ray r = new Ray(new Point(-3 + i * 0.4, 0.5 + (i % 7) * 0.3, -5), new Vector(0.1, 0, 1));
+            Intersection expected = copies.calculateClosestIntersection(r);
+            Intersection actual = forest.calculateClosestIntersection(r);
+            if (expected == null) assertNull(actual, "Instances found an intersection the copies did not");
+            else assertEquals(expected.point, actual.point, "Instances found a different closest intersection");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Identity transformation
+        Instance identity = new Instance(unit, Transform.IDENTITY);
+        assertEquals(new Point(0, 0, -1),
+                identity.calculateClosestIntersection(new Ray(new Point(0, 0, -5), new Vector(0, 0, 1))).point,
+                "Identity instance must behave as the shared geometry");
+
+        // TC12: Missing arguments
+        assertThrows(IllegalArgumentException.class, () -> new Instance(null, Transform.IDENTITY), "No geometry");
+        assertThrows(IllegalArgumentException.class, () -> new Instance(unit, null), "No transform");
+    }
+
+    /**
+     * Test method for the normals and the material of the geometries intersected through an {@link Instance}.
+     */
+    @Test
+    void testGetNormal() {
+        unit.setEmission(new Color(10, 20, 30));
+        // ellipsoid with semi-axes 2, 1, 1 rotated by 90 degrees about Z axis - semi-axes 1, 2, 1
+        Instance instance = new Instance(unit,
+                Transform.scaling(2, 1, 1).then(Transform.rotation(Vector.AXIS_Z, 90)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Normal of a non-uniformly scaled geometry is perpendicular to the transformed surface
+        double c = Math.sqrt(2) / 2;
+        Ray ray = new Ray(new Point(-c, 5, 0), new Vector(0, -1, 0));
+        Intersection intersection = instance.calculateClosestIntersection(ray);
+        assertEquals(new Point(-c, 2 * c, 0), intersection.point, "Wrong intersection point");
+        Vector normal = intersection.geometry.getNormal(intersection.point);
+        assertEquals(1, normal.length(), DELTA, "Normal is not a unit vector");
+        assertEquals(new Vector(-2, 1, 0).normalize(), normal, "Wrong normal of the transformed geometry");
+
+        // TC02: Emission and material are kept
+        assertEquals(unit.getEmission(), intersection.geometry.getEmission(), "Wrong emission");
+        assertSame(unit.getMaterial(), intersection.material, "Wrong material");
+    }
+
+    /**
+     * Test method for {@link Instance#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Box of a rotated and translated geometry
+        BoundingBox box = new Instance(new Sphere(new Point(1, 0, 0), 1),
+                Transform.rotation(Vector.AXIS_Z, 90).then(Transform.translation(new Vector(0, 0, 3))))
+                .getBoundingBox();
+        assertEquals(-1, box.minX, DELTA, "Wrong minimal X");
+        assertEquals(0, box.minY, DELTA, "Wrong minimal Y");
+        assertEquals(2, box.minZ, DELTA, "Wrong minimal Z");
+        assertEquals(1, box.maxX, DELTA, "Wrong maximal X");
+        assertEquals(2, box.maxY, DELTA, "Wrong maximal Y");
+        assertEquals(4, box.maxZ, DELTA, "Wrong maximal Z");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Unbounded shared geometry
+        assertFalse(new Instance(new Plane(Point.ZERO, Vector.AXIS_Z), Transform.scaling(2))
+                .getBoundingBox().isBounded(), "Instance of an unbounded geometry must be unbounded");
+    }
+}
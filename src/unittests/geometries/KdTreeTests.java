@@ -0,0 +1,188 @@
+package unittests.geometries;
+
+import geometries.Geometries;
+import geometries.KdTree;
+import geometries.Sphere;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.KdTree class
+ *
+ * @author Maor Atari
+ */
+class KdTreeTests {
+    /**
+     * Default constructor for KdTreeTests
+     */
+    public KdTreeTests() {
+    }
+
+    /**
+     * Test method for {@link KdTree#calculateClosestIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestIntersection() {
+        Geometries geometries = Scenes.lattice();
+        KdTree tree = new KdTree(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Dense cluster of small geometries inside a large empty region - the empty space is split off
+        Geometries clustered = new Geometries(new Sphere(new Point(0, 0, -100), 10),
+                new Triangle(new Point(-100, -100, 50), new Point(100, -100, 50), new Point(0, 100, 50)));
+        for (int i = 0; i < 300; ++i)
+            clustered.add(new Sphere(new Point((i % 10) * 0.3, (i / 10 % 10) * 0.3, (i / 100) * 0.3), 0.1));
+        KdTree clusteredTree = new KdTree(clustered);
+        for (int i = 0; i < 100; ++i)
+            Scenes.assertSameClosest(clustered, clusteredTree,
+                    new Ray(new Point(-1 + (i % 10) * 0.4, -1 + (i / 10) * 0.4, 20), new Vector(0.01 * (i % 3), 0, -1)));
+
+        // TC02: Oblique rays crossing many split planes of the lattice
+        for (int i = 0; i < 50; ++i)
+            Scenes.assertSameClosest(geometries, tree,
+                    new Ray(new Point(-5 + (i % 10) * 4, -5 + (i / 10) * 8, 10), new Vector(0.7, 0.4 - (i % 5) * 0.2, -1)));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray heads exactly on the candidate split planes - the boundaries of the boxes of the geometries,
+        // crossing the planes in both directions and lying in them (zero direction component along the split axis)
+        for (int i = 0; i < 8; ++i)
+            for (double boundary : new double[]{-1.5, -1, 1, 1.5}) {
+                double x = i * 4 + boundary;
+                for (Vector direction : new Vector[]{new Vector(1, 0.3, -1), new Vector(-1, 0.3, -1),
+                        new Vector(0, 0.3, -1), new Vector(0, 1, 0), new Vector(0, -1, 0)})
+                    Scenes.assertSameClosest(geometries, tree, new Ray(new Point(x, 4 * (i % 4) + 0.2, 0), direction));
+            }
+
+        // TC12: Rays parallel to every axis - two zero direction components
+        for (int i = 0; i < 8; ++i) {
+            Scenes.assertSameClosest(geometries, tree, new Ray(new Point(i * 4 + 0.3, -10, -0.1), new Vector(0, 1, 0)));
+            Scenes.assertSameClosest(geometries, tree, new Ray(new Point(40, i * 4 - 0.2, -4), new Vector(-1, 0, 0)));
+            Scenes.assertSameClosest(geometries, tree, new Ray(new Point(i * 4, i * 4 + 0.5, 10), new Vector(0, 0, -1)));
+        }
+        assertEquals(new Point(0, 0, 1.5), tree.calculateClosestIntersection(new Ray(new Point(0, 0, 10),
+                new Vector(0, 0, -1))).point, "Wrong intersection of an axis-parallel ray");
+
+        // TC13: Ray starting inside the tree
+        Scenes.assertSameClosest(geometries, tree, new Ray(new Point(6, 6, -2), new Vector(1, 1, -1)));
+
+        // TC14: Ray missing the tree hits only the plane
+        Ray outside = new Ray(new Point(100, 100, 10), new Vector(0, 0, -1));
+        assertEquals(new Point(100, 100, -20), tree.calculateClosestIntersection(outside).point,
+                "Ray outside the tree must hit the plane");
+    }
+
+    /**
+     * Test method for {@link KdTree#getDepth()}.
+     */
+    @Test
+    void testGetDepth() {
+        // nested geometries - each split cuts off only the largest one, so the tree grows as deep as it may
+        Geometries nested = new Geometries();
+        int n = 64;
+        for (int i = 0; i < n; ++i) {
+            double scale = Math.pow(0.5, i);
+            nested.add(new Sphere(new Point(scale, scale, scale), scale / 4));
+        }
+        KdTree tree = new KdTree(nested);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The depth stops at the limit of about 8 + 1.3 log2(n) and the tree stays correct
+        assertEquals(Math.round(8 + 1.3 * Math.log(n) / Math.log(2)), tree.getDepth(), "Depth must stop at the limit");
+        for (int i = 0; i < 20; ++i) {
+            double scale = Math.pow(0.5, i);
+            Scenes.assertSameClosest(nested, tree, new Ray(new Point(scale, scale, 10), new Vector(0, 0, -1)));
+        }
+
+        // TC02: Spread geometries need a shallower tree than the limit
+        KdTree lattice = new KdTree(Scenes.lattice());
+        assertTrue(lattice.getDepth() > 1, "Lattice must be split");
+        assertTrue(lattice.getDepth() < Math.round(8 + 1.3 * Math.log(193) / Math.log(2)), "Lattice needs no limit");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Single geometry is a single leaf
+        assertEquals(0, new KdTree(new Geometries(new Sphere(Point.ZERO, 1))).getDepth(), "Single geometry");
+        // TC12: Empty tree
+        assertEquals(0, new KdTree(new Geometries()).getDepth(), "Empty tree");
+    }
+
+    /**
+     * Test method for {@link KdTree#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Geometries geometries = Scenes.lattice();
+        KdTree tree = new KdTree(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Oblique rays crossing many leaves - every intersection is reported exactly once
+        for (int i = 0; i < 50; ++i)
+            Scenes.assertSameIntersections(geometries, tree,
+                    new Ray(new Point(-5 + (i % 10) * 4, -5 + (i / 10) * 8, 10), new Vector(0.7, 0.4 - (i % 5) * 0.2, -1)));
+
+        // TC02: Large geometries referenced by many leaves around a dense cluster are reported once
+        Geometries clustered = new Geometries(new Sphere(new Point(0, 0, -100), 10),
+                new Triangle(new Point(-100, -100, 50), new Point(100, -100, 50), new Point(0, 100, 50)));
+        for (int i = 0; i < 300; ++i)
+            clustered.add(new Sphere(new Point((i % 10) * 0.3, (i / 10 % 10) * 0.3, (i / 100) * 0.3), 0.1));
+        KdTree clusteredTree = new KdTree(clustered);
+        for (int i = 0; i < 30; ++i)
+            Scenes.assertSameIntersections(clustered, clusteredTree,
+                    new Ray(new Point(-1 + (i % 6) * 0.5, -1 + (i / 6) * 0.5, 60), new Vector(0.005 * (i % 3), 0, -1)));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Rays lying in the candidate split planes - the boundaries of the boxes of the geometries
+        for (int i = 0; i < 8; ++i)
+            for (double boundary : new double[]{-1.5, 1.5}) {
+                Scenes.assertSameIntersections(geometries, tree,
+                        new Ray(new Point(i * 4 + boundary, -10, -0.1), new Vector(0, 1, 0)));
+                Scenes.assertSameIntersections(geometries, tree,
+                        new Ray(new Point(i * 4 + boundary, 4 * (i % 4) + 0.2, 10), new Vector(0, 0.3, -1)));
+            }
+
+        // TC12: Empty tree
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0.1, 0.1, -1));
+        assertNull(new KdTree(new Geometries()).findIntersections(ray), "Empty tree has no intersections");
+    }
+
+    /**
+     * Test method for {@link KdTree#hasIntersection(Ray, double)}.
+     */
+    @Test
+    void testHasIntersection() {
+        Geometries geometries = Scenes.lattice();
+        KdTree tree = new KdTree(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Shadow rays ending just before or just after the blocker, across many split planes
+        for (int i = 0; i < 50; ++i)
+            Scenes.assertSameBlocking(geometries, tree,
+                    new Ray(new Point(-5 + (i % 10) * 4, -5 + (i / 10) * 8, 10), new Vector(0.7, 0.4 - (i % 5) * 0.2, -1)));
+
+        // TC02: Blocker in the dense cluster behind the large empty leaves split off the cluster
+        Geometries clustered = new Geometries(new Sphere(new Point(0, 0, -100), 10));
+        for (int i = 0; i < 300; ++i)
+            clustered.add(new Sphere(new Point((i % 10) * 0.3, (i / 10 % 10) * 0.3, (i / 100) * 0.3), 0.1));
+        KdTree clusteredTree = new KdTree(clustered);
+        Ray cluster = new Ray(new Point(0.9, 0.9, 80), new Vector(0, 0, -1));
+        assertFalse(clusteredTree.hasIntersection(cluster, 79), "The cluster is beyond the maximal distance");
+        assertTrue(clusteredTree.hasIntersection(cluster, 81), "The cluster blocks the ray");
+
+        // TC03: Only the geometry behind the cluster blocks a ray passing between the spheres of the cluster
+        Ray between = new Ray(new Point(0.15, 0.15, 80), new Vector(0, 0, -1));
+        assertFalse(clusteredTree.hasIntersection(between, 150), "The cluster does not block the ray");
+        assertTrue(clusteredTree.hasIntersection(between, 200), "The sphere behind the cluster blocks the ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray heads on the candidate split planes, lying in them or crossing them
+        for (int i = 0; i < 8; ++i)
+            for (double boundary : new double[]{-1.5, -1, 1, 1.5})
+                for (Vector direction : new Vector[]{new Vector(1, 0.3, -1), new Vector(0, 0.3, -1), new Vector(0, 1, 0)})
+                    Scenes.assertSameBlocking(geometries, tree,
+                            new Ray(new Point(i * 4 + boundary, 4 * (i % 4) + 0.2, 0), direction));
+    }
+}
@@ -0,0 +1,221 @@
+package unittests.geometries;
+
+import geometries.Geometries;
+import geometries.RegularGrid;
+import geometries.Octree;
+import geometries.Sphere;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.Octree class
+ *
+ * @author Maor Atari
+ */
+class OctreeTests {
+    /**
+     * Default constructor for OctreeTests
+     */
+    public OctreeTests() {
+    }
+
+    /**
+     * Test method for {@link Octree#calculateClosestIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestIntersection() {
+        Geometries geometries = Scenes.lattice();
+        Octree octree = new Octree(geometries);
+        Octree deep = new Octree(geometries, 6, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays with negative direction components through a deep octree with small leaves - the
+        // traversal reflects them into positive directions
+        for (int i = 0; i < 100; ++i)
+            Scenes.assertSameClosest(geometries, deep, new Ray(new Point(40.5 - (i % 10) * 4, 35.3 - (i / 10) * 4, 10),
+                    new Vector(-0.3 - (i % 7) * 0.1, -0.2 + (i % 5) * 0.1, -1)));
+
+        // TC02: Oblique rays through the default octree
+        for (int i = 0; i < 50; ++i)
+            Scenes.assertSameClosest(geometries, octree,
+                    new Ray(new Point(-5 + (i % 10) * 4, -5 + (i / 10) * 8, 10), new Vector(0.7, 0.4 - (i % 5) * 0.2, -1)));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray heads inside the root, in leaves of various depths, going in all the octant directions
+        for (int i = 0; i < 8; ++i)
+            for (int octant = 0; octant < 8; ++octant)
+                Scenes.assertSameClosest(geometries, deep, new Ray(new Point(i * 4 + 2.1, i * 3 + 1.7, -2 - i % 3 * 2.3),
+                        new Vector((octant & 1) == 0 ? 1 : -1, (octant & 2) == 0 ? 0.6 : -0.6, (octant & 4) == 0 ? 0.3 : -0.3)));
+
+        // TC12: Zero direction components - one and two of them, with heads on the middle planes of the
+        // root cube (X and Y = 14) and off them
+        for (double x : new double[]{14, 14.3})
+            for (double y : new double[]{14, 9.6})
+                for (Vector direction : new Vector[]{new Vector(0, 0, -1), new Vector(0, 1, 0), new Vector(-1, 0, 0),
+                        new Vector(0, 0.5, -1), new Vector(-0.5, 0, -1), new Vector(1, -0.5, 0)}) {
+                    Ray ray = new Ray(new Point(x, y, 0.5), direction);
+                    Scenes.assertSameClosest(geometries, deep, ray);
+                    Scenes.assertSameClosest(geometries, octree, ray);
+                }
+        assertEquals(new Point(0, 0, 1.5), octree.calculateClosestIntersection(new Ray(new Point(0, 0, 10),
+                new Vector(0, 0, -1))).point, "Wrong intersection of an axis-parallel ray");
+
+        // TC13: Ray missing the octree hits only the plane
+        Ray outside = new Ray(new Point(100, 100, 10), new Vector(0, 0, -1));
+        assertEquals(new Point(100, 100, -20), octree.calculateClosestIntersection(outside).point,
+                "Ray outside the octree must hit the plane");
+    }
+
+    /**
+     * Test method for {@link Octree#getDepth()}.
+     */
+    @Test
+    void testGetDepth() {
+        // two small clusters in the opposite corners of a large cube
+        Geometries corners = new Geometries();
+        for (int c = 0; c < 2; ++c)
+            for (int i = 0; i < 9; ++i)
+                corners.add(new Sphere(new Point(c * 1000 + i % 3 * 0.1, c * 1000 + i / 3 * 0.1, c * 1000), 0.04));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Octants holding a whole cluster are subdivided although no geometry is separated, so the
+        // leaves shrink around the clusters (1000 / 2^12 is about the size of a cluster)
+        Octree octree = new Octree(corners, 20, 8);
+        assertTrue(octree.getDepth() >= 12, "Single occupied octant must be subdivided");
+        for (int i = 0; i < 9; ++i)
+            Scenes.assertSameClosest(corners, octree, new Ray(new Point(i % 3 * 0.1 + 0.01, i / 3 * 0.1, 10),
+                    new Vector(0, 0, -1)));
+
+        // TC02: Geometries overlapping all the octants are not subdivided - it would only multiply the references
+        Geometries overlapping = new Geometries();
+        for (int i = 0; i < 9; ++i) overlapping.add(new Sphere(new Point(i * 0.01, 0, 0), 5));
+        assertEquals(0, new Octree(overlapping, 20, 1).getDepth(), "Subdivision without progress must stop");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Occupancy limit reached exactly - a single leaf
+        assertEquals(0, new Octree(corners, 20, 18).getDepth(), "Octree must not be subdivided");
+        // TC12: One geometry above the occupancy limit - the clusters are separated
+        assertTrue(new Octree(corners, 20, 17).getDepth() > 0, "Octree must be subdivided");
+    }
+
+    /**
+     * Test method for {@link Octree#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Geometries geometries = Scenes.lattice();
+        Octree deep = new Octree(geometries, 6, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays with negative direction components through small leaves - every intersection is reported
+        // exactly once after the reflected octants are mapped back
+        for (int i = 0; i < 50; ++i)
+            Scenes.assertSameIntersections(geometries, deep, new Ray(new Point(40.5 - (i % 10) * 4, 35.3 - (i / 10) * 8, 10),
+                    new Vector(-0.3 - (i % 7) * 0.1, -0.2 + (i % 5) * 0.1, -1)));
+
+        // TC02: Geometries around the center of the root are referenced by all the octants and reported once
+        Geometries centered = new Geometries(new Sphere(new Point(10, 10, 10), 4),
+                new Triangle(new Point(0, 0, 10), new Point(20, 0, 10), new Point(10, 20, 10)));
+        for (int c = 0; c < 8; ++c)
+            for (int i = 0; i < 4; ++i)
+                centered.add(new Sphere(new Point((c & 1) * 20 + i * 0.3, (c >> 1 & 1) * 20, (c >> 2) * 20), 0.1));
+        Octree octree = new Octree(centered, 6, 2);
+        for (int octant = 0; octant < 8; ++octant)
+            Scenes.assertSameIntersections(centered, octree, new Ray(new Point(10.5, 9.7, 10.2),
+                    new Vector((octant & 1) == 0 ? 1 : -1, (octant & 2) == 0 ? 0.6 : -0.6, (octant & 4) == 0 ? 0.3 : -0.3)));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Rays lying in the middle planes of the root cube (X and Y = 14)
+        for (Vector direction : new Vector[]{new Vector(0, 1, 0), new Vector(0, 0.5, -1), new Vector(1, 0, -0.2)}) {
+            Scenes.assertSameIntersections(geometries, deep, new Ray(new Point(14, -5, 0.5), direction));
+            Scenes.assertSameIntersections(geometries, deep, new Ray(new Point(-5, 14, 0.5), direction));
+        }
+
+        // TC12: Empty octree
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0.1, 0.1, -1));
+        assertNull(new Octree(new Geometries()).findIntersections(ray), "Empty octree has no intersections");
+    }
+
+    /**
+     * Test method for {@link Octree#getMemorySize()}.
+     */
+    @Test
+    void testGetMemorySize() {
+        // four dense clusters of small spheres in the corners of a large empty region
+        Geometries clustered = new Geometries();
+        for (int c = 0; c < 4; ++c)
+            for (int i = 0; i < 500; ++i)
+                clustered.add(new Sphere(new Point((c & 1) * 1000 + (i % 8) * 0.5, (c >> 1) * 1000 + (i / 8 % 8) * 0.5,
+                        (i / 64) * 0.5), 0.2));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The empty space costs the octree nothing - it is smaller than the uniform grid
+        Octree octree = new Octree(clustered);
+        assertTrue(octree.getMemorySize() < new RegularGrid(clustered).getMemorySize(),
+                "Sparse octree must use less memory than the uniform grid on a clustered scene");
+        Ray ray = new Ray(new Point(1, 1, 10), new Vector(0, 0, -1));
+        assertEquals(ray.findClosestIntersection(clustered.calculateIntersections(ray)).point,
+                octree.calculateClosestIntersection(ray).point, "Wrong intersection in a cluster");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Depth limit
+        assertTrue(new Octree(clustered, 3, 1).getDepth() <= 3, "Depth limit exceeded");
+        // TC12: Occupancy limit above the amount of the geometries - a single leaf
+        assertEquals(0, new Octree(clustered, 10, 2000).getDepth(), "Octree must not be subdivided");
+        // TC13: Non-positive limits
+        assertThrows(IllegalArgumentException.class, () -> new Octree(clustered, 0, 8), "Zero depth limit");
+        assertThrows(IllegalArgumentException.class, () -> new Octree(clustered, 10, 0), "Zero occupancy limit");
+    }
+
+    /**
+     * Test method for {@link Octree#hasIntersection(Ray, double)}.
+     */
+    @Test
+    void testHasIntersection() {
+        // a small cluster whose gaps let a ray through to a blocker in a far octant of a sparse octree
+        Geometries sparse = new Geometries(new Sphere(new Point(20, 0.15, 0), 1), new Sphere(new Point(20, 20, 20), 1));
+        for (int i = 0; i < 9; ++i)
+            sparse.add(new Sphere(new Point(i % 3 * 0.3, i / 3 * 0.3, 0), 0.1));
+        Octree octree = new Octree(sparse);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Blocker in a later octant - beyond the maximal distance the traversal stops before it
+        Ray ray = new Ray(new Point(-5, 0.15, 0), new Vector(1, 0, 0));
+        assertFalse(octree.hasIntersection(ray, 10), "The octant of the blocker is beyond the maximal distance");
+        assertFalse(octree.hasIntersection(ray, 23.9), "The blocker is beyond the maximal distance");
+        assertTrue(octree.hasIntersection(ray, 24.1), "The blocker is before the maximal distance");
+
+        // TC02: Ray starting in a depth-limited leaf holding a whole column of geometries - only the geometries
+        // in front of the ray head and before the maximal distance block it
+        Geometries column = new Geometries(new Sphere(new Point(10, 10, 30), 1));
+        for (int k = 0; k < 10; ++k)
+            column.add(new Sphere(new Point(0, 0, 2 * k), 0.5));
+        Octree limited = new Octree(column, 1, 1);
+        for (Vector direction : new Vector[]{new Vector(0, 0, 1), new Vector(0, 0, -1)}) {
+            Ray inside = new Ray(new Point(0, 0, 5), direction);
+            assertFalse(limited.hasIntersection(inside, 0.49), "The nearest sphere is beyond the maximal distance");
+            assertTrue(limited.hasIntersection(inside, 0.51), "The nearest sphere blocks the ray");
+        }
+        assertFalse(limited.hasIntersection(new Ray(new Point(0, 0, 19), new Vector(0, 0, 1)), 100),
+                "The spheres behind the ray head do not block it");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray heads on the center of the root cube, where all the middle planes meet, in all the octant
+        // directions through small leaves
+        Geometries geometries = Scenes.lattice();
+        Octree deep = new Octree(geometries, 6, 1);
+        for (int octant = 0; octant < 8; ++octant)
+            Scenes.assertSameBlocking(geometries, deep, new Ray(new Point(14, 14, 6),
+                    new Vector((octant & 1) == 0 ? 1 : -1, (octant & 2) == 0 ? 0.6 : -0.6, (octant & 4) == 0 ? 0.3 : -0.3)));
+
+        // TC12: Axis-parallel rays lying in the middle planes of the root cube
+        for (double z : new double[]{0.5, -4, 6})
+            for (Vector direction : new Vector[]{new Vector(0, 1, 0), new Vector(1, 0, 0), new Vector(0, 0, -1)})
+                Scenes.assertSameBlocking(geometries, deep, new Ray(new Point(14, 14, z), direction));
+    }
+}
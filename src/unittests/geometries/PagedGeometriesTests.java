@@ -0,0 +1,162 @@
+package unittests.geometries;
+
+import geometries.Geometries;
+import geometries.Intersectable.Intersection;
+import geometries.PagedGeometries;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.PagedGeometries class
+ *
+ * @author Maor Atari
+ */
+class PagedGeometriesTests {
+    /**
+     * Default constructor for PagedGeometriesTests
+     */
+    public PagedGeometriesTests() {
+    }
+
+    /**
+     * Builds a terrain of 2 * n * n triangles over the square [0, n] x [0, n], adding them both
+     * to a collection in the memory and to a writer of a paged file
+     *
+     * @param n          the amount of the squares along an axis
+     * @param geometries the collection in the memory
+     * @param writer     the writer of the paged file
+     */
+    private static void terrain(int n, Geometries geometries, PagedGeometries.Writer writer) {
+        Triangle[] triangles = Scenes.triangles(Scenes.terrainPositions(n), Scenes.terrainIndices(n));
+        geometries.add(triangles);
+        writer.add(triangles);
+    }
+
+    /**
+     * Test method for {@link PagedGeometries#calculateClosestIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestIntersection() throws IOException {
+        Path file = Files.createTempFile("paged", ".pge");
+        try {
+            Geometries geometries = new Geometries();
+            PagedGeometries.Writer writer = new PagedGeometries.Writer().setChunkSize(16);
+            terrain(20, geometries, writer);
+            geometries.buildBVH();
+            writer.write(file);
+            Material material = new Material().setKD(0.5);
+            PagedGeometries paged = new PagedGeometries(file, 4).setMaterial(material);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Rays in various directions find the same closest intersection as the geometries in the memory
+            assertEquals(50, paged.getChunksCount(), "Wrong amount of chunks");
+            for (int i = 0; i < 300; ++i) {
+                Ray ray = new Ray(new Point(-2 + (i % 15) * 1.7, -3 + (i / 15) * 1.3, 6),
+                        new Vector(0.3 - (i % 4) * 0.2, 0.2 - (i % 3) * 0.15, -1));
+                Intersection expected = geometries.calculateClosestIntersection(ray);
+                Intersection actual = paged.calculateClosestIntersection(ray);
+                if (expected == null) assertNull(actual, "Paged geometries found an intersection which does not exist");
+                else {
+                    assertNotNull(actual, "Paged geometries missed an intersection");
+                    assertEquals(expected.point, actual.point, "Paged geometries found a wrong closest intersection");
+                    assertSame(material, actual.material, "Triangles must have the material of the collection");
+                }
+                assertTrue(paged.getResidentCount() <= 4, "Too many resident chunks");
+            }
+
+            // TC02: The resident set is bounded - the chunks evicted from the cache are read again
+            assertTrue(paged.getFaultCount() > paged.getChunksCount(), "Evicted chunks must be read again");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: Ray missing the terrain reads nothing
+            long faults = paged.getFaultCount();
+            assertNull(paged.calculateClosestIntersection(new Ray(new Point(-5, -5, 10), new Vector(0, 0, 1))),
+                    "Ray should miss the terrain");
+            assertEquals(faults, paged.getFaultCount(), "Missed chunks must not be read");
+
+            // TC12: Resident chunk is not read again
+            paged.clearCache();
+            Ray ray = new Ray(new Point(10.3, 10.6, 10), new Vector(0, 0, -1));
+            paged.calculateClosestIntersection(ray);
+            faults = paged.getFaultCount();
+            paged.calculateClosestIntersection(ray);
+            assertEquals(faults, paged.getFaultCount(), "Resident chunk must not be read again");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test method for {@link PagedGeometries#findIntersections(Ray)} and
+     * {@link PagedGeometries#hasIntersection(Ray, double)}.
+     */
+    @Test
+    void testFindIntersections() throws IOException {
+        Path file = Files.createTempFile("paged", ".pge");
+        try {
+            Geometries geometries = new Geometries();
+            PagedGeometries.Writer writer = new PagedGeometries.Writer().setChunkSize(7);
+            terrain(10, geometries, writer);
+            writer.write(file);
+            PagedGeometries paged = new PagedGeometries(file, 2);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Grazing ray crosses the terrain several times
+            Ray ray = new Ray(new Point(0.1, 0.37, 1.2), new Vector(1, 0.5, -0.05));
+            assertEquals(geometries.findIntersections(ray).size(), paged.findIntersections(ray).size(),
+                    "Wrong number of intersections");
+
+            // TC02: Shadow rays agree with the geometries in the memory
+            for (int i = 0; i < 100; ++i) {
+                Ray shadow = new Ray(new Point(1 + (i % 10) * 0.83, 1 + (i / 10) * 0.79, 2.5),
+                        new Vector(Math.cos(i), Math.sin(i), -0.4));
+                for (double distance : new double[]{1, 3, 20})
+                    assertEquals(geometries.hasIntersection(shadow, distance), paged.hasIntersection(shadow, distance),
+                            "Paged geometries differ from the geometries in the memory");
+            }
+
+            // =============== Boundary Values Tests ==================
+            // TC11: Empty file
+            new PagedGeometries.Writer().write(file);
+            assertNull(new PagedGeometries(file, 1).findIntersections(ray), "Empty file has no intersections");
+
+            // TC12: Damaged file
+            Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+            assertThrows(IllegalArgumentException.class, () -> new PagedGeometries(file, 1), "Damaged file");
+
+            // TC13: Wrong parameters
+            assertThrows(IllegalArgumentException.class, () -> new PagedGeometries(file, 0), "Zero capacity");
+            assertThrows(IllegalArgumentException.class, () -> new PagedGeometries(null, 1), "No file");
+            assertThrows(IllegalArgumentException.class, () -> new PagedGeometries.Writer().setChunkSize(0),
+                    "Zero chunk size");
+
+            // TC14: Chunk offsets inside the table or inside the previous chunk
+            writer.write(file);
+            byte[] bytes = Files.readAllBytes(file);
+            // the offset of the first chunk follows its box, after the magic number and the amount of the chunks
+            ByteBuffer.wrap(bytes).putLong(8 + 48, 8);
+            Files.write(file, bytes);
+            assertThrows(IllegalArgumentException.class, () -> new PagedGeometries(file, 1), "Chunk inside the table");
+            writer.write(file);
+            bytes = Files.readAllBytes(file);
+            // the second chunk starts where the first one does
+            ByteBuffer.wrap(bytes).putLong(8 + 60 + 48, ByteBuffer.wrap(bytes).getLong(8 + 48));
+            Files.write(file, bytes);
+            assertThrows(IllegalArgumentException.class, () -> new PagedGeometries(file, 1),
+                    "Chunk inside the previous chunk");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -3,8 +3,11 @@ package unittests.geometries;
 import geometries.Polygon;
 import org.junit.jupiter.api.Test;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -96,4 +99,59 @@ class PolygonTests {
             assertEquals(0d, result.dotProduct(pts[i].subtract(pts[i == 0 ? 3 : i - 1])), DELTA,
                     "Polygon's normal is not orthogonal to one of the edges");
     }
+
+    /**
+     * Test method for {@link Polygon#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // Square in the plane z = 1, vertices ordered in both directions
+        Polygon square = new Polygon(new Point(1, 1, 1), new Point(-1, 1, 1), new Point(-1, -1, 1), new Point(1, -1, 1));
+        Polygon reversed = new Polygon(new Point(1, -1, 1), new Point(-1, -1, 1), new Point(-1, 1, 1), new Point(1, 1, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Inside polygon
+        Ray inside = new Ray(new Point(0.5, 0.2, 0), new Vector(0, 0, 1));
+        List<Point> result = square.findIntersections(inside);
+        assertNotNull(result, "Ray should intersect polygon");
+        assertEquals(List.of(new Point(0.5, 0.2, 1)), result, "Ray intersection point is wrong");
+        assertEquals(List.of(new Point(0.5, 0.2, 1)), reversed.findIntersections(inside),
+                "Ray intersection point is wrong for reversed vertices order");
+
+        // TC02: Outside against edge
+        assertNull(square.findIntersections(new Ray(new Point(2, 0, 0), new Vector(0, 0, 1))),
+                "Ray's line outside against edge");
+
+        // TC03: Outside against vertex
+        assertNull(square.findIntersections(new Ray(new Point(2, 2, 0), new Vector(0, 0, 1))),
+                "Ray's line outside against vertex");
+
+        // TC04: Polygon behind the ray
+        assertNull(square.findIntersections(new Ray(new Point(0.5, 0.2, 2), new Vector(0, 0, 1))),
+                "Polygon behind the ray");
+
+        // TC05: Polygon of three vertices - a Polygon, not a Triangle, keeps its edge lines
+        Polygon three = new Polygon(new Point(1, 1, 1), new Point(-1, 1, 1), new Point(-1, -1, 1));
+        assertEquals(List.of(new Point(-0.5, 0.2, 1)), three.findIntersections(new Ray(new Point(-0.5, 0.2, 0),
+                new Vector(0, 0, 1))), "Ray intersection point is wrong for three vertices");
+        assertNull(three.findIntersections(new Ray(new Point(0.5, -0.2, 0), new Vector(0, 0, 1))),
+                "Ray's line outside the polygon of three vertices");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: On edge
+        assertNull(square.findIntersections(new Ray(new Point(1, 0, 0), new Vector(0, 0, 1))),
+                "Ray's line on edge");
+
+        // TC12: In vertex
+        assertNull(square.findIntersections(new Ray(new Point(1, 1, 0), new Vector(0, 0, 1))),
+                "Ray's line in vertex");
+
+        // TC13: On edge's continuation
+        assertNull(square.findIntersections(new Ray(new Point(1, 2, 0), new Vector(0, 0, 1))),
+                "Ray's line on edge's continuation");
+
+        // TC14: Ray parallel to polygon
+        assertNull(square.findIntersections(new Ray(new Point(0, 0, 2), new Vector(1, 0, 0))),
+                "Ray parallel to polygon");
+    }
 }
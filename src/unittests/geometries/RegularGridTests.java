@@ -0,0 +1,152 @@
+package unittests.geometries;
+
+import geometries.Geometries;
+import geometries.Intersectable.Intersection;
+import geometries.Plane;
+import geometries.RegularGrid;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.RegularGrid class
+ *
+ * @author Maor Atari
+ */
+class RegularGridTests {
+    /**
+     * Default constructor for RegularGridTests
+     */
+    public RegularGridTests() {
+    }
+
+    /**
+     * Test method for {@link RegularGrid#calculateClosestIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestIntersection() {
+        Geometries geometries = Scenes.lattice();
+        RegularGrid grid = new RegularGrid(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays in various directions find the same closest intersection as the linear scan
+        for (int i = 0; i < 200; ++i) {
+            Point head = new Point(-5 + (i % 10) * 4, -5 + (i / 10) * 2, 10);
+            Ray ray = new Ray(head, new Vector(0.3 + (i % 7) * 0.1, 0.2 - (i % 5) * 0.1, -1));
+            Intersection expected = ray.findClosestIntersection(geometries.calculateIntersections(ray));
+            Intersection actual = grid.calculateClosestIntersection(ray);
+            if (expected == null) assertNull(actual, "Grid found an intersection which does not exist");
+            else {
+                assertNotNull(actual, "Grid missed an intersection");
+                assertEquals(expected.point, actual.point, "Grid found a wrong closest intersection");
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray starting inside the grid
+        Ray inside = new Ray(new Point(6, 6, -2), new Vector(1, 1, -1));
+        assertEquals(inside.findClosestIntersection(geometries.calculateIntersections(inside)).point,
+                grid.calculateClosestIntersection(inside).point, "Wrong intersection of a ray starting inside the grid");
+
+        // TC12: Ray parallel to an axis
+        Ray parallel = new Ray(new Point(0, 0, 10), new Vector(0, 0, -1));
+        assertEquals(new Point(0, 0, 1.5), grid.calculateClosestIntersection(parallel).point,
+                "Wrong intersection of an axis-parallel ray");
+
+        // TC13: Ray missing the grid hits only the plane
+        Ray outside = new Ray(new Point(100, 100, 10), new Vector(0, 0, -1));
+        assertEquals(new Point(100, 100, -20), grid.calculateClosestIntersection(outside).point,
+                "Ray outside the grid must hit the plane");
+    }
+
+    /**
+     * Test method for {@link RegularGrid#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Geometries geometries = Scenes.lattice();
+        RegularGrid grid = new RegularGrid(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Every intersection is reported exactly once
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0.1, 0.1, -1));
+        Scenes.assertSameIntersections(geometries, grid, ray);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Empty grid
+        assertNull(new RegularGrid(new Geometries()).findIntersections(ray), "Empty grid has no intersections");
+    }
+
+    /**
+     * Test method for {@link RegularGrid#RegularGrid(Geometries, int)}.
+     */
+    @Test
+    void testHierarchicalGrid() {
+        // small detailed object in the middle of a large sparse scene
+        Geometries stadium = new Geometries();
+        for (int i = 0; i < 1000; ++i)
+            stadium.add(new Sphere(new Point((i % 10) * 0.2, (i / 10 % 10) * 0.2, (i / 100) * 0.2), 0.07));
+        for (int i = 0; i < 20; ++i)
+            stadium.add(new Sphere(new Point(-500 + i * 50, (i % 2) * 500 - 250, -100), 10));
+        stadium.add(new Plane(new Point(0, 0, -200), new Vector(0, 0, 1)));
+        RegularGrid grid = new RegularGrid(stadium, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays through the detailed object find the same closest intersection as the linear scan
+        for (int i = 0; i < 200; ++i) {
+            Ray ray = new Ray(new Point(-0.23 + (i % 20) * 0.13, -0.31 + (i / 20) * 0.27, 10),
+                    new Vector(0.01 * (i % 3), -0.02 * (i % 4), -1));
+            Intersection expected = ray.findClosestIntersection(stadium.calculateIntersections(ray));
+            Intersection actual = grid.calculateClosestIntersection(ray);
+            assertEquals(expected.point, actual.point, "Hierarchical grid found a wrong closest intersection");
+            assertEquals(stadium.findIntersections(ray).size(), grid.findIntersections(ray).size(),
+                    "Hierarchical grid must report every intersection exactly once");
+        }
+
+        // TC02: Nested grids refine the dense cells with less memory than a finer single-level grid would need
+        assertTrue(grid.getMemorySize() > new RegularGrid(stadium).getMemorySize(),
+                "Dense cells must get nested grids");
+
+        // TC03: Shadow rays agree with the linear scan
+        for (int i = 0; i < 100; ++i) {
+            Ray ray = new Ray(new Point(0.9, 0.9, 0.9), new Vector(Math.cos(i), Math.sin(i), 0.3 * (i % 5 - 2)));
+            for (double distance : new double[]{0.5, 30})
+                assertEquals(stadium.hasIntersection(ray, distance), grid.hasIntersection(ray, distance),
+                        "Hierarchical grid differs from linear scan");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Single level is the regular grid
+        assertEquals(new RegularGrid(stadium).getMemorySize(), new RegularGrid(stadium, 1).getMemorySize(),
+                "Single-level grid must not have nested grids");
+        // TC12: Non-positive amount of levels
+        assertThrows(IllegalArgumentException.class, () -> new RegularGrid(stadium, 0), "Zero levels");
+    }
+
+    /**
+     * Test method for {@link RegularGrid#hasIntersection(Ray, double)}.
+     */
+    @Test
+    void testHasIntersection() {
+        Geometries geometries = Scenes.lattice();
+        RegularGrid grid = new RegularGrid(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The grid agrees with the linear scan
+        for (int i = 0; i < 100; ++i) {
+            Ray ray = new Ray(new Point(-5 + (i % 10) * 4, -5 + (i / 10) * 4, 10), new Vector(0.2, 0.1, -1));
+            for (double distance : new double[]{5, 12, 40})
+                assertEquals(geometries.hasIntersection(ray, distance), grid.hasIntersection(ray, distance),
+                        "Grid differs from linear scan");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray going away from the grid and the plane
+        assertFalse(grid.hasIntersection(new Ray(new Point(0, 0, 10), new Vector(0, 0, 1)), Double.POSITIVE_INFINITY),
+                "Nothing blocks the ray");
+    }
+}
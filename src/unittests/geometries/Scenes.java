@@ -0,0 +1,164 @@
+package unittests.geometries;
+
+import geometries.Geometries;
+import geometries.Intersectable;
+import geometries.Intersectable.Intersection;
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Scenes shared by the tests of the acceleration structures and the meshes, and the comparison of a structure
+ * with the linear scan of its geometries
+ *
+ * @author Maor Atari
+ */
+final class Scenes {
+    /**
+     * Private constructor - the class has only static methods
+     */
+    private Scenes() {
+    }
+
+    /**
+     * Builds a scene of spheres and triangles spread on a lattice, with a plane behind them
+     *
+     * @return the geometries of the scene
+     */
+    static Geometries lattice() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 8; ++i)
+            for (int j = 0; j < 8; ++j)
+                for (int k = 0; k < 3; ++k) {
+                    if ((i + j + k) % 2 == 0)
+                        geometries.add(new Sphere(new Point(i * 4, j * 4, k * -4), 1.5));
+                    else
+                        geometries.add(new Triangle(new Point(i * 4 - 1, j * 4 - 1, k * -4),
+                                new Point(i * 4 + 1, j * 4 - 1, k * -4), new Point(i * 4, j * 4 + 1, k * -4)));
+                }
+        geometries.add(new Plane(new Point(0, 0, -20), new Vector(0, 0, 1)));
+        return geometries;
+    }
+
+    /**
+     * Builds the vertices of a terrain - a height field over the square [0, n] x [0, n]
+     *
+     * @param n the amount of the squares along an axis
+     * @return the coordinates of the (n + 1) * (n + 1) vertices, row by row along Y
+     */
+    static double[] terrainPositions(int n) {
+        double[] positions = new double[3 * (n + 1) * (n + 1)];
+        for (int i = 0; i <= n; ++i)
+            for (int j = 0; j <= n; ++j) {
+                int v = 3 * (i * (n + 1) + j);
+                positions[v] = i;
+                positions[v + 1] = j;
+                positions[v + 2] = Math.sin(i * 0.7) + Math.cos(j * 0.4);
+            }
+        return positions;
+    }
+
+    /**
+     * Builds the faces of a terrain - two faces per square, split by the diagonal from (i + 1, j) to (i, j + 1)
+     *
+     * @param n the amount of the squares along an axis
+     * @return the indices of the vertices of the 2 * n * n faces
+     */
+    static int[] terrainIndices(int n) {
+        int[] indices = new int[6 * n * n];
+        int k = 0;
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j) {
+                int v = i * (n + 1) + j;
+                indices[k++] = v;
+                indices[k++] = v + n + 1;
+                indices[k++] = v + 1;
+                indices[k++] = v + n + 1;
+                indices[k++] = v + n + 2;
+                indices[k++] = v + 1;
+            }
+        return indices;
+    }
+
+    /**
+     * Builds separate triangles of indexed faces
+     *
+     * @param positions the coordinates of the vertices
+     * @param indices   the indices of the vertices of the faces
+     * @return the triangles
+     */
+    static Triangle[] triangles(double[] positions, int[] indices) {
+        Point[] points = new Point[positions.length / 3];
+        for (int v = 0; v < points.length; ++v)
+            points[v] = new Point(positions[3 * v], positions[3 * v + 1], positions[3 * v + 2]);
+        Triangle[] triangles = new Triangle[indices.length / 3];
+        for (int f = 0; f < triangles.length; ++f)
+            triangles[f] = new Triangle(points[indices[3 * f]], points[indices[3 * f + 1]], points[indices[3 * f + 2]]);
+        return triangles;
+    }
+
+    /**
+     * Checks that a structure finds the same closest intersection of a ray as the linear scan of its geometries
+     *
+     * @param geometries the geometries of the structure
+     * @param structure  the structure
+     * @param ray        the ray
+     */
+    static void assertSameClosest(Geometries geometries, Intersectable structure, Ray ray) {
+        Intersection expected = ray.findClosestIntersection(geometries.calculateIntersections(ray));
+        Intersection actual = structure.calculateClosestIntersection(ray);
+        if (expected == null) assertNull(actual, "Found an intersection which does not exist: " + ray);
+        else {
+            assertNotNull(actual, "Missed an intersection: " + ray);
+            assertEquals(expected.point, actual.point, "Found a wrong closest intersection: " + ray);
+        }
+    }
+
+    /**
+     * Checks that a structure finds the same intersections of a ray as the linear scan of its geometries -
+     * every intersection exactly once. The order of the intersections is not defined, so both lists are
+     * sorted by the distance from the ray head
+     *
+     * @param geometries the geometries of the structure
+     * @param structure  the structure
+     * @param ray        the ray
+     */
+    static void assertSameIntersections(Geometries geometries, Intersectable structure, Ray ray) {
+        List<Point> expected = geometries.findIntersections(ray);
+        List<Point> actual = structure.findIntersections(ray);
+        if (expected == null) assertNull(actual, "Found intersections which do not exist: " + ray);
+        else {
+            assertNotNull(actual, "Missed the intersections: " + ray);
+            Point p0 = ray.getP0();
+            Comparator<Point> byDistance = Comparator.comparingDouble(p0::distance);
+            assertEquals(expected.stream().sorted(byDistance).toList(), actual.stream().sorted(byDistance).toList(),
+                    "Found wrong intersections: " + ray);
+        }
+    }
+
+    /**
+     * Checks that a ray is blocked by a structure as by the linear scan of its geometries when the maximal
+     * distance ends just before and just after the closest intersection, and when it is unlimited
+     *
+     * @param geometries the geometries of the structure
+     * @param structure  the structure
+     * @param ray        the ray
+     */
+    static void assertSameBlocking(Geometries geometries, Intersectable structure, Ray ray) {
+        assertEquals(geometries.hasIntersection(ray, Double.POSITIVE_INFINITY),
+                structure.hasIntersection(ray, Double.POSITIVE_INFINITY), "Blocked differently: " + ray);
+        Intersection closest = ray.findClosestIntersection(geometries.calculateIntersections(ray));
+        if (closest == null) return;
+        double distance = ray.getP0().distance(closest.point);
+        assertFalse(structure.hasIntersection(ray, distance - 1e-6), "Blocked by a farther geometry: " + ray);
+        assertTrue(structure.hasIntersection(ray, distance + 1e-6), "Missed the blocker: " + ray);
+    }
+}
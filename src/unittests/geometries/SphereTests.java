@@ -160,4 +160,30 @@ class SphereTests {
         assertNotNull(result, "Ray starts inside, orthogonal to ray head -> sphere center line");
         assertEquals(1, result.size(), "Wrong number of points");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Sphere#calculateClosestIntersection(Ray, double)}.
+     */
+    @Test
+    void testCalculateClosestIntersection() {
+        Sphere sphere = new Sphere(p100, 1d);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the sphere - the nearer point is returned
+        Ray ray = new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0));
+        assertEquals(Point.ZERO, sphere.calculateClosestIntersection(ray).point, "Wrong closest point");
+        // TC02: Ray starts inside the sphere - the only point is returned
+        assertEquals(new Point(2, 0, 0),
+                sphere.calculateClosestIntersection(new Ray(new Point(0.5, 0, 0), new Vector(1, 0, 0))).point,
+                "Wrong closest point for ray inside the sphere");
+        // TC03: Ray misses the sphere
+        assertNull(sphere.calculateClosestIntersection(new Ray(new Point(-1, 2, 0), new Vector(1, 0, 0))),
+                "Ray misses the sphere");
+        // TC04: The intersection is beyond the maximal distance
+        assertNull(sphere.calculateClosestIntersection(ray, 0.5), "Intersection beyond maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The intersection is exactly at the maximal distance
+        assertNull(sphere.calculateClosestIntersection(ray, 1), "Intersection at maximal distance");
+    }
+}
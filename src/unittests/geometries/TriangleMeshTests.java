@@ -0,0 +1,198 @@
+package unittests.geometries;
+
+import geometries.Geometries;
+import geometries.Intersectable.Intersection;
+import geometries.TriangleMesh;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.TriangleMesh class
+ *
+ * @author Maor Atari
+ */
+class TriangleMeshTests {
+    /**
+     * Default constructor for TriangleMeshTests
+     */
+    public TriangleMeshTests() {
+    }
+
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.000001;
+
+    /**
+     * Size of the terrain - the amount of the squares along an axis
+     */
+    private static final int N = 20;
+
+    /**
+     * Test method for {@link TriangleMesh#calculateClosestIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestIntersection() {
+        double[] positions = Scenes.terrainPositions(N);
+        int[] indices = Scenes.terrainIndices(N);
+        Geometries triangles = new Geometries(Scenes.triangles(positions, indices));
+        Material material = new Material().setKD(0.5);
+        Color emission = new Color(10, 20, 30);
+        TriangleMesh mesh = new TriangleMesh(positions, indices);
+        mesh.setEmission(emission).setMaterial(material);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays in various directions find the same closest intersection as the separate triangles
+        for (int i = 0; i < 300; ++i) {
+            Ray ray = new Ray(new Point(-2 + (i % 15) * 1.7, -3 + (i / 15) * 1.3, 6),
+                    new Vector(0.3 - (i % 4) * 0.2, 0.2 - (i % 3) * 0.15, -1));
+            Intersection expected = ray.findClosestIntersection(triangles.calculateIntersections(ray));
+            Intersection actual = mesh.calculateClosestIntersection(ray);
+            if (expected == null) assertNull(actual, "Mesh found an intersection which does not exist");
+            else {
+                assertNotNull(actual, "Mesh missed an intersection");
+                assertEquals(expected.point, actual.point, "Mesh found a wrong closest intersection");
+                assertEquals(expected.geometry.getNormal(expected.point), actual.geometry.getNormal(actual.point),
+                        "Wrong normal of the intersected face");
+                assertSame(material, actual.material, "Faces must have the material of the mesh");
+                assertSame(emission, actual.geometry.getEmission(), "Faces must have the emission of the mesh");
+            }
+        }
+
+        // TC02: Vertices are shared - the mesh is much smaller than the separate triangles
+        assertEquals((N + 1) * (N + 1), mesh.getVerticesCount(), "Wrong amount of vertices");
+        assertEquals(2 * N * N, mesh.getFacesCount(), "Wrong amount of faces");
+        assertTrue(mesh.getMemorySize() < 100L * mesh.getFacesCount(), "Mesh takes too much memory");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to an axis
+        Ray parallel = new Ray(new Point(10.3, 10.6, 10), new Vector(0, 0, -1));
+        assertEquals(parallel.findClosestIntersection(triangles.calculateIntersections(parallel)).point,
+                mesh.calculateClosestIntersection(parallel).point, "Wrong intersection of an axis-parallel ray");
+        // TC12: Ray through a shared edge hits neither face, as separate triangles
+        assertNull(mesh.calculateClosestIntersection(new Ray(new Point(10.5, 10.5, 10), new Vector(0, 0, -1))),
+                "Edges are not counted");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#findIntersections(Ray)} and
+     * {@link TriangleMesh#hasIntersection(Ray, double)}.
+     */
+    @Test
+    void testFindIntersections() {
+        double[] positions = Scenes.terrainPositions(N);
+        int[] indices = Scenes.terrainIndices(N);
+        Geometries triangles = new Geometries(Scenes.triangles(positions, indices));
+        TriangleMesh mesh = new TriangleMesh(positions, indices);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays just beside the shared edges and vertices cross exactly one of the faces sharing them
+        // (the offsets move the heads off all the edge lines through the vertices)
+        for (int i = 1; i < N; i += 3)
+            for (int j = 1; j < N; j += 4)
+                for (double[] offset : new double[][]{{1e-7, 3e-7}, {-1e-7, -3e-7}, {3e-7, -1e-7}, {-3e-7, 1e-7}}) {
+                    // the diagonal edge inside a square, the edge between two squares and a vertex shared by six faces
+                    for (Point head : new Point[]{new Point(i + 0.5 + offset[0], j + 0.5 + offset[1], 5),
+                            new Point(i + offset[0], j + 0.3 + offset[1], 5), new Point(i + offset[0], j + offset[1], 5)}) {
+                        Ray ray = new Ray(head, new Vector(0, 0, -1));
+                        List<Point> intersections = mesh.findIntersections(ray);
+                        assertNotNull(intersections, "Ray beside a shared edge must not be missed");
+                        assertEquals(1, intersections.size(), "Ray beside a shared edge must cross one face");
+                    }
+                }
+
+        // TC02: Shadow ray ending just before or just after the face it crosses
+        Ray ray = new Ray(new Point(7.3, 4.6, 5), new Vector(0, 0, -1));
+        double distance = ray.getP0().distance(mesh.calculateClosestIntersection(ray).point);
+        assertFalse(mesh.hasIntersection(ray, distance - 1e-6), "Face beyond the maximal distance");
+        assertTrue(mesh.hasIntersection(ray, distance + 1e-6), "Face before the maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Rays through shared edges and vertices are counted as by separate triangles - never twice
+        for (int i = 1; i < N; i += 3)
+            for (int j = 1; j < N; j += 4)
+                for (Point head : new Point[]{new Point(i + 0.5, j + 0.5, 5), new Point(i, j + 0.3, 5),
+                        new Point(i, j, 5)}) {
+                    Ray edge = new Ray(head, new Vector(0, 0, -1));
+                    List<Point> expected = triangles.findIntersections(edge);
+                    List<Point> actual = mesh.findIntersections(edge);
+                    assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                            "Shared edge counted differently than by separate triangles");
+                    assertEquals(triangles.hasIntersection(edge, 10), mesh.hasIntersection(edge, 10),
+                            "Shared edge blocks differently than separate triangles");
+                }
+
+        // TC12: Empty mesh
+        assertNull(new TriangleMesh(new double[0], new int[0]).findIntersections(ray), "Empty mesh has no intersections");
+
+        // TC13: The mesh copies its arrays
+        double[] changed = positions.clone();
+        TriangleMesh copy = new TriangleMesh(changed, indices);
+        changed[3 * (7 * (N + 1) + 4) + 2] = 100;
+        assertEquals(mesh.calculateClosestIntersection(ray).point, copy.calculateClosestIntersection(ray).point,
+                "Mesh must not depend on the given arrays");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#getNormal(Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        TriangleMesh mesh = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1},
+                new int[]{0, 1, 2, 0, 3, 1});
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point on the first face
+        Vector normal = mesh.getNormal(new Point(0.2, 0.3, 0));
+        assertEquals(1, normal.length(), DELTA, "Normal must be a unit vector");
+        assertEquals(new Vector(0, 0, 1), normal, "Wrong normal of the first face");
+        // TC02: Point on the second face
+        assertEquals(new Vector(0, 1, 0), mesh.getNormal(new Point(0.2, 0, 0.3)), "Wrong normal of the second face");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Point in the plane of a face but outside of every face
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(2, 2, 0)), "Point off the mesh");
+        // TC12: Point above a face, off the planes of all the faces
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(0.2, 0.3, 0.5)),
+                "Point off the mesh");
+        // TC13: Point on the edge shared by the faces
+        assertDoesNotThrow(() -> mesh.getNormal(new Point(0.5, 0, 0)), "Point on a shared edge is on the mesh");
+    }
+
+    /**
+     * Test method for {@link TriangleMesh#TriangleMesh(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        double[] positions = {0, 0, 0, 1, 0, 0, 0, 1, 0, 2, 0, 0};
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Correct mesh
+        assertDoesNotThrow(() -> new TriangleMesh(positions, new int[]{0, 1, 2}), "Failed constructing a correct mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Missing arrays
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(null, new int[]{0, 1, 2}), "No positions");
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(positions, null), "No indices");
+        // TC12: Incomplete vertex or face
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(new double[]{0, 0}, new int[0]),
+                "Incomplete vertex");
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(positions, new int[]{0, 1}),
+                "Incomplete face");
+        // TC13: Index out of range
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(positions, new int[]{0, 1, 4}),
+                "Index out of range");
+        // TC14: Vertices of a face on the same line
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(positions, new int[]{0, 1, 3}),
+                "Collinear vertices");
+    }
+}
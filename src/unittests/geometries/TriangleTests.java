@@ -1,5 +1,6 @@
 package unittests.geometries;
 
+import geometries.Intersectable.Intersection;
 import geometries.Triangle;
 import org.junit.jupiter.api.Test;
 import primitives.Point;
@@ -96,4 +97,60 @@ class TriangleTests {
         assertNull(triangle.findIntersections(new Ray(new Point(3, 3, 1), new Vector(1, 0, 0))),
                 "Ray starts at triangle plane but outside");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Triangle#calculateBarycentricCoordinates(Ray)}.
+     */
+    @Test
+    void testCalculateBarycentricCoordinates() {
+        Triangle triangle = new Triangle(new Point(1, 0, 1), new Point(0, 1, 1), new Point(-1, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Inside triangle - the weights reproduce the intersection point and sum to 1
+        double[] result = triangle.calculateBarycentricCoordinates(new Ray(new Point(0, 0.3, 0), new Vector(0, 0, 1)));
+        assertNotNull(result, "Ray should intersect triangle");
+        assertEquals(0.35, result[0], DELTA, "Wrong weight of first vertex");
+        assertEquals(0.3, result[1], DELTA, "Wrong weight of second vertex");
+        assertEquals(0.35, result[2], DELTA, "Wrong weight of third vertex");
+
+        // TC02: Outside triangle
+        assertNull(triangle.calculateBarycentricCoordinates(new Ray(new Point(2, 0, 0), new Vector(0, 0, 1))),
+                "Ray's line outside triangle");
+
+        // TC03: Triangle behind the ray
+        assertNull(triangle.calculateBarycentricCoordinates(new Ray(new Point(0, 0.3, 2), new Vector(0, 0, 1))),
+                "Triangle behind the ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: On edge
+        assertNull(triangle.calculateBarycentricCoordinates(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))),
+                "Ray's line on edge");
+
+        // TC12: Ray parallel to triangle
+        assertNull(triangle.calculateBarycentricCoordinates(new Ray(new Point(0, 0.3, 1), new Vector(1, 0, 0))),
+                "Ray parallel to triangle");
+    }
+
+    /**
+     * Test method for {@link Triangle#calculateClosestIntersection(Ray, double)}.
+     */
+    @Test
+    void testCalculateClosestIntersection() {
+        Triangle triangle = new Triangle(new Point(1, 0, 1), new Point(0, 1, 1), new Point(-1, 0, 1));
+        Ray ray = new Ray(new Point(0, 0.3, 0), new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Intersection closer than the maximal distance
+        Intersection intersection = triangle.calculateClosestIntersection(ray, 2);
+        assertNotNull(intersection, "Ray should intersect triangle");
+        assertSame(triangle, intersection.geometry, "Wrong intersected geometry");
+        assertEquals(new Point(0, 0.3, 1), intersection.point, "Wrong intersection point");
+
+        // TC02: Intersection beyond the maximal distance
+        assertNull(triangle.calculateClosestIntersection(ray, 0.5), "Intersection beyond maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Intersection exactly at the maximal distance is not counted
+        assertNull(triangle.calculateClosestIntersection(ray, 1), "Intersection at maximal distance");
+    }
+}
@@ -6,7 +6,9 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Unit tests for geometries.Tube class
@@ -57,4 +59,48 @@ class TubeTests {
         assertEquals(0, normal2.dotProduct(axisRay.getDir()), DELTA,
                 "Tube's normal is not perpendicular to axis at boundary");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Tube#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // Tube of radius 1 around the Z axis
+        Tube tube = new Tube(new Ray(Point.ZERO, new Vector(0, 0, 1)), 1);
+        Point p1 = new Point(-1, 0, 2);
+        Point p2 = new Point(1, 0, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray's line is outside the tube
+        assertNull(tube.findIntersections(new Ray(new Point(-2, 2, 0), new Vector(1, 0, 0))),
+                "Ray's line out of tube");
+
+        // TC02: Ray starts before and crosses the tube
+        List<Point> result = tube.findIntersections(new Ray(new Point(-2, 0, 2), new Vector(1, 0, 0)));
+        assertEquals(List.of(p1, p2), result, "Ray crosses tube");
+
+        // TC03: Ray starts inside the tube (diagonal to the axis)
+        result = tube.findIntersections(new Ray(new Point(0, 0, 1), new Vector(1, 0, 1)));
+        assertEquals(List.of(p2), result, "Ray from inside tube");
+
+        // TC04: Ray starts after the tube
+        assertNull(tube.findIntersections(new Ray(new Point(2, 0, 2), new Vector(1, 0, 0))),
+                "Ray after tube");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to the axis inside the tube
+        assertNull(tube.findIntersections(new Ray(new Point(0.5, 0, 0), new Vector(0, 0, 1))),
+                "Ray parallel to axis");
+
+        // TC12: Ray tangent to the tube
+        assertNull(tube.findIntersections(new Ray(new Point(-2, 1, 2), new Vector(1, 0, 0))),
+                "Ray tangent to tube");
+
+        // TC13: Ray starts at the surface and goes inside
+        result = tube.findIntersections(new Ray(p1, new Vector(1, 0, 0)));
+        assertEquals(List.of(p2), result, "Ray from surface inwards");
+
+        // TC14: Ray starts at the surface and goes outside
+        assertNull(tube.findIntersections(new Ray(p2, new Vector(1, 0, 0))), "Ray from surface outwards");
+    }
+}
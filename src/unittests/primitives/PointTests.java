@@ -100,4 +100,54 @@ class PointTests {
         // TC11: Distance from point to itself
         assertEquals(0, p1.distance(p1), DELTA, "Distance from point to itself is not zero");
     }
+
+    /**
+     * Test method for {@link Point#getX()}, {@link Point#getY()} and {@link Point#getZ()}.
+     */
+    @Test
+    void testCoordinates() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Coordinates of a point
+        Point p = new Point(1, -2, 3.5);
+        assertEquals(1, p.getX(), DELTA, "Wrong X coordinate");
+        assertEquals(-2, p.getY(), DELTA, "Wrong Y coordinate");
+        assertEquals(3.5, p.getZ(), DELTA, "Wrong Z coordinate");
+    }
+
+    /**
+     * Test method for {@link Point#distanceSquared(double, double, double)}.
+     */
+    @Test
+    void testDistanceSquaredCoordinates() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Same result as for the point with the coordinates
+        Point p1 = new Point(1, 2, 3);
+        assertEquals(p1.distanceSquared(new Point(4, 6, 3)), p1.distanceSquared(4, 6, 3), DELTA,
+                "Distance squared to coordinates is wrong");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Distance squared from point to its own coordinates
+        assertEquals(0, p1.distanceSquared(1, 2, 3), DELTA, "Distance squared to own coordinates is not zero");
+    }
+
+    /**
+     * Test method for {@link Point#dotProduct(Vector)}.
+     */
+    @Test
+    void testDotProduct() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Same result as for the position vector of the point
+        Point p = new Point(1, 2, 3);
+        Vector v = new Vector(-2, 4, 1);
+        assertEquals(new Vector(1, 2, 3).dotProduct(v), p.dotProduct(v), DELTA, "Dot product is wrong");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Origin
+        assertEquals(0, Point.ZERO.dotProduct(v), DELTA, "Dot product of the origin is not zero");
+    }
 }
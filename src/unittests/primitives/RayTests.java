@@ -9,6 +9,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * Unit tests for primitives.Ray class
@@ -16,6 +17,11 @@ import static org.junit.jupiter.api.Assertions.assertNull;
  * @author Maor Atari
  */
 public class RayTests {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in assertEquals
+     */
+    private static final double DELTA = 0.000001;
+
     /**
      * Default constructor for RayTests
      */
@@ -57,6 +63,28 @@ public class RayTests {
         assertEquals(new Point(1, 12, 3), p6, "Wrong point for large positive distance");
     }
 
+    /**
+     * Test method for {@link Ray#Ray(Point, Vector)} and the component accessors.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Direction that is not normalized is normalized into the components
+        Ray ray = new Ray(new Point(1, 2, 3), new Vector(0, 3, 4));
+        assertEquals(new Vector(0, 0.6, 0.8), ray.getDir(), "Wrong normalized direction");
+        assertEquals(1, ray.getHeadX(), DELTA, "Wrong head X coordinate");
+        assertEquals(2, ray.getHeadY(), DELTA, "Wrong head Y coordinate");
+        assertEquals(3, ray.getHeadZ(), DELTA, "Wrong head Z coordinate");
+        assertEquals(0, ray.getDirX(), DELTA, "Wrong direction X component");
+        assertEquals(0.6, ray.getDirY(), DELTA, "Wrong direction Y component");
+        assertEquals(0.8, ray.getDirZ(), DELTA, "Wrong direction Z component");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Normalized direction is kept as is
+        Vector dir = new Vector(0, 0, 1);
+        assertSame(dir, new Ray(Point.ZERO, dir).getDir(), "Normalized direction should not be copied");
+    }
+
     /**
      * Test method for {@link Ray#findClosestPoint(List)}.
      */
@@ -0,0 +1,93 @@
+package unittests.primitives;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Transform;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for primitives.Transform class
+ *
+ * @author Maor Atari
+ */
+class TransformTests {
+    /**
+     * Default constructor for TransformTests
+     */
+    public TransformTests() {
+    }
+
+    /**
+     * A point used in some tests
+     */
+    private final Point p123 = new Point(1, 2, 3);
+
+    /**
+     * Test method for {@link Transform#transformPoint(Point)}.
+     */
+    @Test
+    void testTransformPoint() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Translation
+        assertEquals(new Point(2, 4, 6), Transform.translation(new Vector(1, 2, 3)).transformPoint(p123),
+                "Wrong translated point");
+        // TC02: Scaling
+        assertEquals(new Point(2, 6, -3), Transform.scaling(2, 3, -1).transformPoint(p123), "Wrong scaled point");
+        // TC03: Rotation by 90 degrees about Z axis
+        assertEquals(new Point(-2, 1, 3), Transform.rotation(Vector.AXIS_Z, 90).transformPoint(p123),
+                "Wrong rotated point");
+        // TC04: General matrix
+        Transform general = new Transform(1, 1, 0, 0, 1, 0, 0, 0, 2, new Double3(1, 0, 0));
+        assertEquals(new Point(4, 2, 6), general.transformPoint(p123), "Wrong transformed point");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Identity
+        assertEquals(p123, Transform.IDENTITY.transformPoint(p123), "Identity must not move the point");
+        // TC12: Point on the rotation axis
+        assertEquals(new Point(0, 0, 5), Transform.rotation(Vector.AXIS_Z, 37).transformPoint(new Point(0, 0, 5)),
+                "Point on the axis must not move");
+    }
+
+    /**
+     * Test method for {@link Transform#transformVector(Vector)} and {@link Transform#transformNormal(Vector)}.
+     */
+    @Test
+    void testTransformVector() {
+        Transform transform = Transform.scaling(2, 1, 1).then(Transform.translation(new Vector(5, 5, 5)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Vectors are not translated
+        assertEquals(new Vector(2, 1, 0), transform.transformVector(new Vector(1, 1, 0)), "Wrong transformed vector");
+        // TC02: Normal stays perpendicular to the transformed surface
+        Vector tangent = new Vector(1, -1, 0), normal = new Vector(1, 1, 0);
+        assertEquals(0, transform.transformVector(tangent).dotProduct(transform.transformNormal(normal)), 0.000001,
+                "Transformed normal is not perpendicular to the transformed tangent");
+    }
+
+    /**
+     * Test method for {@link Transform#then(Transform)} and {@link Transform#inverse()}.
+     */
+    @Test
+    void testComposition() {
+        Transform transform = Transform.scaling(2)
+                .then(Transform.rotation(new Vector(1, 1, 1), 50))
+                .then(Transform.translation(new Vector(-3, 4, 1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Transformations are applied in order
+        assertEquals(new Point(2, 5, 3), Transform.scaling(2).then(Transform.translation(new Vector(0, 1, 0)))
+                .transformPoint(new Point(1, 2, 1.5)), "Wrong order of the composition");
+        // TC02: Inverse returns the point back
+        assertEquals(p123, transform.inverse().transformPoint(transform.transformPoint(p123)),
+                "Inverse must return the point back");
+        // TC03: Composition with the inverse is the identity
+        assertEquals(Transform.IDENTITY, transform.then(transform.inverse()), "Composition with inverse");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Singular transformation
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1), "Zero scale");
+    }
+}
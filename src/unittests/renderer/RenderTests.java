@@ -1,16 +1,26 @@
 package unittests.renderer;
 
+import geometries.Plane;
 import geometries.Sphere;
 import geometries.Triangle;
 import lighting.AmbientLight;
+import lighting.DirectionalLight;
 import org.junit.jupiter.api.Test;
 import primitives.*;
 import renderer.Camera;
 import renderer.RayTracerType;
+import renderer.SimpleRayTracer;
 import scene.Scene;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
 import static java.awt.Color.WHITE;
 import static java.awt.Color.YELLOW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 /**
  * Test rendering a basic image
@@ -151,4 +161,59 @@ public class RenderTests {
                 .printGrid(100, new Color(YELLOW)) //
                 .writeToImage("json render test");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test for multithreaded rendering - the image rendered in tiles by several
+     * threads must be identical to the image rendered by a single thread
+     *
+     * @throws IOException if the rendered images cannot be read back
+     */
+    @Test
+    public void renderMultithreadedTest() throws IOException {
+        Scene scene = new Scene("Multithreaded").setAmbientLight(new AmbientLight(new Color(51, 51, 51)));
+        scene.geometries //
+                .add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(java.awt.Color.BLUE)),
+                        new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100)) //
+                                .setEmission(new Color(java.awt.Color.GREEN)));
+
+        camera //
+                .setRayTracer(scene, RayTracerType.SIMPLE) //
+                .setResolution(300, 200) //
+                .build() //
+                .renderImage() //
+                .writeToImage("single-threaded render test");
+        camera //
+                .setMultithreading(4) //
+                .setTileSize(23) //
+                .build() //
+                .renderImage() //
+                .writeToImage("multithreaded render test");
+
+        String folder = System.getProperty("user.dir") + "/images/";
+        BufferedImage single = ImageIO.read(new File(folder + "single-threaded render test.png"));
+        BufferedImage multi = ImageIO.read(new File(folder + "multithreaded render test.png"));
+        for (int i = 0; i < 200; ++i)
+            for (int j = 0; j < 300; ++j)
+                assertEquals(single.getRGB(j, i), multi.getRGB(j, i), "Pixel differs in multithreaded rendering");
+    }
+
+    /**
+     * Test for the unshaded-check mode of the ray tracer - a point in the shadow of a sphere is lit
+     * by the light source only when the shadows are turned off
+     */
+    @Test
+    public void shadowsModeTest() {
+        Scene scene = new Scene("Shadows mode");
+        scene.geometries.add(new Sphere(new Point(0, 0, -50), 15),
+                new Plane(new Point(0, 0, -100), new Vector(0, 0, 1)).setMaterial(new Material().setKD(0.5)));
+        scene.lights.add(new DirectionalLight(new Color(200, 200, 200), new Vector(0, 0, -1)));
+        Ray ray = new Ray(new Point(0, 50, 0), new Vector(0, -50, -100));
+
+        SimpleRayTracer tracer = new SimpleRayTracer(scene);
+        assertEquals(java.awt.Color.BLACK, tracer.traceRay(ray).getColor(), "Shaded point must not be lit");
+        assertNotEquals(java.awt.Color.BLACK, tracer.setShadows(false).traceRay(ray).getColor(),
+                "Without shadows the point must be lit");
+        assertEquals(java.awt.Color.BLACK, tracer.setShadows(true).traceRay(ray).getColor(),
+                "Shadows must be restored");
+    }
+}